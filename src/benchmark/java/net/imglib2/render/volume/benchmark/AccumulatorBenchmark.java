@@ -0,0 +1,142 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.render.volume.ARGBDoubleLayers;
+import net.imglib2.render.volume.AlphaIntensityLayers;
+import net.imglib2.type.numeric.NativeARGBDoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compositing of one ray through {@link AlphaIntensityLayers} and
+ * {@link ARGBDoubleLayers}, per row through a RandomAccess and per packet
+ * of numRays rays from primitive sample arrays.  Both composite every
+ * stepSize-th of numSamples samples and packet times are reported per ray,
+ * so row and packet times compare directly.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class AccumulatorBenchmark
+{
+	final static protected int numRays = 16;
+	
+	@Param( { "64", "512" } )
+	public int numSamples;
+	
+	@Param( { "1", "4" } )
+	public long stepSize;
+	
+	final protected AlphaIntensityLayers< FloatType > alphaIntensity = new AlphaIntensityLayers< FloatType >( 10, -0.005 );
+	final protected ARGBDoubleLayers< NativeARGBDoubleType > argbDouble = new ARGBDoubleLayers< NativeARGBDoubleType >();
+	
+	protected RandomAccess< FloatType > floatRay;
+	protected RandomAccess< NativeARGBDoubleType > argbRay;
+	final protected FloatType floatAccumulator = new FloatType();
+	final protected NativeARGBDoubleType argbAccumulator = new NativeARGBDoubleType();
+	
+	protected float[][] floatSamples, argbSamples;
+	protected double[][] floatAccumulators, argbAccumulators;
+	
+	/* samples per ray at stepSize, as composited by the row benchmarks */
+	protected int numSteps;
+	
+	@Setup
+	public void setup()
+	{
+		final Random rnd = new Random( 0 );
+		
+		numSteps = ( int )( ( numSamples - 1 ) / stepSize + 1 );
+		
+		final float[] floats = new float[ numSamples ];
+		for ( int i = 0; i < floats.length; ++i )
+			floats[ i ] = rnd.nextFloat() * 0.1f;
+		floatRay = ArrayImgs.floats( floats, numSamples ).randomAccess();
+		
+		final Img< NativeARGBDoubleType > argbs = new ArrayImgFactory< NativeARGBDoubleType >().create( new long[]{ numSamples }, new NativeARGBDoubleType() );
+		final Cursor< NativeARGBDoubleType > cursor = argbs.cursor();
+		while ( cursor.hasNext() )
+			cursor.next().set( rnd.nextDouble() * 0.1, rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble() );
+		argbRay = argbs.randomAccess();
+		
+		floatSamples = new float[ 1 ][ numRays * numSteps ];
+		for ( int i = 0; i < floatSamples[ 0 ].length; ++i )
+			floatSamples[ 0 ][ i ] = rnd.nextFloat() * 0.1f;
+		argbSamples = new float[ 4 ][ numRays * numSteps ];
+		for ( final float[] channel : argbSamples )
+			for ( int i = 0; i < channel.length; ++i )
+				channel[ i ] = rnd.nextFloat();
+		floatAccumulators = new double[ 1 ][ numRays ];
+		argbAccumulators = new double[ 4 ][ numRays ];
+	}
+	
+	@Benchmark
+	public FloatType alphaIntensityRow()
+	{
+		floatAccumulator.setZero();
+		alphaIntensity.accumulateRow( floatAccumulator, floatRay, 0, numSamples - 1, stepSize, 0 );
+		return floatAccumulator;
+	}
+	
+	@Benchmark
+	public NativeARGBDoubleType argbDoubleRow()
+	{
+		argbAccumulator.setZero();
+		argbDouble.accumulateRow( argbAccumulator, argbRay, 0, numSamples - 1, stepSize, 0 );
+		return argbAccumulator;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation( numRays )
+	public double[][] alphaIntensityPacket()
+	{
+		alphaIntensity.accumulateBatch( floatAccumulators, floatSamples, numRays, numSteps );
+		return floatAccumulators;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation( numRays )
+	public double[][] argbDoublePacket()
+	{
+		argbDouble.accumulateBatch( argbAccumulators, argbSamples, numRays, numSteps );
+		return argbAccumulators;
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.render.volume.Renderer;
+import net.imglib2.type.numeric.ARGBType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mixing a stereo pair of canvasSize x canvasSize ARGB canvases into an
+ * anaglyph with each of the mix*Anaglyph methods of {@link Renderer}.  The
+ * left canvas is restored before each invocation because it receives the
+ * result.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class AnaglyphBenchmark
+{
+	@Param( { "512", "1024" } )
+	public int canvasSize;
+	
+	protected int[] leftPixels, rightPixels, pixels;
+	protected ArrayImg< ARGBType, IntArray > left, right;
+	
+	@Setup
+	public void setup()
+	{
+		final Random rnd = new Random( 0 );
+		leftPixels = new int[ canvasSize * canvasSize ];
+		rightPixels = new int[ canvasSize * canvasSize ];
+		for ( int i = 0; i < leftPixels.length; ++i )
+		{
+			leftPixels[ i ] = rnd.nextInt() | 0xff000000;
+			rightPixels[ i ] = rnd.nextInt() | 0xff000000;
+		}
+		pixels = leftPixels.clone();
+		left = ArrayImgs.argbs( pixels, canvasSize, canvasSize );
+		right = ArrayImgs.argbs( rightPixels, canvasSize, canvasSize );
+	}
+	
+	@Benchmark
+	public int[] redCyan()
+	{
+		System.arraycopy( leftPixels, 0, pixels, 0, pixels.length );
+		Renderer.mixRedCyanAnaglyph( left, right, 1.0 );
+		return pixels;
+	}
+	
+	@Benchmark
+	public int[] redGreen()
+	{
+		System.arraycopy( leftPixels, 0, pixels, 0, pixels.length );
+		Renderer.mixRedGreenAnaglyph( left, right, 1.0 );
+		return pixels;
+	}
+	
+	@Benchmark
+	public int[] greenMagenta()
+	{
+		System.arraycopy( leftPixels, 0, pixels, 0, pixels.length );
+		Renderer.mixGreenMagentaAnaglyph( left, right, 1.0 );
+		return pixels;
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.render.volume.RealCompositeARGBDoubleConverter;
+import net.imglib2.type.numeric.ARGBDoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+import net.imglib2.view.composite.RealComposite;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link RealCompositeARGBDoubleConverter#convert} of a row of numVoxels
+ * composite voxels with numChannels channels.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ConverterBenchmark
+{
+	final static protected int numVoxels = 1024;
+	
+	@Param( { "1", "2", "5" } )
+	public int numChannels;
+	
+	protected RealCompositeARGBDoubleConverter< FloatType > converter;
+	protected RandomAccess< RealComposite< FloatType > > access;
+	final protected ARGBDoubleType argb = new ARGBDoubleType();
+	
+	@Setup
+	public void setup()
+	{
+		final Random rnd = new Random( 0 );
+		converter = new RealCompositeARGBDoubleConverter< FloatType >( numChannels );
+		for ( int c = 0; c < numChannels; ++c )
+			converter.setARGB( new ARGBDoubleType( rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble() ), c );
+		
+		final float[] voxels = new float[ numVoxels * numChannels ];
+		for ( int i = 0; i < voxels.length; ++i )
+			voxels[ i ] = rnd.nextFloat();
+		access = Views.collapseReal( ArrayImgs.floats( voxels, numVoxels, numChannels ), numChannels ).randomAccess();
+	}
+	
+	@Benchmark
+	public double convert()
+	{
+		double sum = 0;
+		for ( int x = 0; x < numVoxels; ++x )
+		{
+			access.setPosition( x, 0 );
+			converter.convert( access.get(), argb );
+			sum += argb.getA();
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,169 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume.benchmark;
+
+import ij.ImagePlus;
+import ij.io.FileSaver;
+
+import java.io.File;
+
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.Translation3D;
+import net.imglib2.render.volume.RealCompositeARGBDoubleConverter;
+import net.imglib2.render.volume.Renderer;
+import net.imglib2.render.volume.Renderer.Anaglyph;
+import net.imglib2.render.volume.Renderer.Interpolation;
+import net.imglib2.type.numeric.ARGBDoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Scenes of the {@link MacroBenchmark} scenarios and their reference
+ * renders.  References are rendered single-threaded and back-to-front
+ * through the public API of the first version of the renderer only,
+ * so this class and {@link Phantoms} compile against that version and the
+ * golden images can be recorded with the renderer that the optimizations
+ * started from:
+ * 
+ * <pre>GoldenImages [size [goldenDirectory]]</pre>
+ * 
+ * writes <code>scenario-size.tif</code> for all scenarios.  Scenarios that
+ * differ in optimizations only, e.g. front-to-back compositing or compact
+ * storage, share the reference of the plain render.
+ */
+public class GoldenImages
+{
+	final static public int width = 512;
+	final static public int height = 384;
+	
+	final static public String[] scenarios = {
+			"gray-sparse-spots",
+			"gray-dense-shells",
+			"gray-dense-shells-front-to-back",
+			"argb-multichannel-blobs",
+			"stereo-anisotropic-blobs" };
+	
+	final static public AffineTransform3D orientation()
+	{
+		final AffineTransform3D affine = new AffineTransform3D();
+		affine.rotate( 0, 0.6 );
+		affine.rotate( 1, 0.3 );
+		affine.scale( 0.8 );
+		return affine;
+	}
+	
+	final static public RealCompositeARGBDoubleConverter< FloatType > converter( final int numChannels )
+	{
+		final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble = new RealCompositeARGBDoubleConverter< FloatType >( numChannels );
+		final double[][] colors = { { 1, 0, 1 }, { 0, 1, 0 }, { 0, 0.5, 1 } };
+		for ( int c = 0; c < numChannels; ++c )
+		{
+			final double[] color = colors[ c % colors.length ];
+			composite2ARGBDouble.setARGB( new ARGBDoubleType( 0.1, color[ 0 ], color[ 1 ], color[ 2 ] ), c );
+		}
+		return composite2ARGBDouble;
+	}
+	
+	/**
+	 * Phantom of a scenario with edge length size.
+	 */
+	final static public ImagePlus phantom( final String scenario, final int size )
+	{
+		if ( scenario.equals( "gray-sparse-spots" ) )
+			return Phantoms.spots( size, size, size, size * 4, 0 );
+		else if ( scenario.startsWith( "gray-dense-shells" ) )
+			return Phantoms.shells( size, size, size, 8 );
+		else if ( scenario.equals( "argb-multichannel-blobs" ) )
+			return Phantoms.blobs( size, size, size, 3, 16, 1 );
+		else if ( scenario.equals( "stereo-anisotropic-blobs" ) )
+			return Phantoms.blobs( size, size, Math.max( 1, size / 4 ), 4, 2, 16, 2 );
+		else
+			throw new IllegalArgumentException( "Unknown scenario " + scenario + "." );
+	}
+	
+	/**
+	 * Reference render of a scenario.
+	 */
+	final static public ImagePlus render( final String scenario, final ImagePlus phantom ) throws InterruptedException
+	{
+		if ( scenario.startsWith( "gray-" ) )
+			return Renderer.runGray(
+					phantom,
+					width,
+					height,
+					orientation(),
+					0,
+					1,
+					new Translation3D(),
+					1,
+					0,
+					Interpolation.NL,
+					0,
+					0.5,
+					4,
+					0,
+					false );
+		else if ( scenario.startsWith( "argb-" ) )
+			return Renderer.runARGB(
+					phantom,
+					width,
+					height,
+					orientation(),
+					0,
+					1,
+					new Translation3D(),
+					1,
+					new ARGBDoubleType( 1, 0, 0, 0 ),
+					Interpolation.NL,
+					converter( 3 ) );
+		else
+			return Renderer.runARGBStereo(
+					phantom,
+					width,
+					height,
+					orientation(),
+					1.25,
+					1,
+					phantom.getWidth() / 15.0,
+					new Translation3D( width / 20.0, 0, 0 ),
+					1,
+					new ARGBDoubleType( 1, 0, 0, 0 ),
+					Interpolation.NL,
+					converter( 2 ),
+					1.0,
+					Anaglyph.RedCyan );
+	}
+	
+	final static public File file( final File goldenDirectory, final String scenario, final int size )
+	{
+		return new File( goldenDirectory, scenario + "-" + size + ".tif" );
+	}
+	
+	final static public void main( final String[] args ) throws Exception
+	{
+		final int size = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 128;
+		final File goldenDirectory = new File( args.length > 1 ? args[ 1 ] : "src/benchmark/resources/golden" );
+		goldenDirectory.mkdirs();
+		
+		for ( final String scenario : scenarios )
+		{
+			final ImagePlus imp = render( scenario, phantom( scenario, size ) );
+			final File golden = file( goldenDirectory, scenario, size );
+			new FileSaver( imp ).saveAsTiff( golden.getAbsolutePath() );
+			System.out.println( golden.getPath() );
+		}
+	}
+}
@@ -0,0 +1,292 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume.benchmark;
+
+import ij.ImagePlus;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import net.imglib2.realtransform.Translation3D;
+import net.imglib2.render.volume.RenderStats;
+import net.imglib2.render.volume.Renderer;
+import net.imglib2.render.volume.Renderer.ARGBStorage;
+import net.imglib2.render.volume.Renderer.Anaglyph;
+import net.imglib2.render.volume.Renderer.Interpolation;
+import net.imglib2.type.numeric.ARGBDoubleType;
+
+/**
+ * End-to-end renders of synthetic {@link Phantoms} through
+ * {@link Renderer#runGray}, {@link Renderer#runARGB} and
+ * {@link Renderer#runARGBStereo}.  Each scenario reports wall time,
+ * throughput in source voxels per second, peak heap and its render phases,
+ * and compares its output with the golden image that {@link GoldenImages}
+ * rendered with the first version of the renderer.  Golden images are
+ * never recorded here.  Without a golden image, the output is compared
+ * with the plain single-threaded back-to-front render of
+ * {@link GoldenImages} in this build, which still catches optimizations
+ * that change the picture but not changes shared by both paths.
+ * 
+ * <pre>MacroBenchmark [size [goldenDirectory [tolerance]]]</pre>
+ * 
+ * size is the edge length of the phantoms, default 128, goldenDirectory
+ * defaults to src/benchmark/resources/golden, tolerance is the largest
+ * accepted difference per 8-bit channel, default 2.  The exit code is the
+ * number of scenarios that differ from their reference.
+ */
+public class MacroBenchmark
+{
+	/**
+	 * A render of a phantom that is created only when the scenario runs such
+	 * that peak heap is measured per scenario.
+	 */
+	abstract static protected class Scenario
+	{
+		final protected String name;
+		
+		public Scenario( final String name )
+		{
+			this.name = name;
+		}
+		
+		public ImagePlus phantom( final int size )
+		{
+			return GoldenImages.phantom( name, size );
+		}
+		
+		abstract public ImagePlus run( final ImagePlus phantom, final ForkJoinPool pool ) throws Exception;
+	}
+	
+	final static protected ImagePlus gray(
+			final ImagePlus phantom,
+			final Interpolation interpolationMethod,
+			final double minTransmittance,
+			final ForkJoinPool pool )
+	{
+		return Renderer.runGray(
+				phantom,
+				GoldenImages.width,
+				GoldenImages.height,
+				GoldenImages.orientation(),
+				0,
+				1,
+				new Translation3D(),
+				1,
+				0,
+				interpolationMethod,
+				0,
+				0.5,
+				4,
+				0,
+				false,
+				minTransmittance,
+				null,
+				pool );
+	}
+	
+	final static protected ArrayList< Scenario > scenarios()
+	{
+		final ArrayList< Scenario > scenarios = new ArrayList< Scenario >();
+		
+		scenarios.add(
+				new Scenario( "gray-sparse-spots" )
+				{
+					@Override
+					public ImagePlus run( final ImagePlus phantom, final ForkJoinPool pool )
+					{
+						return gray( phantom, Interpolation.NL, 0, pool );
+					}
+				} );
+		scenarios.add(
+				new Scenario( "gray-dense-shells" )
+				{
+					@Override
+					public ImagePlus run( final ImagePlus phantom, final ForkJoinPool pool )
+					{
+						return gray( phantom, Interpolation.NL, 0, pool );
+					}
+				} );
+		scenarios.add(
+				new Scenario( "gray-dense-shells-front-to-back" )
+				{
+					@Override
+					public ImagePlus run( final ImagePlus phantom, final ForkJoinPool pool )
+					{
+						return gray( phantom, Interpolation.NL, 1.0 / 255.0, pool );
+					}
+				} );
+		scenarios.add(
+				new Scenario( "argb-multichannel-blobs" )
+				{
+					@Override
+					public ImagePlus run( final ImagePlus phantom, final ForkJoinPool pool )
+					{
+						return Renderer.runARGB(
+								phantom,
+								GoldenImages.width,
+								GoldenImages.height,
+								GoldenImages.orientation(),
+								0,
+								1,
+								new Translation3D(),
+								1,
+								new ARGBDoubleType( 1, 0, 0, 0 ),
+								Interpolation.NL,
+								GoldenImages.converter( 3 ),
+								0,
+								null,
+								ARGBStorage.FLOAT,
+								pool );
+					}
+				} );
+		scenarios.add(
+				new Scenario( "stereo-anisotropic-blobs" )
+				{
+					@Override
+					public ImagePlus run( final ImagePlus phantom, final ForkJoinPool pool ) throws InterruptedException
+					{
+						return Renderer.runARGBStereo(
+								phantom,
+								GoldenImages.width,
+								GoldenImages.height,
+								GoldenImages.orientation(),
+								1.25,
+								1,
+								phantom.getWidth() / 15.0,
+								new Translation3D( GoldenImages.width / 20.0, 0, 0 ),
+								1,
+								new ARGBDoubleType( 1, 0, 0, 0 ),
+								Interpolation.NL,
+								GoldenImages.converter( 2 ),
+								1.0,
+								Anaglyph.RedCyan,
+								0,
+								null,
+								ARGBStorage.FLOAT,
+								pool );
+					}
+				} );
+		return scenarios;
+	}
+	
+	/**
+	 * Largest difference of two 8-bit gray or RGB images per channel,
+	 * Integer.MAX_VALUE if they do not match in type or size.
+	 */
+	final static public int maxDifference( final ImagePlus a, final ImagePlus b )
+	{
+		if ( a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight() )
+			return Integer.MAX_VALUE;
+		final Object pa = a.getProcessor().getPixels();
+		final Object pb = b.getProcessor().getPixels();
+		int max = 0;
+		if ( pa instanceof byte[] && pb instanceof byte[] )
+		{
+			final byte[] ba = ( byte[] )pa;
+			final byte[] bb = ( byte[] )pb;
+			for ( int i = 0; i < ba.length; ++i )
+				max = Math.max( max, Math.abs( ( ba[ i ] & 0xff ) - ( bb[ i ] & 0xff ) ) );
+		}
+		else if ( pa instanceof int[] && pb instanceof int[] )
+		{
+			final int[] ia = ( int[] )pa;
+			final int[] ib = ( int[] )pb;
+			for ( int i = 0; i < ia.length; ++i )
+				for ( int shift = 0; shift < 24; shift += 8 )
+					max = Math.max( max, Math.abs( ( ( ia[ i ] >> shift ) & 0xff ) - ( ( ib[ i ] >> shift ) & 0xff ) ) );
+		}
+		else
+			return Integer.MAX_VALUE;
+		return max;
+	}
+	
+	final static protected ArrayList< MemoryPoolMXBean > heapPools()
+	{
+		final ArrayList< MemoryPoolMXBean > pools = new ArrayList< MemoryPoolMXBean >();
+		for ( final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+			if ( pool.getType() == MemoryType.HEAP )
+				pools.add( pool );
+		return pools;
+	}
+	
+	final static public void main( final String[] args ) throws Exception
+	{
+		final int size = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 128;
+		final File goldenDirectory = new File( args.length > 1 ? args[ 1 ] : "src/benchmark/resources/golden" );
+		final int tolerance = args.length > 2 ? Integer.parseInt( args[ 2 ] ) : 2;
+		
+		final ForkJoinPool pool = Renderer.getSharedPool();
+		final ArrayList< MemoryPoolMXBean > heapPools = heapPools();
+		int numFailed = 0;
+		
+		System.out.println( "scenario,size,wallMs,mvoxelsPerSecond,peakHeapMB,reference,maxDifference,result" );
+		for ( final Scenario scenario : scenarios() )
+		{
+			final ImagePlus phantom = scenario.phantom( size );
+			final long numVoxels = ( long )phantom.getWidth() * phantom.getHeight() * phantom.getStackSize();
+			
+			System.gc();
+			for ( final MemoryPoolMXBean heapPool : heapPools )
+				heapPool.resetPeakUsage();
+			
+			final RenderStats stats = new RenderStats();
+			final long t0 = System.nanoTime();
+			stats.begin();
+			final ImagePlus imp;
+			try
+			{
+				imp = scenario.run( phantom, pool );
+			}
+			finally
+			{
+				stats.end();
+			}
+			final double wallMs = ( System.nanoTime() - t0 ) / 1e6;
+			
+			long peak = 0;
+			for ( final MemoryPoolMXBean heapPool : heapPools )
+				peak += heapPool.getPeakUsage().getUsed();
+			
+			/* without a golden image, compare with the plain render of this build */
+			final File golden = GoldenImages.file( goldenDirectory, scenario.name, size );
+			final String reference = golden.exists() ? "golden" : "plain";
+			final ImagePlus expected = golden.exists() ? new ImagePlus( golden.getAbsolutePath() ) : GoldenImages.render( scenario.name, phantom );
+			final int difference = maxDifference( imp, expected );
+			final String result = difference <= tolerance ? "ok" : "DIFFERS";
+			if ( difference > tolerance )
+				++numFailed;
+			
+			System.out.println( String.format(
+					"%s,%d,%.1f,%.2f,%.1f,%s,%d,%s",
+					scenario.name,
+					size,
+					wallMs,
+					numVoxels / wallMs / 1e3,
+					peak / 1024.0 / 1024.0,
+					reference,
+					difference,
+					result ) );
+			System.err.println( scenario.name + ": " + stats );
+		}
+		
+		System.exit( numFailed );
+	}
+}
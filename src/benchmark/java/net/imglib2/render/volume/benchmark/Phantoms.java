@@ -0,0 +1,197 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume.benchmark;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+
+import java.util.Random;
+
+/**
+ * Synthetic in-memory stacks for benchmarking the renderer without
+ * depending on files.  All phantoms are deterministic for a given seed and
+ * have intensities in [0, 1].
+ */
+public class Phantoms
+{
+	private Phantoms() {}
+	
+	/**
+	 * Wrap slices in x, y, channel, z order as an ImagePlus with numChannels
+	 * channels.
+	 */
+	final static public ImagePlus wrap(
+			final String title,
+			final float[][] slices,
+			final int width,
+			final int height,
+			final int numChannels )
+	{
+		final ImageStack stack = new ImageStack( width, height );
+		for ( final float[] slice : slices )
+			stack.addSlice( null, slice );
+		final ImagePlus imp = new ImagePlus( title, stack );
+		imp.setDimensions( numChannels, slices.length / numChannels, 1 );
+		if ( numChannels > 1 )
+			imp.setOpenAsHyperStack( true );
+		return imp;
+	}
+	
+	/**
+	 * Add a Gaussian blob with its center and sigma in voxels to channel c,
+	 * clamped to 1.  zScale is the spacing of slices relative to x and y.
+	 */
+	final static protected void addBlob(
+			final float[][] slices,
+			final int width,
+			final int height,
+			final int numChannels,
+			final int c,
+			final double cx,
+			final double cy,
+			final double cz,
+			final double sigma,
+			final double zScale )
+	{
+		final int depth = slices.length / numChannels;
+		final double s = -0.5 / ( sigma * sigma );
+		final int r = ( int )Math.ceil( 3 * sigma );
+		final int rz = ( int )Math.ceil( 3 * sigma / zScale );
+		for ( int z = Math.max( 0, ( int )cz - rz ); z < Math.min( depth, ( int )cz + rz + 1 ); ++z )
+		{
+			final float[] slice = slices[ z * numChannels + c ];
+			final double dz = ( z - cz ) * zScale;
+			for ( int y = Math.max( 0, ( int )cy - r ); y < Math.min( height, ( int )cy + r + 1 ); ++y )
+			{
+				final double dy = y - cy;
+				for ( int x = Math.max( 0, ( int )cx - r ); x < Math.min( width, ( int )cx + r + 1 ); ++x )
+				{
+					final double dx = x - cx;
+					final int j = y * width + x;
+					slice[ j ] = ( float )Math.min( 1.0, slice[ j ] + Math.exp( ( dx * dx + dy * dy + dz * dz ) * s ) );
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Sum of numBlobs Gaussian blobs per channel with random centers and
+	 * sigmas between 2% and 10% of the largest dimension.  Slices are zScale
+	 * times further apart than pixels, i.e. zScale > 1 is an anisotropic
+	 * stack whose blobs are flattened in z.
+	 */
+	final static public ImagePlus blobs(
+			final int width,
+			final int height,
+			final int depth,
+			final double zScale,
+			final int numChannels,
+			final int numBlobs,
+			final long seed )
+	{
+		final Random rnd = new Random( seed );
+		final double size = Math.max( width, Math.max( height, depth * zScale ) );
+		final float[][] slices = new float[ depth * numChannels ][ width * height ];
+		for ( int c = 0; c < numChannels; ++c )
+			for ( int i = 0; i < numBlobs; ++i )
+				addBlob(
+						slices,
+						width,
+						height,
+						numChannels,
+						c,
+						rnd.nextDouble() * width,
+						rnd.nextDouble() * height,
+						rnd.nextDouble() * depth,
+						size * ( 0.02 + 0.08 * rnd.nextDouble() ),
+						zScale );
+		return wrap( zScale == 1 ? "blobs" : "anisotropic blobs", slices, width, height, numChannels );
+	}
+	
+	/**
+	 * Isotropic {@link #blobs(int, int, int, double, int, int, long)}.
+	 */
+	final static public ImagePlus blobs(
+			final int width,
+			final int height,
+			final int depth,
+			final int numChannels,
+			final int numBlobs,
+			final long seed )
+	{
+		return blobs( width, height, depth, 1, numChannels, numBlobs, seed );
+	}
+	
+	/**
+	 * numSpots small spots with a sigma of one voxel at random positions in
+	 * an otherwise empty volume, e.g. labeled nuclei or beads.  Most bricks
+	 * are empty.
+	 */
+	final static public ImagePlus spots(
+			final int width,
+			final int height,
+			final int depth,
+			final int numSpots,
+			final long seed )
+	{
+		final Random rnd = new Random( seed );
+		final float[][] slices = new float[ depth ][ width * height ];
+		for ( int i = 0; i < numSpots; ++i )
+			addBlob( slices, width, height, 1, 0, rnd.nextDouble() * width, rnd.nextDouble() * height, rnd.nextDouble() * depth, 1, 1 );
+		return wrap( "spots", slices, width, height, 1 );
+	}
+	
+	/**
+	 * numShells concentric spherical shells around the center with
+	 * intensities that fall off from the outermost shell inwards, e.g. a
+	 * membrane-stained embryo.  Rays cross several dense layers.
+	 */
+	final static public ImagePlus shells(
+			final int width,
+			final int height,
+			final int depth,
+			final int numShells )
+	{
+		final float[][] slices = new float[ depth ][ width * height ];
+		final double cx = 0.5 * ( width - 1 );
+		final double cy = 0.5 * ( height - 1 );
+		final double cz = 0.5 * ( depth - 1 );
+		final double maxRadius = 0.45 * Math.min( width, Math.min( height, depth ) );
+		final double spacing = maxRadius / numShells;
+		final double thickness = Math.max( 1, 0.25 * spacing );
+		for ( int z = 0; z < depth; ++z )
+		{
+			final float[] slice = slices[ z ];
+			final double dz = z - cz;
+			for ( int y = 0; y < height; ++y )
+			{
+				final double dy = y - cy;
+				for ( int x = 0; x < width; ++x )
+				{
+					final double dx = x - cx;
+					final double r = Math.sqrt( dx * dx + dy * dy + dz * dz );
+					if ( r > maxRadius + thickness )
+						continue;
+					final double shell = Math.max( 1, Math.min( numShells, Math.round( r / spacing ) ) );
+					final double d = ( r - shell * spacing ) / thickness;
+					slice[ y * width + x ] = ( float )( Math.exp( -0.5 * d * d ) * shell / numShells );
+				}
+			}
+		}
+		return wrap( "shells", slices, width, height, 1 );
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume.benchmark;
+
+import ij.ImagePlus;
+
+import java.util.concurrent.TimeUnit;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.Translation3D;
+import net.imglib2.render.volume.ARGBVolume;
+import net.imglib2.render.volume.GrayVolume;
+import net.imglib2.render.volume.RealCompositeARGBDoubleConverter;
+import net.imglib2.render.volume.Renderer;
+import net.imglib2.render.volume.Renderer.ARGBStorage;
+import net.imglib2.render.volume.Renderer.Interpolation;
+import net.imglib2.type.numeric.ARGBDoubleType;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-threaded gray and ARGB rendering of a prepared synthetic volume,
+ * i.e. ray setup, interpolation, sampling and compositing without copying
+ * the stack.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class RenderBenchmark
+{
+	@Param( { "64", "128", "256" } )
+	public int volumeSize;
+	
+	@Param( { "256", "512" } )
+	public int canvasSize;
+	
+	@Param( { "1", "4" } )
+	public long stepSize;
+	
+	@Param( { "NN", "NL", "LC" } )
+	public Interpolation interpolation;
+	
+	@Param( { "AXIS", "OBLIQUE" } )
+	public String orientation;
+	
+	protected GrayVolume grayVolume;
+	protected ARGBVolume argbVolume;
+	protected AffineTransform3D affine;
+	protected float[] floatPixels;
+	protected ArrayImg< ARGBType, IntArray > argbCanvas;
+	
+	final protected ARGBDoubleType bg = new ARGBDoubleType( 1, 0, 0, 0 );
+	
+	@Setup
+	public void setup()
+	{
+		final ImagePlus gray = Phantoms.blobs( volumeSize, volumeSize, volumeSize, 1, 32, 0 );
+		grayVolume = new GrayVolume( gray, interpolation, null );
+		
+		final ImagePlus composite = Phantoms.blobs( volumeSize, volumeSize, volumeSize, 2, 32, 1 );
+		final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble = new RealCompositeARGBDoubleConverter< FloatType >( 2 );
+		composite2ARGBDouble.setARGB( new ARGBDoubleType( 0.2, 1, 0, 1 ), 0 );
+		composite2ARGBDouble.setARGB( new ARGBDoubleType( 0.2, 0, 1, 0 ), 1 );
+		argbVolume = new ARGBVolume( composite, interpolation, composite2ARGBDouble, ARGBStorage.FLOAT, null );
+		
+		affine = new AffineTransform3D();
+		if ( orientation.equals( "OBLIQUE" ) )
+		{
+			affine.rotate( 0, 0.4 );
+			affine.rotate( 1, 0.7 );
+		}
+		
+		floatPixels = new float[ canvasSize * canvasSize ];
+		argbCanvas = ArrayImgs.argbs( canvasSize, canvasSize );
+	}
+	
+	@Benchmark
+	public float[] renderGray()
+	{
+		Renderer.renderGray(
+				grayVolume,
+				floatPixels,
+				null,
+				canvasSize,
+				canvasSize,
+				affine,
+				0,
+				1,
+				new Translation3D(),
+				stepSize,
+				0,
+				10,
+				-0.005,
+				false,
+				0,
+				null,
+				null );
+		return floatPixels;
+	}
+	
+	@Benchmark
+	public ArrayImg< ARGBType, IntArray > renderARGB()
+	{
+		Renderer.renderARGB( argbVolume, argbCanvas, affine, 0, 1, new Translation3D(), stepSize, bg, 0, null, null );
+		return argbCanvas;
+	}
+}
@@ -24,7 +24,7 @@ import net.imglib2.type.numeric.AbstractARGBDoubleType;
  *
  * @author Stephan Saalfeld <saalfeld@mpi-cbg.de>
  */
-public class ARGBDoubleLayers< T extends AbstractARGBDoubleType< T > > implements RowAccumulator< T >
+public class ARGBDoubleLayers< T extends AbstractARGBDoubleType< T > > implements RowAccumulator< T >, BatchAccumulator
 {
 	@Override
 	public void accumulateRow(
@@ -59,4 +59,39 @@ public class ARGBDoubleLayers< T extends AbstractARGBDoubleType< T > > implement
 		}
 		accumulator.set( a, r, g, b );
 	}
+	
+	@Override
+	public int numChannels()
+	{
+		return 4;
+	}
+	
+	@Override
+	public void accumulateBatch(
+			final double[][] accumulators,
+			final float[][] samples,
+			final int numRays,
+			final int numSamples )
+	{
+		final double[] a = accumulators[ 0 ];
+		final double[] r = accumulators[ 1 ];
+		final double[] g = accumulators[ 2 ];
+		final double[] b = accumulators[ 3 ];
+		final float[] as = samples[ 0 ];
+		final float[] rs = samples[ 1 ];
+		final float[] gs = samples[ 2 ];
+		final float[] bs = samples[ 3 ];
+		for ( int s = 0, o = 0; s < numSamples; ++s, o += numRays )
+		{
+			for ( int i = 0; i < numRays; ++i )
+			{
+				final double alpha = as[ o + i ];
+				final double t = 1.0 - alpha;
+				a[ i ] = a[ i ] * t + alpha * alpha;
+				r[ i ] = r[ i ] * t + rs[ o + i ] * alpha;
+				g[ i ] = g[ i ] * t + gs[ o + i ] * alpha;
+				b[ i ] = b[ i ] * t + bs[ o + i ] * alpha;
+			}
+		}
+	}
 }
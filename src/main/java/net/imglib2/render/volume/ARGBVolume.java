@@ -0,0 +1,314 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import ij.ImagePlus;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.render.volume.Renderer.ARGBStorage;
+import net.imglib2.render.volume.Renderer.Interpolation;
+import net.imglib2.type.numeric.NativeARGBDoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+import net.imglib2.view.composite.RealComposite;
+
+/**
+ * A composite stack prepared for ARGB rendering with
+ * {@link Renderer#renderARGB}: the float volume, its ARGB conversion in the
+ * requested storage and the brick index for empty space skipping, optionally
+ * with coarser levels of a resolution pyramid.  Preparing it once and
+ * rendering many cameras saves copying and converting the stack for each
+ * frame.  Read-only after construction, so any number of threads can render
+ * it at the same time.
+ */
+public class ARGBVolume
+{
+	final protected Img< FloatType > img;
+	final protected RandomAccessible< RealComposite< FloatType > > composite;
+	final protected FinalInterval box;
+	final protected Interpolation interpolationMethod;
+	final protected RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble;
+	
+	/* null for Lanczos interpolation which reads beyond the bricks */
+	final protected BrickIndex index;
+	
+	/* exactly one of them is null */
+	final protected Img< NativeARGBDoubleType > argbCopy;
+	final protected PremultipliedARGBSampler sampler;
+	
+	/* next coarser level of the resolution pyramid, null for none */
+	final protected ARGBVolume coarser;
+	
+	/**
+	 * @param impSource 3d image, will be converted to multi-channel float
+	 * @param interpolationMethod
+	 * @param composite2ARGBDouble channel to ARGB conversion
+	 * @param storage of the ARGB copy of the volume, compact storage is premultiplied, Lanczos interpolation always uses {@link ARGBStorage#DOUBLE}
+	 * @param maxBytes memory budget for the bricks converted by {@link ARGBStorage#LAZY}, coarser levels get an eighth of the next finer level
+	 * @param numLevels number of resolution levels including the full resolution, see {@link VolumePyramid}
+	 * @param pyramidDirectory TIFF cache of the coarser levels, null for none, levels are cached in a subdirectory per source
+	 * @param pool for copying, downsampling and converting, null for the calling thread
+	 */
+	public ARGBVolume(
+			final ImagePlus impSource,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final ARGBStorage storage,
+			final long maxBytes,
+			final int numLevels,
+			final String pyramidDirectory,
+			final ForkJoinPool pool )
+	{
+		/* wrap or copy contents */
+		this( Renderer.floatCompositeImage( impSource, pool ), interpolationMethod, composite2ARGBDouble, storage, maxBytes, numLevels, 0, VolumePyramid.directory( pyramidDirectory, impSource ), pool );
+		
+		System.out.println(
+				box.dimension( 0 ) + " " + 
+				box.dimension( 1 ) + " " +
+				box.dimension( 2 ) );
+	}
+	
+	/**
+	 * {@link ARGBStorage#LAZY} converts bricks within
+	 * {@link LazyARGBSampler#defaultMaxBytes()}.
+	 */
+	public ARGBVolume(
+			final ImagePlus impSource,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final ARGBStorage storage,
+			final int numLevels,
+			final String pyramidDirectory,
+			final ForkJoinPool pool )
+	{
+		this( impSource, interpolationMethod, composite2ARGBDouble, storage, LazyARGBSampler.defaultMaxBytes(), numLevels, pyramidDirectory, pool );
+	}
+	
+	/**
+	 * @param impSource 3d image, will be converted to multi-channel float
+	 * @param interpolationMethod
+	 * @param composite2ARGBDouble channel to ARGB conversion
+	 * @param storage of the ARGB copy of the volume, compact storage is premultiplied, Lanczos interpolation always uses {@link ARGBStorage#DOUBLE}
+	 * @param maxBytes memory budget for the bricks converted by {@link ARGBStorage#LAZY}
+	 * @param pool for copying and converting, null for the calling thread
+	 */
+	public ARGBVolume(
+			final ImagePlus impSource,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final ARGBStorage storage,
+			final long maxBytes,
+			final ForkJoinPool pool )
+	{
+		this( impSource, interpolationMethod, composite2ARGBDouble, storage, maxBytes, 1, null, pool );
+	}
+	
+	/**
+	 * {@link ARGBStorage#LAZY} converts bricks within
+	 * {@link LazyARGBSampler#defaultMaxBytes()}.
+	 */
+	public ARGBVolume(
+			final ImagePlus impSource,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final ARGBStorage storage,
+			final ForkJoinPool pool )
+	{
+		this( impSource, interpolationMethod, composite2ARGBDouble, storage, LazyARGBSampler.defaultMaxBytes(), pool );
+	}
+	
+	/**
+	 * @param impSource 3d image or time series, will be converted to multi-channel float
+	 * @param t 0-based frame of the time series
+	 * @param interpolationMethod
+	 * @param composite2ARGBDouble channel to ARGB conversion
+	 * @param storage of the ARGB copy of the volume, compact storage is premultiplied, Lanczos interpolation always uses {@link ARGBStorage#DOUBLE}
+	 * @param maxBytes memory budget for the bricks converted by {@link ARGBStorage#LAZY}
+	 * @param pool for copying and converting, null for the calling thread
+	 */
+	public ARGBVolume(
+			final ImagePlus impSource,
+			final int t,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final ARGBStorage storage,
+			final long maxBytes,
+			final ForkJoinPool pool )
+	{
+		this( Renderer.floatCompositeImage( impSource, t, pool ), interpolationMethod, composite2ARGBDouble, storage, maxBytes, 1, 0, null, pool );
+	}
+	
+	/**
+	 * {@link ARGBStorage#LAZY} converts bricks within
+	 * {@link LazyARGBSampler#defaultMaxBytes()}.
+	 */
+	public ARGBVolume(
+			final ImagePlus impSource,
+			final int t,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final ARGBStorage storage,
+			final ForkJoinPool pool )
+	{
+		this( impSource, t, interpolationMethod, composite2ARGBDouble, storage, LazyARGBSampler.defaultMaxBytes(), pool );
+	}
+	
+	protected ARGBVolume(
+			final PlanarImg< FloatType, FloatArray > img,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final ARGBStorage storage,
+			final long maxBytes,
+			final int numLevels,
+			final int level,
+			final String pyramidDirectory,
+			final ForkJoinPool pool )
+	{
+		this.img = img;
+		this.interpolationMethod = interpolationMethod;
+		this.composite2ARGBDouble = composite2ARGBDouble;
+		
+		/* collapse composite dimension */
+		final RandomAccessibleInterval< FloatType > xyzc = Views.permute( img, 2, 3 );
+		composite = Views.collapseReal( Views.extendZero( xyzc ), ( int )xyzc.dimension( 3 ) );
+		
+		box = new FinalInterval(
+				xyzc.dimension( 0 ),
+				xyzc.dimension( 1 ),
+				xyzc.dimension( 2 ) );
+		
+		final RenderStats stats = RenderStats.current();
+		
+		/* empty space skipping, Lanczos reads beyond the bricks */
+		final long t0 = System.nanoTime();
+		if ( interpolationMethod == Interpolation.LC )
+			index = null;
+		else
+		{
+			final ArrayList< RandomAccessibleInterval< FloatType > > channels = new ArrayList< RandomAccessibleInterval< FloatType > >();
+			for ( int c = 0; c < img.dimension( 2 ); ++c )
+				channels.add( Views.hyperSlice( img, 2, c ) );
+			index = new BrickIndex( channels, Renderer.brickSize, pool );
+		}
+		
+		final long t1 = System.nanoTime();
+		final long numVoxels = box.dimension( 0 ) * box.dimension( 1 ) * box.dimension( 2 );
+		final long bytesPerVoxel;
+		
+		/* compact premultiplied storage has no Lanczos interpolation */
+		if ( storage == ARGBStorage.DOUBLE || interpolationMethod == Interpolation.LC )
+		{
+			argbCopy = Renderer.convert( composite, box, composite2ARGBDouble );
+			sampler = null;
+			bytesPerVoxel = 32;
+		}
+		else
+		{
+			final int w = ( int )box.dimension( 0 );
+			final int h = ( int )box.dimension( 1 );
+			final int d = ( int )box.dimension( 2 );
+			final boolean linear = interpolationMethod == Interpolation.NL;
+			switch ( storage )
+			{
+			case FLOAT:
+				sampler = new FloatRGBASampler( w, h, d, linear );
+				bytesPerVoxel = 16;
+				break;
+			case BYTE:
+				sampler = new ByteRGBASampler( w, h, d, linear );
+				bytesPerVoxel = 4;
+				break;
+			default:
+				/* converts on demand while rendering */
+				sampler = new LazyARGBSampler( w, h, d, linear, maxBytes );
+				bytesPerVoxel = 0;
+			}
+			sampler.convert( composite, composite2ARGBDouble, pool );
+			argbCopy = null;
+		}
+		
+		if ( stats != null )
+		{
+			stats.phase( RenderStats.Phase.INDEX, t1 - t0 );
+			stats.phase( RenderStats.Phase.CONVERT, System.nanoTime() - t1 );
+			stats.allocated( bytesPerVoxel * numVoxels );
+		}
+		
+		if ( numLevels > 1 && Math.max( box.dimension( 0 ), Math.max( box.dimension( 1 ), box.dimension( 2 ) ) ) > 1 )
+			coarser = new ARGBVolume(
+					VolumePyramid.coarser( img, VolumePyramid.file( pyramidDirectory, level + 1 ), pool ),
+					interpolationMethod,
+					composite2ARGBDouble,
+					storage,
+					maxBytes / 8,
+					numLevels - 1,
+					level + 1,
+					pyramidDirectory,
+					pool );
+		else
+			coarser = null;
+	}
+	
+	protected ARGBVolume( final ARGBVolume volume, final Interpolation interpolationMethod )
+	{
+		this.interpolationMethod = interpolationMethod;
+		img = volume.img;
+		composite = volume.composite;
+		box = volume.box;
+		composite2ARGBDouble = volume.composite2ARGBDouble;
+		index = volume.index;
+		argbCopy = volume.argbCopy;
+		sampler = volume.sampler;
+		coarser = volume.coarser == null ? null : new ARGBVolume( volume.coarser, interpolationMethod );
+	}
+	
+	/**
+	 * This volume with nearest neighbor interpolation, sharing all data.
+	 */
+	public ARGBVolume nearestNeighbor()
+	{
+		if ( interpolationMethod == Interpolation.NN )
+			return this;
+		return new ARGBVolume( this, Interpolation.NN );
+	}
+	
+	public int numLevels()
+	{
+		return coarser == null ? 1 : coarser.numLevels() + 1;
+	}
+	
+	/**
+	 * Level l of the resolution pyramid, 0 is this volume.
+	 */
+	public ARGBVolume level( final int l )
+	{
+		return l == 0 ? this : coarser.level( l - 1 );
+	}
+	
+	public FinalInterval box()
+	{
+		return box;
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Back-to-front linear intensity to alpha transfer for rays with adaptive
+ * step size, see {@link AdaptiveStepRandomAccessible}.  Each sample is
+ * weighted by the number of steps k of the move that follows it, with the
+ * opacity corrected to
+ * 
+ * alpha' = 1 - (1 - alpha)^k
+ * 
+ * which composites exactly like k equal samples.  On a source with
+ * uniform steps, this is {@link AlphaIntensityLayers}.
+ * 
+ * A range of intensities is smooth if the opacity varies by at most
+ * tolerance and the intensity of visible samples varies relatively by at
+ * most tolerance.  The error of one combined sample is therefore bounded
+ * by maxSteps * tolerance.
+ * 
+ * The step counts are known only while moving along the ray, so this
+ * accumulator composites rows only.  Packets of
+ * {@link Renderer#renderBatched} hold samples without their step counts,
+ * {@link #accumulateBatch} therefore throws instead of weighting every
+ * sample by 1.
+ */
+public class AdaptiveAlphaIntensityLayers< T extends RealType< T > > extends AlphaIntensityLayers< T > implements VariationTest
+{
+	final protected double tolerance;
+	final protected long maxSteps;
+	
+	/**
+	 * @param scale scale factor for linear intensity to alpha transfer
+	 * @param offset offset for linear intensity to alpha transfer
+	 * @param tolerance error bound for opacity and relative intensity
+	 * @param maxSteps maximum number of steps combined into one sample
+	 */
+	public AdaptiveAlphaIntensityLayers(
+			final double scale,
+			final double offset,
+			final double tolerance,
+			final long maxSteps )
+	{
+		super( scale, offset );
+		this.tolerance = tolerance;
+		this.maxSteps = maxSteps;
+	}
+	
+	public AdaptiveAlphaIntensityLayers( final double scale, final double offset, final double tolerance )
+	{
+		this( scale, offset, tolerance, 16 );
+	}
+	
+	public long maxSteps()
+	{
+		return maxSteps;
+	}
+	
+	/**
+	 * alpha is monotonous, so opacity and premultiplied intensity vary
+	 * most between the ends of the range.
+	 */
+	@Override
+	public boolean isSmooth( final double[] min, final double[] max )
+	{
+		final double alphaMin = alpha( min[ 0 ] );
+		final double alphaMax = alpha( max[ 0 ] );
+		if ( alphaMin == 0 && alphaMax == 0 )
+			return true;
+		
+		final double magnitude = Math.max( Math.abs( min[ 0 ] ), Math.abs( max[ 0 ] ) );
+		return
+				Math.abs( alphaMax - alphaMin ) <= tolerance &&
+				( max[ 0 ] - min[ 0 ] ) <= tolerance * magnitude;
+	}
+	
+	@Override
+	public void accumulateRow(
+			final T accumulator,
+			final RandomAccess< T > access,
+			final long min,
+			final long max,
+			final long step,
+			final int d )
+	{
+		access.setPosition( max, d );
+		double a = accumulator.getRealDouble();
+		long z = max;
+		while ( z >= min )
+		{
+			final double b = access.get().getRealDouble();
+			access.move( -step, d );
+			final long next = access.getLongPosition( d );
+			
+			/* only samples down to min count */
+			final long k = Math.min( ( z - next ) / step, ( z - min ) / step + 1 );
+			final double alpha = k == 1 ? alpha( b ) : 1.0 - Math.pow( 1.0 - alpha( b ), k );
+			a *= 1.0 - alpha;
+			a += b * alpha;
+			z = next;
+		}
+		accumulator.setReal( a );
+	}
+	
+	/**
+	 * Not supported, render rows with {@link #accumulateRow}.
+	 * 
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void accumulateBatch(
+			final double[][] accumulators,
+			final float[][] samples,
+			final int numRays,
+			final int numSamples )
+	{
+		throw new UnsupportedOperationException( "Adaptive steps cannot be composited in packets, render rows instead." );
+	}
+}
@@ -0,0 +1,315 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.Translation3D;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.AbstractARGBDoubleType;
+
+/**
+ * ARGB rendering of a prepared {@link ARGBVolume} with image-space adaptive
+ * subsampling.  Rays are cast through the corners of blocks of
+ * initialSubsampling x initialSubsampling pixels first.  A block whose
+ * corners differ by at most threshold in every channel is filled by
+ * bilinear interpolation of its corners, all other blocks are split into
+ * four blocks of half the size whose new corners are rendered next.  Blocks
+ * of one pixel are rendered completely.  Corners on the right and bottom
+ * boundary are clamped to the last column and row of the canvas.
+ * 
+ * The rays of each refinement level are cast in one pass, so the setup
+ * cost is paid once per level.  An instance reuses its buffers for every
+ * frame and must not render concurrently.
+ */
+public class AdaptiveRenderer< T extends AbstractARGBDoubleType< T > >
+{
+	final protected ARGBVolume volume;
+	final protected int[] argbPixels;
+	final protected int width, height;
+	final protected double distance, f;
+	final protected Translation3D offset;
+	final protected long stepSize;
+	final protected int initialSubsampling;
+	final protected int threshold;
+	final protected T bg;
+	final protected double minTransmittance;
+	final protected Jitter jitter;
+	final protected ForkJoinPool pool;
+	
+	/* pixels that are rendered or queued for rendering in the current frame */
+	final protected boolean[] cast;
+	
+	/* pixels queued for rendering */
+	protected long[] xs = new long[ 1024 ], ys = new long[ 1024 ];
+	protected int numQueued;
+	
+	/* transfer function evaluated on the brick index per pyramid level, valid for one frame */
+	protected boolean[][][] transparentLevels;
+	
+	/**
+	 * @param volume
+	 * @param argbCanvas target canvas
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param initialSubsampling edge length of the initial blocks, rounded down to a power of 2
+	 * @param threshold maximum difference per channel (0-255) of the corners of an interpolated block
+	 * @param bg background color
+	 * @param minTransmittance composite front-to-back and terminate rays once their transmittance drops below this value, 0 composites back-to-front
+	 * @param jitter offset the start of each ray by a hashed fraction of stepSize and average numSamples stratified rays per pixel in one pass, null for none
+	 * @param pool render in parallel on this pool, null renders in the calling thread
+	 */
+	public AdaptiveRenderer(
+			final ARGBVolume volume,
+			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final int initialSubsampling,
+			final int threshold,
+			final T bg,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ForkJoinPool pool )
+	{
+		this.volume = volume;
+		argbPixels = argbCanvas.update( null ).getCurrentStorageArray();
+		width = ( int )argbCanvas.dimension( 0 );
+		height = ( int )argbCanvas.dimension( 1 );
+		this.distance = distance;
+		this.f = f;
+		this.offset = offset;
+		this.stepSize = stepSize;
+		this.initialSubsampling = Integer.highestOneBit( Math.max( 1, initialSubsampling ) );
+		this.threshold = threshold;
+		this.bg = bg;
+		this.minTransmittance = minTransmittance;
+		this.jitter = jitter;
+		this.pool = pool;
+		cast = new boolean[ width * height ];
+	}
+	
+	/**
+	 * Initial blocks of 8 x 8 pixels, threshold 4.
+	 */
+	public AdaptiveRenderer(
+			final ARGBVolume volume,
+			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final ForkJoinPool pool )
+	{
+		this( volume, argbCanvas, distance, f, offset, stepSize, 8, 4, bg, 0, null, pool );
+	}
+	
+	/**
+	 * Render orientation in the calling thread.
+	 * 
+	 * @return the number of pixels whose rays were cast
+	 */
+	public long render( final AffineTransform3D orientation )
+	{
+		Arrays.fill( cast, false );
+		transparentLevels = new boolean[ volume.numLevels() ][][];
+		long numCast = 0;
+		
+		/* top left corners of the blocks of the current level */
+		int s = initialSubsampling;
+		int[] blocks = new int[ ( ( width + s - 1 ) / s ) * ( ( height + s - 1 ) / s ) ];
+		int numBlocks = 0;
+		for ( int y = 0; y < height; y += s )
+			for ( int x = 0; x < width; x += s )
+			{
+				blocks[ numBlocks++ ] = y * width + x;
+				queueCorners( x, y, s );
+			}
+		
+		while ( numBlocks > 0 )
+		{
+			numCast += renderQueued( orientation );
+			
+			/* interpolate smooth blocks, split the others */
+			final int h = s / 2;
+			final int[] children = new int[ 4 * numBlocks ];
+			int numChildren = 0;
+			for ( int i = 0; i < numBlocks; ++i )
+			{
+				final int x = blocks[ i ] % width;
+				final int y = blocks[ i ] / width;
+				final int x1 = Math.min( x + s, width - 1 );
+				final int y1 = Math.min( y + s, height - 1 );
+				
+				/* all pixels are corners */
+				if ( x1 - x <= 1 && y1 - y <= 1 )
+					continue;
+				
+				if ( isSmooth( x, y, x1, y1 ) )
+					interpolate( x, y, x1, y1 );
+				else
+				{
+					for ( int cy = y; cy < y1 || cy == y; cy += h )
+						for ( int cx = x; cx < x1 || cx == x; cx += h )
+						{
+							children[ numChildren++ ] = cy * width + cx;
+							queueCorners( cx, cy, h );
+						}
+				}
+			}
+			
+			blocks = children;
+			numBlocks = numChildren;
+			s = h;
+		}
+		
+		return numCast;
+	}
+	
+	/**
+	 * Queue the corners of the s x s block at (x, y) that were not cast yet.
+	 */
+	final protected void queueCorners( final int x, final int y, final int s )
+	{
+		final int x1 = Math.min( x + s, width - 1 );
+		final int y1 = Math.min( y + s, height - 1 );
+		queue( x, y );
+		queue( x1, y );
+		queue( x, y1 );
+		queue( x1, y1 );
+	}
+	
+	final protected void queue( final int x, final int y )
+	{
+		final int i = y * width + x;
+		if ( cast[ i ] )
+			return;
+		cast[ i ] = true;
+		if ( numQueued == xs.length )
+		{
+			xs = Arrays.copyOf( xs, 2 * numQueued );
+			ys = Arrays.copyOf( ys, 2 * numQueued );
+		}
+		xs[ numQueued ] = x;
+		ys[ numQueued ] = y;
+		++numQueued;
+	}
+	
+	/**
+	 * Cast the rays of all queued pixels in one pass.
+	 * 
+	 * @return the number of pixels rendered
+	 */
+	protected int renderQueued( final AffineTransform3D orientation )
+	{
+		final int n = numQueued;
+		if ( n == 0 )
+			return 0;
+		
+		final int[] samples = new int[ n ];
+		Renderer.renderARGB(
+				volume,
+				ArrayImgs.argbs( samples, n, 1 ),
+				width,
+				height,
+				Arrays.copyOf( xs, n ),
+				Arrays.copyOf( ys, n ),
+				orientation,
+				distance,
+				f,
+				offset,
+				stepSize,
+				bg,
+				minTransmittance,
+				jitter,
+				transparentLevels,
+				pool );
+		
+		for ( int k = 0; k < n; ++k )
+			argbPixels[ ( int )ys[ k ] * width + ( int )xs[ k ] ] = samples[ k ];
+		
+		numQueued = 0;
+		return n;
+	}
+	
+	/**
+	 * True if the four corners of the block differ by at most threshold in
+	 * every channel.
+	 */
+	final protected boolean isSmooth( final int x, final int y, final int x1, final int y1 )
+	{
+		final int c00 = argbPixels[ y * width + x ];
+		final int c10 = argbPixels[ y * width + x1 ];
+		final int c01 = argbPixels[ y1 * width + x ];
+		final int c11 = argbPixels[ y1 * width + x1 ];
+		for ( int shift = 0; shift < 32; shift += 8 )
+		{
+			final int v00 = ( c00 >>> shift ) & 0xff;
+			final int v10 = ( c10 >>> shift ) & 0xff;
+			final int v01 = ( c01 >>> shift ) & 0xff;
+			final int v11 = ( c11 >>> shift ) & 0xff;
+			final int min = Math.min( Math.min( v00, v10 ), Math.min( v01, v11 ) );
+			final int max = Math.max( Math.max( v00, v10 ), Math.max( v01, v11 ) );
+			if ( max - min > threshold )
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Fill all pixels of the block that were not cast by bilinear
+	 * interpolation of its corners.
+	 */
+	final protected void interpolate( final int x, final int y, final int x1, final int y1 )
+	{
+		final int c00 = argbPixels[ y * width + x ];
+		final int c10 = argbPixels[ y * width + x1 ];
+		final int c01 = argbPixels[ y1 * width + x ];
+		final int c11 = argbPixels[ y1 * width + x1 ];
+		final double w = Math.max( 1, x1 - x );
+		final double h = Math.max( 1, y1 - y );
+		for ( int py = y; py <= y1; ++py )
+		{
+			final double b = ( py - y ) / h;
+			final int row = py * width;
+			for ( int px = x; px <= x1; ++px )
+			{
+				if ( cast[ row + px ] )
+					continue;
+				
+				final double a = ( px - x ) / w;
+				int argb = 0;
+				for ( int shift = 0; shift < 32; shift += 8 )
+				{
+					final double v0 = ( ( c00 >>> shift ) & 0xff ) * ( 1.0 - a ) + ( ( c10 >>> shift ) & 0xff ) * a;
+					final double v1 = ( ( c01 >>> shift ) & 0xff ) * ( 1.0 - a ) + ( ( c11 >>> shift ) & 0xff ) * a;
+					argb |= ( ( int )Math.round( v0 * ( 1.0 - b ) + v1 * b ) & 0xff ) << shift;
+				}
+				argbPixels[ row + px ] = argb;
+			}
+		}
+	}
+}
@@ -0,0 +1,264 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.Interval;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+
+/**
+ * Wraps a transformed source in canvas coordinates such that moving along
+ * the ray dimension (2) from a sample in a smooth brick of a
+ * {@link BrickIndex} jumps to the first sample beyond that brick, at most
+ * maxSteps steps.  The sample taken before the jump stands in for all
+ * samples that were jumped over, so the length of each move along the ray
+ * is the weight of the previous sample, see
+ * {@link AdaptiveAlphaIntensityLayers}.  Samples in bricks that are not
+ * smooth are taken at the requested step.
+ * 
+ * Positions outside the bricks read only background which is constant,
+ * rays jump from there to where they enter the bricks.
+ * 
+ * Only valid for nearest neighbor and n-linear interpolation.
+ */
+public class AdaptiveStepRandomAccessible< T > implements RandomAccessible< T >
+{
+	/* tolerance for sample positions and jumps close to brick boundaries */
+	final static protected double eps = 1e-6;
+	
+	final protected RandomAccessible< T > source;
+	final protected ProjectiveRays rays;
+	final protected BrickIndex index;
+	final protected boolean[][] smooth;
+	final protected long maxSteps;
+	
+	/* sample positions p with min <= p < max are covered by bricks */
+	final protected double[] min = new double[]{ -1, -1, -1 };
+	final protected double[] max = new double[ 3 ];
+	
+	/**
+	 * @param source transformed source in canvas coordinates
+	 * @param rays the rays of the canvas pixels in source coordinates
+	 * @param index min/max index of the untransformed source
+	 * @param variation the current transfer function
+	 * @param maxSteps maximum number of steps combined into one sample
+	 */
+	public AdaptiveStepRandomAccessible(
+			final RandomAccessible< T > source,
+			final ProjectiveRays rays,
+			final BrickIndex index,
+			final VariationTest variation,
+			final long maxSteps )
+	{
+		this( source, rays, index, index.smoothBricks( variation ), maxSteps );
+	}
+	
+	/**
+	 * Share the evaluated transfer function between wrappers of the same
+	 * index, e.g. for all jittered samples of a frame.
+	 * 
+	 * @param source transformed source in canvas coordinates
+	 * @param rays the rays of the canvas pixels in source coordinates
+	 * @param index min/max index of the untransformed source
+	 * @param smooth {@link BrickIndex#smoothBricks(VariationTest)} of the current transfer function
+	 * @param maxSteps maximum number of steps combined into one sample
+	 */
+	public AdaptiveStepRandomAccessible(
+			final RandomAccessible< T > source,
+			final ProjectiveRays rays,
+			final BrickIndex index,
+			final boolean[][] smooth,
+			final long maxSteps )
+	{
+		this.source = source;
+		this.rays = rays;
+		this.index = index;
+		this.smooth = smooth;
+		this.maxSteps = maxSteps;
+		for ( int d = 0; d < 3; ++d )
+			max[ d ] = index.dimension( d );
+	}
+	
+	@Override
+	public int numDimensions()
+	{
+		return source.numDimensions();
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess()
+	{
+		return new AdaptiveRandomAccess();
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess( final Interval interval )
+	{
+		return randomAccess();
+	}
+	
+	public class AdaptiveRandomAccess extends Point implements RandomAccess< T >
+	{
+		final protected RandomAccess< T > sourceAccess;
+		
+		/* current ray */
+		protected long rayX = Long.MIN_VALUE, rayY = Long.MIN_VALUE;
+		final protected double[] origin = new double[ 3 ];
+		final protected double[] direction = new double[ 3 ];
+		
+		final protected double[] p = new double[ 3 ];
+		final protected long[] f = new long[ 3 ];
+		final protected double[] brickMin = new double[ 3 ];
+		final protected double[] brickMax = new double[ 3 ];
+		final protected double[] zRange = new double[ 2 ];
+		
+		public AdaptiveRandomAccess()
+		{
+			super( source.numDimensions() );
+			sourceAccess = source.randomAccess();
+		}
+		
+		protected void updateRay()
+		{
+			if ( position[ 0 ] != rayX || position[ 1 ] != rayY )
+			{
+				rayX = position[ 0 ];
+				rayY = position[ 1 ];
+				rays.origin( rayX, rayY, origin );
+				rays.direction( rayX, rayY, direction );
+			}
+		}
+		
+		/**
+		 * Number of steps of size step from z to the first position at or
+		 * beyond zExit, at least one.
+		 */
+		final protected long steps( final double z, final double zExit, final long step )
+		{
+			return Math.max( 1, ( long )Math.ceil( ( zExit - z ) / step - eps ) );
+		}
+		
+		/**
+		 * Number of steps that the sample at the current position stands
+		 * for.
+		 * 
+		 * @param step signed step size
+		 */
+		protected long stride( final long step )
+		{
+			updateRay();
+			final long z = position[ 2 ];
+			for ( int d = 0; d < 3; ++d )
+				p[ d ] = origin[ d ] + z * direction[ d ];
+			
+			if (
+					p[ 0 ] < min[ 0 ] - eps || p[ 0 ] >= max[ 0 ] + eps ||
+					p[ 1 ] < min[ 1 ] - eps || p[ 1 ] >= max[ 1 ] + eps ||
+					p[ 2 ] < min[ 2 ] - eps || p[ 2 ] >= max[ 2 ] + eps )
+			{
+				/* constant background up to where the ray enters the bricks or beyond any reasonable range */
+				final boolean hits = ProjectiveRays.intersect( origin, direction, min, max, zRange );
+				if ( hits && step > 0 && z < zRange[ 0 ] )
+					return steps( z, zRange[ 0 ], step );
+				else if ( hits && step < 0 && z > zRange[ 1 ] )
+					return steps( -z, -zRange[ 1 ], -step );
+				else
+					return maxSteps;
+			}
+			
+			/* samples on a voxel or volume boundary could read from either side */
+			for ( int d = 0; d < 3; ++d )
+			{
+				f[ d ] = ( long )Math.floor( p[ d ] - eps );
+				if ( f[ d ] != ( long )Math.floor( p[ d ] + eps ) || f[ d ] < min[ d ] || f[ d ] >= max[ d ] )
+					return 1;
+			}
+			
+			/* coarsest smooth brick containing the sample */
+			int level = -1;
+			for ( int l = 0; l < smooth.length; ++l )
+			{
+				if ( smooth[ l ][ brick( l, f ) ] )
+					level = l;
+				else
+					break;
+			}
+			if ( level < 0 )
+				return 1;
+			
+			final long s = index.brickSize( level );
+			for ( int d = 0; d < 3; ++d )
+			{
+				final long b = Math.max( 0, f[ d ] ) / s;
+				brickMin[ d ] = b == 0 ? -1 : b * s;
+				brickMax[ d ] = Math.min( max[ d ], ( b + 1 ) * s );
+			}
+			
+			ProjectiveRays.intersect( origin, direction, brickMin, brickMax, zRange );
+			if ( step > 0 )
+				return steps( z, zRange[ 1 ], step );
+			else
+				return steps( -z, -zRange[ 0 ], -step );
+		}
+		
+		final protected int brick( final int l, final long[] f )
+		{
+			final long s = index.brickSize( l );
+			final long bx = Math.max( 0, f[ 0 ] ) / s;
+			final long by = Math.max( 0, f[ 1 ] ) / s;
+			final long bz = Math.max( 0, f[ 2 ] ) / s;
+			return ( int )( ( bz * index.numBricks( l, 1 ) + by ) * index.numBricks( l, 0 ) + bx );
+		}
+		
+		@Override
+		public void move( final long distance, final int d )
+		{
+			if ( d == 2 && distance != 0 )
+				position[ d ] += Math.min( maxSteps, stride( distance ) ) * distance;
+			else
+				position[ d ] += distance;
+		}
+		
+		@Override
+		public void move( final int distance, final int d )
+		{
+			move( ( long )distance, d );
+		}
+		
+		@Override
+		public T get()
+		{
+			sourceAccess.setPosition( position );
+			return sourceAccess.get();
+		}
+
+		@Override
+		public AdaptiveRandomAccess copy()
+		{
+			final AdaptiveRandomAccess copy = new AdaptiveRandomAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+
+		@Override
+		public AdaptiveRandomAccess copyRandomAccess()
+		{
+			return copy();
+		}
+	}
+}
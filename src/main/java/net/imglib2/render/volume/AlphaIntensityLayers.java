@@ -24,7 +24,7 @@ import net.imglib2.type.numeric.RealType;
  *
  * @author Stephan Saalfeld <saalfeld@mpi-cbg.de>
  */
-public class AlphaIntensityLayers< T extends RealType< T > > implements RowAccumulator< T >
+public class AlphaIntensityLayers< T extends RealType< T > > implements RowAccumulator< T >, BatchAccumulator, TransparencyTest
 {
 	final protected double scale, offset;
 	
@@ -44,6 +44,16 @@ public class AlphaIntensityLayers< T extends RealType< T > > implements RowAccum
 		return Math.max( 0, Math.min( 1, ( intensity + offset ) * scale ) );
 	}
 	
+	/**
+	 * alpha is linear between its clamps, so a range is transparent if both
+	 * ends are.
+	 */
+	@Override
+	public boolean isTransparent( final double[] min, final double[] max )
+	{
+		return alpha( min[ 0 ] ) == 0 && alpha( max[ 0 ] ) == 0;
+	}
+	
 	@Override
 	public void accumulateRow(
 			final T accumulator,
@@ -68,4 +78,30 @@ public class AlphaIntensityLayers< T extends RealType< T > > implements RowAccum
 		}
 		accumulator.setReal( a );
 	}
+	
+	@Override
+	public int numChannels()
+	{
+		return 1;
+	}
+	
+	@Override
+	public void accumulateBatch(
+			final double[][] accumulators,
+			final float[][] samples,
+			final int numRays,
+			final int numSamples )
+	{
+		final double[] a = accumulators[ 0 ];
+		final float[] intensities = samples[ 0 ];
+		for ( int s = 0, o = 0; s < numSamples; ++s, o += numRays )
+		{
+			for ( int r = 0; r < numRays; ++r )
+			{
+				final double b = intensities[ o + r ];
+				final double alpha = Math.max( 0, Math.min( 1, ( b + offset ) * scale ) );
+				a[ r ] = a[ r ] * ( 1.0 - alpha ) + b * alpha;
+			}
+		}
+	}
 }
@@ -0,0 +1,230 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import ij.ImagePlus;
+import ij.process.ColorProcessor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.Translation3D;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.AbstractARGBDoubleType;
+
+/**
+ * Renders an animation of a prepared {@link ARGBVolume} along a
+ * {@link CameraPath}.  Several frames are rendered concurrently, each with
+ * its tiles on a shared fork-join pool, and finished frames are passed to a
+ * {@link FrameWriter} on a separate thread.  At most maxPendingFrames frames
+ * are rendered or waiting to be written at any time, so memory does not
+ * grow with the number of frames.
+ */
+public class Animation< T extends AbstractARGBDoubleType< T > >
+{
+	final protected ARGBVolume volume;
+	final protected int width, height;
+	final protected AffineTransform3D orientation;
+	final protected CameraPath path;
+	final protected int numFrames;
+	final protected double distance, f;
+	final protected Translation3D offset;
+	final protected long stepSize;
+	final protected T bg;
+	final protected double minTransmittance;
+	final protected Jitter jitter;
+	
+	/**
+	 * @param volume
+	 * @param width width of the frames
+	 * @param height height of the frames
+	 * @param orientation initial transformation assuming that the 3d volume is centered
+	 * @param path camera path, frame i is rendered at animation i / numFrames
+	 * @param numFrames
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background color
+	 * @param minTransmittance composite front-to-back and terminate rays once their transmittance drops below this value, 0 composites back-to-front
+	 * @param jitter ray start jitter, null for none
+	 */
+	public Animation(
+			final ARGBVolume volume,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final CameraPath path,
+			final int numFrames,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final double minTransmittance,
+			final Jitter jitter )
+	{
+		this.volume = volume;
+		this.width = width;
+		this.height = height;
+		this.orientation = orientation;
+		this.path = path;
+		this.numFrames = numFrames;
+		this.distance = distance;
+		this.f = f;
+		this.offset = offset;
+		this.stepSize = stepSize;
+		this.bg = bg;
+		this.minTransmittance = minTransmittance;
+		this.jitter = jitter;
+	}
+	
+	public Animation(
+			final ARGBVolume volume,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final CameraPath path,
+			final int numFrames,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final double minTransmittance )
+	{
+		this( volume, width, height, orientation, path, numFrames, distance, f, offset, stepSize, bg, minTransmittance, null );
+	}
+	
+	/**
+	 * Camera of frame i.
+	 */
+	public AffineTransform3D camera( final int i )
+	{
+		final AffineTransform3D affine = orientation.copy();
+		path.append( affine, ( double )i / numFrames );
+		return affine;
+	}
+	
+	/**
+	 * Render frame i.
+	 * 
+	 * @param pool render tiles in parallel on this pool, null renders in the calling thread
+	 */
+	public ImagePlus renderFrame( final int i, final ForkJoinPool pool )
+	{
+		final int[] argbPixels = new int[ width * height ];
+		final ArrayImg< ARGBType, IntArray > argbCanvas = ArrayImgs.argbs( argbPixels, width, height );
+		Renderer.renderARGB( volume, argbCanvas, camera( i ), distance, f, offset, stepSize, bg, minTransmittance, jitter, pool );
+		return new ImagePlus( String.format( "frame %05d", i ), new ColorProcessor( width, height, argbPixels ) );
+	}
+	
+	/**
+	 * Render all frames and pass them to writer.
+	 * 
+	 * @param writer
+	 * @param concurrentFrames number of frames rendered at the same time
+	 * @param maxPendingFrames maximum number of frames rendered or waiting to
+	 * 		be written, at least concurrentFrames
+	 * @param pool render tiles in parallel on this pool, null renders each frame in one thread
+	 * 
+	 * @return throughput in frames per second
+	 */
+	public double render(
+			final FrameWriter writer,
+			final int concurrentFrames,
+			final int maxPendingFrames,
+			final ForkJoinPool pool ) throws InterruptedException
+	{
+		final long t0 = System.currentTimeMillis();
+		
+		final Semaphore pending = new Semaphore( Math.max( concurrentFrames, maxPendingFrames ) );
+		final AtomicReference< Throwable > failure = new AtomicReference< Throwable >();
+		final ExecutorService renderers = Executors.newFixedThreadPool( concurrentFrames );
+		final ExecutorService writers = Executors.newSingleThreadExecutor();
+		
+		try
+		{
+			for ( int i = 0; i < numFrames && failure.get() == null; ++i )
+			{
+				pending.acquire();
+				final int frame = i;
+				renderers.execute(
+						new Runnable()
+						{
+							@Override
+							public void run()
+							{
+								try
+								{
+									final ImagePlus imp = renderFrame( frame, pool );
+									writers.execute(
+											new Runnable()
+											{
+												@Override
+												public void run()
+												{
+													try
+													{
+														writer.write( frame, imp );
+													}
+													catch ( final Throwable e )
+													{
+														failure.compareAndSet( null, e );
+													}
+													finally
+													{
+														pending.release();
+													}
+												}
+											} );
+								}
+								catch ( final Throwable e )
+								{
+									failure.compareAndSet( null, e );
+									pending.release();
+								}
+							}
+						} );
+			}
+		}
+		finally
+		{
+			renderers.shutdown();
+			renderers.awaitTermination( Long.MAX_VALUE, TimeUnit.DAYS );
+			writers.shutdown();
+			writers.awaitTermination( Long.MAX_VALUE, TimeUnit.DAYS );
+		}
+		
+		if ( failure.get() != null )
+			throw new RuntimeException( "Rendering the animation failed.", failure.get() );
+		
+		final double seconds = ( System.currentTimeMillis() - t0 ) / 1000.0;
+		final double fps = numFrames / seconds;
+		System.out.println( String.format( "Rendered %d frames in %.1fs, %.2f fps", numFrames, seconds, fps ) );
+		
+		return fps;
+	}
+}
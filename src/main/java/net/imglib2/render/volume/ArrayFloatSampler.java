@@ -0,0 +1,66 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * {@link FloatSampler} reading the float[] of an {@link ArrayImg}.
+ */
+public class ArrayFloatSampler extends FloatSampler
+{
+	final protected float[] data;
+	final protected int widthHeight;
+	
+	public ArrayFloatSampler( final float[] data, final int width, final int height, final int depth, final boolean linear )
+	{
+		super( width, height, depth, linear );
+		this.data = data;
+		widthHeight = width * height;
+	}
+	
+	public ArrayFloatSampler( final ArrayImg< FloatType, FloatArray > img, final boolean linear )
+	{
+		this(
+				img.update( null ).getCurrentStorageArray(),
+				( int )img.dimension( 0 ),
+				( int )img.dimension( 1 ),
+				( int )img.dimension( 2 ),
+				linear );
+	}
+	
+	@Override
+	final protected float voxel( final int x, final int y, final int z )
+	{
+		return data[ z * widthHeight + y * width + x ];
+	}
+	
+	@Override
+	final protected double interior( final int x0, final int y0, final int z0, final double fx, final double fy, final double fz )
+	{
+		final int i000 = z0 * widthHeight + y0 * width + x0;
+		final int i010 = i000 + width;
+		final int i001 = i000 + widthHeight;
+		final int i011 = i001 + width;
+		return lerp(
+				data[ i000 ], data[ i000 + 1 ], data[ i010 ], data[ i010 + 1 ],
+				data[ i001 ], data[ i001 + 1 ], data[ i011 ], data[ i011 + 1 ],
+				fx, fy, fz );
+	}
+}
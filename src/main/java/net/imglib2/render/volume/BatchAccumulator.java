@@ -0,0 +1,44 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+/**
+ * Composites the samples of a packet of rays at once.  Samples are passed
+ * as primitive arrays with one array per channel, sample s of ray r at
+ * s * numRays + r, s = 0 being the farthest sample.  Rays are independent,
+ * so the inner loop over the rays of a packet has no dependencies and can
+ * be vectorized by the JIT.  Samples that a ray does not cover must be
+ * transparent, e.g. 0.
+ */
+public interface BatchAccumulator
+{
+	/**
+	 * @return number of channels per sample, 1 for intensity, 4 for a, r, g, b
+	 */
+	public int numChannels();
+	
+	/**
+	 * Composite numSamples samples of numRays rays back to front onto
+	 * accumulators.
+	 * 
+	 * @param accumulators per channel accumulator of each ray
+	 * @param samples per channel samples
+	 * @param numRays
+	 * @param numSamples
+	 */
+	public void accumulateBatch( final double[][] accumulators, final float[][] samples, final int numRays, final int numSamples );
+}
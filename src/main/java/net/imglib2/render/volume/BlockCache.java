@@ -0,0 +1,206 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe cache of float[] blocks that are loaded on first touch by
+ * any thread.  Each block is loaded once even if several threads touch it
+ * at the same time, the others wait for the result.  If the loaded blocks
+ * exceed maxBytes, the least recently used ones are dropped and loaded
+ * again when touched.  Recency is tracked with a clock that advances on
+ * each load, i.e. blocks used since the last load are equally recent.
+ * Eviction sweeps only the loaded blocks.
+ */
+public class BlockCache
+{
+	public interface Loader
+	{
+		public float[] load( final int i ) throws Exception;
+	}
+	
+	final protected Loader loader;
+	final protected long maxBytes;
+	
+	/* float[] of loaded blocks, FutureTask< float[] > of blocks in loading, or null */
+	final protected AtomicReferenceArray< Object > blocks;
+	
+	/* loaded blocks as { index, clock when entered or passed over }, oldest first */
+	final protected ArrayDeque< long[] > resident = new ArrayDeque< long[] >();
+	
+	/* clock of the last use of each block, written without synchronization */
+	final protected long[] lastUse;
+	final protected AtomicLong clock = new AtomicLong();
+	final protected AtomicLong bytes = new AtomicLong();
+	
+	/**
+	 * @param numBlocks
+	 * @param maxBytes memory budget for loaded blocks
+	 * @param loader
+	 */
+	public BlockCache( final int numBlocks, final long maxBytes, final Loader loader )
+	{
+		this.maxBytes = maxBytes;
+		this.loader = loader;
+		blocks = new AtomicReferenceArray< Object >( numBlocks );
+		lastUse = new long[ numBlocks ];
+	}
+	
+	/**
+	 * Number of bytes held by loaded blocks.
+	 */
+	public long bytes()
+	{
+		return bytes.get();
+	}
+	
+	/**
+	 * Drop all loaded blocks.  Blocks in loading are kept and counted once
+	 * they arrive.
+	 */
+	synchronized public void clear()
+	{
+		for ( int i = 0; i < blocks.length(); ++i )
+		{
+			final Object o = blocks.get( i );
+			if ( o instanceof float[] && blocks.compareAndSet( i, o, null ) )
+				bytes.addAndGet( -4L * ( ( float[] )o ).length );
+		}
+		resident.clear();
+	}
+	
+	/**
+	 * Block i, loaded if necessary.
+	 */
+	final public float[] get( final int i )
+	{
+		final Object o = blocks.get( i );
+		if ( o instanceof float[] )
+		{
+			/* write only if stale, blocks are read by all render threads for every sample */
+			final long c = clock.get();
+			if ( lastUse[ i ] != c )
+				lastUse[ i ] = c;
+			return ( float[] )o;
+		}
+		return load( i );
+	}
+	
+	@SuppressWarnings( "unchecked" )
+	protected float[] load( final int i )
+	{
+		while ( true )
+		{
+			final Object o = blocks.get( i );
+			if ( o instanceof float[] )
+				return ( float[] )o;
+			
+			if ( o == null )
+			{
+				final FutureTask< float[] > task = new FutureTask< float[] >(
+						new Callable< float[] >()
+						{
+							@Override
+							public float[] call() throws Exception
+							{
+								return loader.load( i );
+							}
+						} );
+				if ( blocks.compareAndSet( i, null, task ) )
+				{
+					task.run();
+					final float[] data = get( i, task );
+					if ( blocks.compareAndSet( i, task, data ) )
+					{
+						lastUse[ i ] = clock.incrementAndGet();
+						resident( i );
+						if ( bytes.addAndGet( 4L * data.length ) > maxBytes )
+							evict( i );
+					}
+					return data;
+				}
+			}
+			else
+				return get( i, ( FutureTask< float[] > )o );
+		}
+	}
+	
+	/**
+	 * Result of loading a block, a failed load is removed such that it can
+	 * be retried.
+	 */
+	protected float[] get( final int i, final FutureTask< float[] > task )
+	{
+		try
+		{
+			return task.get();
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+		catch ( final ExecutionException e )
+		{
+			blocks.compareAndSet( i, task, null );
+			throw new RuntimeException( e.getCause() );
+		}
+	}
+	
+	/**
+	 * Register a loaded block in the eviction ring.
+	 */
+	synchronized protected void resident( final int i )
+	{
+		resident.add( new long[]{ i, lastUse[ i ] } );
+	}
+	
+	/**
+	 * Drop least recently used blocks but keep until the loaded blocks fit
+	 * into 3/4 of maxBytes.  The ring of loaded blocks is swept from its
+	 * oldest entry, blocks that were used after they entered the ring get a
+	 * second chance at its end (clock algorithm), so the cost depends on
+	 * the number of loaded blocks, not on numBlocks.  Threads that still
+	 * hold a dropped block keep using it.
+	 */
+	synchronized protected void evict( final int keep )
+	{
+		final long lowWater = maxBytes / 4 * 3;
+		for ( int k = 2 * resident.size(); k > 0 && bytes.get() > lowWater && !resident.isEmpty(); --k )
+		{
+			final long[] entry = resident.poll();
+			final int i = ( int )entry[ 0 ];
+			final Object o = blocks.get( i );
+			if ( !( o instanceof float[] ) )
+				continue;
+			
+			if ( i == keep || lastUse[ i ] > entry[ 1 ] )
+			{
+				entry[ 1 ] = clock.get();
+				resident.add( entry );
+			}
+			else if ( blocks.compareAndSet( i, o, null ) )
+				bytes.addAndGet( -4L * ( ( float[] )o ).length );
+		}
+	}
+}
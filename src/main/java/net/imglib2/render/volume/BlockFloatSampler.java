@@ -0,0 +1,109 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+/**
+ * {@link FloatSampler} reading the blocks of a {@link BlockVolume} through a
+ * {@link BlockCache}, i.e. blocks are read from disk on first touch by any
+ * render thread and dropped again if they exceed the memory budget.
+ */
+public class BlockFloatSampler extends FloatSampler
+{
+	final protected BlockVolume volume;
+	final protected int blockBits, mask;
+	final protected BlockCache blocks;
+	
+	/**
+	 * @param maxBytes memory budget for loaded blocks
+	 */
+	public BlockFloatSampler( final BlockVolume volume, final boolean linear, final long maxBytes )
+	{
+		super( volume.width, volume.height, volume.depth, linear );
+		this.volume = volume;
+		blockBits = volume.blockBits;
+		mask = volume.blockSize - 1;
+		blocks = new BlockCache(
+				volume.numBlocks(),
+				maxBytes,
+				new BlockCache.Loader()
+				{
+					@Override
+					public float[] load( final int i ) throws Exception
+					{
+						return volume.readBlock( i );
+					}
+				} );
+	}
+	
+	/**
+	 * Number of bytes held by loaded blocks.
+	 */
+	public long bytes()
+	{
+		return blocks.bytes();
+	}
+	
+	@Override
+	final protected float voxel( final int x, final int y, final int z )
+	{
+		final int bx = x >> blockBits;
+		final int by = y >> blockBits;
+		final int bz = z >> blockBits;
+		final float[] data = blocks.get( volume.index( bx, by, bz ) );
+		
+		/* empty blocks are zero */
+		if ( data.length == 0 )
+			return 0;
+		return data[ ( ( z & mask ) * volume.blockHeight( by ) + ( y & mask ) ) * volume.blockWidth( bx ) + ( x & mask ) ];
+	}
+	
+	@Override
+	final protected double interior( final int x0, final int y0, final int z0, final double fx, final double fy, final double fz )
+	{
+		final int lx = x0 & mask;
+		final int ly = y0 & mask;
+		final int lz = z0 & mask;
+		
+		/* all eight neighbors in the same block */
+		if ( lx < mask && ly < mask && lz < mask )
+		{
+			final int bx = x0 >> blockBits;
+			final int by = y0 >> blockBits;
+			final float[] data = blocks.get( volume.index( bx, by, z0 >> blockBits ) );
+			if ( data.length == 0 )
+				return 0;
+			final int w = volume.blockWidth( bx );
+			final int wh = w * volume.blockHeight( by );
+			final int i000 = lz * wh + ly * w + lx;
+			final int i010 = i000 + w;
+			final int i001 = i000 + wh;
+			final int i011 = i001 + w;
+			return lerp(
+					data[ i000 ], data[ i000 + 1 ], data[ i010 ], data[ i010 + 1 ],
+					data[ i001 ], data[ i001 + 1 ], data[ i011 ], data[ i011 + 1 ],
+					fx, fy, fz );
+		}
+		
+		final int x1 = x0 + 1;
+		final int y1 = y0 + 1;
+		final int z1 = z0 + 1;
+		return lerp(
+				voxel( x0, y0, z0 ), voxel( x1, y0, z0 ), voxel( x0, y1, z0 ), voxel( x1, y1, z0 ),
+				voxel( x0, y0, z1 ), voxel( x1, y0, z1 ), voxel( x0, y1, z1 ), voxel( x1, y1, z1 ),
+				fx, fy, fz );
+	}
+}
@@ -0,0 +1,281 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * 3d float volume stored as a directory of blocks, for volumes that do not
+ * fit into memory.  The directory contains a text file
+ * <code>attributes.txt</code> with the line
+ * 
+ * <pre>width height depth blockBits</pre>
+ * 
+ * and one file <code>bz/by/bx.raw</code> per block with its voxels as
+ * big-endian float32 in x, y, z order.  Blocks have an edge length of
+ * 2^blockBits and are cut off at the border of the volume.  Blocks without
+ * a file are zero.  {@link #write} converts an ImageJ stack, which may be
+ * virtual, into this format.
+ */
+public class BlockVolume
+{
+	final static public String attributesFile = "attributes.txt";
+	
+	final protected File directory;
+	final protected int width, height, depth;
+	final protected int blockBits, blockSize;
+	final protected int blocksX, blocksY, blocksZ;
+	
+	protected BlockVolume( final File directory, final int width, final int height, final int depth, final int blockBits )
+	{
+		this.directory = directory;
+		this.width = width;
+		this.height = height;
+		this.depth = depth;
+		this.blockBits = blockBits;
+		blockSize = 1 << blockBits;
+		blocksX = ( width + blockSize - 1 ) >> blockBits;
+		blocksY = ( height + blockSize - 1 ) >> blockBits;
+		blocksZ = ( depth + blockSize - 1 ) >> blockBits;
+	}
+	
+	/**
+	 * Open the block volume in directory, no blocks are read.
+	 */
+	final static public BlockVolume open( final File directory ) throws IOException
+	{
+		final BufferedReader reader = new BufferedReader( new FileReader( new File( directory, attributesFile ) ) );
+		try
+		{
+			final String[] fields = reader.readLine().trim().split( "\\s+" );
+			return new BlockVolume(
+					directory,
+					Integer.parseInt( fields[ 0 ] ),
+					Integer.parseInt( fields[ 1 ] ),
+					Integer.parseInt( fields[ 2 ] ),
+					Integer.parseInt( fields[ 3 ] ) );
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Convert the first channel and frame of imp into a block volume in
+	 * directory.  Slices are read one at a time and appended to the files of
+	 * the blocks they cut through, such that virtual stacks larger than
+	 * memory can be converted.  Blocks that are all zero are not written.
+	 */
+	final static public BlockVolume write( final ImagePlus imp, final File directory, final int blockBits ) throws IOException
+	{
+		final BlockVolume volume = new BlockVolume( directory, imp.getWidth(), imp.getHeight(), imp.getNSlices(), blockBits );
+		directory.mkdirs();
+		final PrintWriter writer = new PrintWriter( new File( directory, attributesFile ) );
+		writer.println( volume.width + " " + volume.height + " " + volume.depth + " " + blockBits );
+		writer.close();
+		
+		final ImageStack stack = imp.getStack();
+		final float[] slice = new float[ volume.blockSize * volume.blockSize ];
+		
+		/* blocks of the current layer that have a file */
+		final boolean[] stored = new boolean[ volume.blocksX * volume.blocksY ];
+		for ( int bz = 0; bz < volume.blocksZ; ++bz )
+		{
+			final int z0 = bz << blockBits;
+			final int d = volume.blockDepth( bz );
+			Arrays.fill( stored, false );
+			for ( int z = 0; z < d; ++z )
+			{
+				final ImageProcessor ip = stack.getProcessor( imp.getStackIndex( 1, z0 + z + 1, 1 ) );
+				for ( int by = 0; by < volume.blocksY; ++by )
+				{
+					final int y0 = by << blockBits;
+					final int h = volume.blockHeight( by );
+					for ( int bx = 0; bx < volume.blocksX; ++bx )
+					{
+						final int x0 = bx << blockBits;
+						final int bw = volume.blockWidth( bx );
+						boolean empty = true;
+						for ( int y = 0, i = 0; y < h; ++y )
+							for ( int x = 0; x < bw; ++x, ++i )
+							{
+								slice[ i ] = ip.getf( x0 + x, y0 + y );
+								empty &= slice[ i ] == 0;
+							}
+						
+						/* the first non-zero slice creates the file, preceded by the zero slices before it */
+						final int k = by * volume.blocksX + bx;
+						if ( stored[ k ] || !empty )
+						{
+							volume.writeSlice( bx, by, bz, z, slice, bw * h, stored[ k ] );
+							stored[ k ] = true;
+						}
+					}
+				}
+			}
+			
+			/* remove files of a previous conversion */
+			for ( int by = 0; by < volume.blocksY; ++by )
+				for ( int bx = 0; bx < volume.blocksX; ++bx )
+					if ( !stored[ by * volume.blocksX + bx ] )
+						volume.file( bx, by, bz ).delete();
+		}
+		return volume;
+	}
+	
+	public int width()
+	{
+		return width;
+	}
+	
+	public int height()
+	{
+		return height;
+	}
+	
+	public int depth()
+	{
+		return depth;
+	}
+	
+	public int blockBits()
+	{
+		return blockBits;
+	}
+	
+	public int numBlocks()
+	{
+		return blocksX * blocksY * blocksZ;
+	}
+	
+	final public int blockWidth( final int bx )
+	{
+		return Math.min( blockSize, width - ( bx << blockBits ) );
+	}
+	
+	final public int blockHeight( final int by )
+	{
+		return Math.min( blockSize, height - ( by << blockBits ) );
+	}
+	
+	final public int blockDepth( final int bz )
+	{
+		return Math.min( blockSize, depth - ( bz << blockBits ) );
+	}
+	
+	/**
+	 * Index of block (bx, by, bz).
+	 */
+	final public int index( final int bx, final int by, final int bz )
+	{
+		return ( bz * blocksY + by ) * blocksX + bx;
+	}
+	
+	protected File file( final int bx, final int by, final int bz )
+	{
+		return new File( new File( new File( directory, Integer.toString( bz ) ), Integer.toString( by ) ), bx + ".raw" );
+	}
+	
+	/**
+	 * Voxels of block (bx, by, bz), an empty array if the block is zero.
+	 */
+	public float[] readBlock( final int bx, final int by, final int bz ) throws IOException
+	{
+		final File file = file( bx, by, bz );
+		if ( !file.exists() )
+			return new float[ 0 ];
+		
+		final float[] data = new float[ blockWidth( bx ) * blockHeight( by ) * blockDepth( bz ) ];
+		final ByteBuffer buffer = ByteBuffer.allocate( 4 * data.length );
+		final FileInputStream in = new FileInputStream( file );
+		try
+		{
+			final FileChannel channel = in.getChannel();
+			while ( buffer.hasRemaining() && channel.read( buffer ) >= 0 );
+		}
+		finally
+		{
+			in.close();
+		}
+		if ( buffer.hasRemaining() )
+			throw new IOException( "Block file " + file.getAbsolutePath() + " is truncated." );
+		buffer.flip();
+		buffer.asFloatBuffer().get( data );
+		return data;
+	}
+	
+	/**
+	 * Voxels of block i, see {@link #index}.
+	 */
+	public float[] readBlock( final int i ) throws IOException
+	{
+		return readBlock( i % blocksX, i / blocksX % blocksY, i / blocksX / blocksY );
+	}
+	
+	/**
+	 * Write slice z of block (bx, by, bz), the first n values of data.  If
+	 * append is false, the file is created with z zero slices before it.
+	 */
+	protected void writeSlice(
+			final int bx,
+			final int by,
+			final int bz,
+			final int z,
+			final float[] data,
+			final int n,
+			final boolean append ) throws IOException
+	{
+		final File file = file( bx, by, bz );
+		file.getParentFile().mkdirs();
+		final ByteBuffer buffer = ByteBuffer.allocate( 4 * n );
+		final FileOutputStream out = new FileOutputStream( file, append );
+		try
+		{
+			final FileChannel channel = out.getChannel();
+			if ( !append )
+			{
+				for ( int i = 0; i < z; ++i )
+				{
+					while ( buffer.hasRemaining() )
+						channel.write( buffer );
+					buffer.clear();
+				}
+			}
+			buffer.asFloatBuffer().put( data, 0, n );
+			while ( buffer.hasRemaining() )
+				channel.write( buffer );
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+}
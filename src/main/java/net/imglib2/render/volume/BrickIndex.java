@@ -0,0 +1,325 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+/**
+ * Hierarchical per-brick min/max intensities of a (multi-channel) 3d volume.
+ * 
+ * Level 0 bricks have an edge length of brickSize voxels, each higher level
+ * merges 2x2x2 bricks of the level below.  Brick (bx, by, bz) at level l
+ * covers all sample positions p with
+ * 
+ * bx * s &lt;= floor( p_x ) &lt; ( bx + 1 ) * s, s = brickSize * 2^l
+ * 
+ * (and -1 &lt;= floor( p_x ) for the first brick) and stores the range of
+ * all voxels that an n-linear or nearest neighbor interpolator reads at
+ * such positions, i.e. including the first voxel of the next brick and
+ * the zero background beyond the volume boundaries.  Positions outside the
+ * bricks read only background.
+ * 
+ * The index depends on the data only, whether a brick is empty under a
+ * transfer function is decided at render time by
+ * {@link #transparentBricks(TransparencyTest)}.
+ */
+public class BrickIndex
+{
+	final protected int brickSize;
+	final protected int numChannels;
+	
+	/* volume dimensions */
+	final protected long[] dimensions = new long[ 3 ];
+	
+	/* number of bricks per dimension [level][d] */
+	final protected int[][] numBricks;
+	
+	/* [level][brick * numChannels + c] */
+	final protected float[][] min;
+	final protected float[][] max;
+	
+	/**
+	 * @param channels 3d channels of equal size
+	 * @param brickSize edge length of level 0 bricks
+	 * @param pool build in parallel on this pool, null builds in the calling thread
+	 */
+	public BrickIndex(
+			final List< ? extends RandomAccessibleInterval< FloatType > > channels,
+			final int brickSize,
+			final ForkJoinPool pool )
+	{
+		this.brickSize = brickSize;
+		numChannels = channels.size();
+		channels.get( 0 ).dimensions( dimensions );
+		
+		final ArrayList< int[] > levels = new ArrayList< int[] >();
+		long s = brickSize;
+		while ( true )
+		{
+			final int[] n = new int[ 3 ];
+			for ( int d = 0; d < 3; ++d )
+				n[ d ] = ( int )( ( dimensions[ d ] + s - 1 ) / s );
+			levels.add( n );
+			if ( n[ 0 ] == 1 && n[ 1 ] == 1 && n[ 2 ] == 1 )
+				break;
+			s *= 2;
+		}
+		numBricks = levels.toArray( new int[ levels.size() ][] );
+		min = new float[ numBricks.length ][];
+		max = new float[ numBricks.length ][];
+		
+		for ( int l = 0; l < numBricks.length; ++l )
+		{
+			final int size = numBricks[ l ][ 0 ] * numBricks[ l ][ 1 ] * numBricks[ l ][ 2 ] * numChannels;
+			min[ l ] = new float[ size ];
+			max[ l ] = new float[ size ];
+			Arrays.fill( min[ l ], Float.POSITIVE_INFINITY );
+			Arrays.fill( max[ l ], Float.NEGATIVE_INFINITY );
+		}
+		
+		/* level 0, one task per layer of bricks, layers write disjoint bricks */
+		final ArrayList< RecursiveAction > tasks = new ArrayList< RecursiveAction >();
+		for ( int c = 0; c < numChannels; ++c )
+		{
+			final int channel = c;
+			for ( int bz = 0; bz < numBricks[ 0 ][ 2 ]; ++bz )
+			{
+				final int brickZ = bz;
+				tasks.add(
+						new RecursiveAction()
+						{
+							private static final long serialVersionUID = 1L;
+
+							@Override
+							final protected void compute()
+							{
+								buildLayer( channels.get( channel ), channel, brickZ );
+							}
+						} );
+			}
+		}
+		if ( pool == null )
+			for ( final RecursiveAction task : tasks )
+				task.invoke();
+		else
+			Renderer.invokeAll( pool, tasks );
+		
+		/* background at the boundaries */
+		final int[] n0 = numBricks[ 0 ];
+		for ( int bz = 0; bz < n0[ 2 ]; ++bz )
+			for ( int by = 0; by < n0[ 1 ]; ++by )
+				for ( int bx = 0; bx < n0[ 0 ]; ++bx )
+					if (
+							isBoundary( bx, 0 ) ||
+							isBoundary( by, 1 ) ||
+							isBoundary( bz, 2 ) )
+					{
+						final int i = ( ( bz * n0[ 1 ] + by ) * n0[ 0 ] + bx ) * numChannels;
+						for ( int c = 0; c < numChannels; ++c )
+						{
+							min[ 0 ][ i + c ] = Math.min( min[ 0 ][ i + c ], 0 );
+							max[ 0 ][ i + c ] = Math.max( max[ 0 ][ i + c ], 0 );
+						}
+					}
+		
+		/* higher levels */
+		for ( int l = 1; l < numBricks.length; ++l )
+		{
+			final int[] nc = numBricks[ l - 1 ];
+			final int[] np = numBricks[ l ];
+			for ( int bz = 0; bz < nc[ 2 ]; ++bz )
+				for ( int by = 0; by < nc[ 1 ]; ++by )
+					for ( int bx = 0; bx < nc[ 0 ]; ++bx )
+					{
+						final int i = ( ( bz * nc[ 1 ] + by ) * nc[ 0 ] + bx ) * numChannels;
+						final int j = ( ( bz / 2 * np[ 1 ] + by / 2 ) * np[ 0 ] + bx / 2 ) * numChannels;
+						for ( int c = 0; c < numChannels; ++c )
+						{
+							min[ l ][ j + c ] = Math.min( min[ l ][ j + c ], min[ l - 1 ][ i + c ] );
+							max[ l ][ j + c ] = Math.max( max[ l ][ j + c ], max[ l - 1 ][ i + c ] );
+						}
+					}
+		}
+	}
+	
+	public BrickIndex( final List< ? extends RandomAccessibleInterval< FloatType > > channels )
+	{
+		this( channels, 8, null );
+	}
+	
+	final protected boolean isBoundary( final int b, final int d )
+	{
+		return b == 0 || ( long )( b + 1 ) * brickSize >= dimensions[ d ];
+	}
+	
+	/**
+	 * Accumulate min and max of the level 0 bricks in layer brickZ.  The
+	 * slab includes the first voxel layer of the next brick layer which is
+	 * read by interpolation in the last voxel layer of this one.
+	 */
+	final protected void buildLayer( final RandomAccessibleInterval< FloatType > channel, final int c, final int brickZ )
+	{
+		final int[] n = numBricks[ 0 ];
+		final long zMin = ( long )brickZ * brickSize;
+		final long zMax = Math.min( dimensions[ 2 ] - 1, zMin + brickSize );
+		final FinalInterval slab = new FinalInterval(
+				new long[]{ 0, 0, zMin },
+				new long[]{ dimensions[ 0 ] - 1, dimensions[ 1 ] - 1, zMax } );
+		
+		final float[] brickMin = min[ 0 ];
+		final float[] brickMax = max[ 0 ];
+		final int[] bxs = new int[ 2 ];
+		final int[] bys = new int[ 2 ];
+		
+		final Cursor< FloatType > cursor = Views.flatIterable( Views.interval( channel, slab ) ).localizingCursor();
+		while ( cursor.hasNext() )
+		{
+			final float v = cursor.next().get();
+			final int nx = bricksOf( cursor.getIntPosition( 0 ), bxs );
+			final int ny = bricksOf( cursor.getIntPosition( 1 ), bys );
+			for ( int j = 0; j < ny; ++j )
+				for ( int i = 0; i < nx; ++i )
+				{
+					final int k = ( ( brickZ * n[ 1 ] + bys[ j ] ) * n[ 0 ] + bxs[ i ] ) * numChannels + c;
+					if ( v < brickMin[ k ] ) brickMin[ k ] = v;
+					if ( v > brickMax[ k ] ) brickMax[ k ] = v;
+				}
+		}
+	}
+	
+	
+	/**
+	 * Level 0 bricks that read voxel x, i.e. its own brick and the preceding
+	 * one if x is the first voxel of its brick.
+	 * 
+	 * @return the number of bricks
+	 */
+	final protected int bricksOf( final int x, final int[] bricks )
+	{
+		final int b = x / brickSize;
+		bricks[ 0 ] = b;
+		if ( b > 0 && x == b * brickSize )
+		{
+			bricks[ 1 ] = b - 1;
+			return 2;
+		}
+		return 1;
+	}
+	
+	public int numLevels()
+	{
+		return numBricks.length;
+	}
+	
+	public int numChannels()
+	{
+		return numChannels;
+	}
+	
+	/**
+	 * Edge length of the bricks at level l.
+	 */
+	public long brickSize( final int l )
+	{
+		return ( long )brickSize << l;
+	}
+	
+	public long dimension( final int d )
+	{
+		return dimensions[ d ];
+	}
+	
+	/**
+	 * Number of bricks along dimension d at level l.
+	 */
+	public int numBricks( final int l, final int d )
+	{
+		return numBricks[ l ][ d ];
+	}
+	
+	/**
+	 * Copy the per channel range of brick i at level l.
+	 */
+	final protected void brickRange( final int l, final int i, final double[] brickMin, final double[] brickMax )
+	{
+		for ( int c = 0; c < numChannels; ++c )
+		{
+			brickMin[ c ] = min[ l ][ i * numChannels + c ];
+			brickMax[ c ] = max[ l ][ i * numChannels + c ];
+		}
+	}
+	
+	/**
+	 * Evaluate a transfer function for all bricks of all levels.  This is
+	 * cheap compared to building the index and has to be repeated whenever
+	 * the transfer function changes.
+	 * 
+	 * @return [level][brick] true if all samples in the brick are fully transparent
+	 */
+	public boolean[][] transparentBricks( final TransparencyTest transparency )
+	{
+		final double[] brickMin = new double[ numChannels ];
+		final double[] brickMax = new double[ numChannels ];
+		final boolean[][] transparent = new boolean[ numBricks.length ][];
+		for ( int l = 0; l < numBricks.length; ++l )
+		{
+			final int n = min[ l ].length / numChannels;
+			transparent[ l ] = new boolean[ n ];
+			for ( int i = 0; i < n; ++i )
+			{
+				brickRange( l, i, brickMin, brickMax );
+				transparent[ l ][ i ] = transparency.isTransparent( brickMin, brickMax );
+			}
+		}
+		return transparent;
+	}
+	
+	/**
+	 * Evaluate the variation of a transfer function for all bricks of all
+	 * levels.  Like {@link #transparentBricks(TransparencyTest)}, this has
+	 * to be repeated whenever the transfer function changes.
+	 * 
+	 * @return [level][brick] true if all samples in the brick render alike
+	 */
+	public boolean[][] smoothBricks( final VariationTest variation )
+	{
+		final double[] brickMin = new double[ numChannels ];
+		final double[] brickMax = new double[ numChannels ];
+		final boolean[][] smooth = new boolean[ numBricks.length ][];
+		for ( int l = 0; l < numBricks.length; ++l )
+		{
+			final int n = min[ l ].length / numChannels;
+			smooth[ l ] = new boolean[ n ];
+			for ( int i = 0; i < n; ++i )
+			{
+				brickRange( l, i, brickMin, brickMax );
+				smooth[ l ][ i ] = variation.isSmooth( brickMin, brickMax );
+			}
+		}
+		return smooth;
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+/**
+ * {@link SlicedARGBSampler} storing a, r, g, b as 8-bit values packed
+ * into an int, 4 bytes per voxel.  Values are clamped to [0, 1].
+ */
+public class ByteRGBASampler extends SlicedARGBSampler
+{
+	final static protected double toDouble = 1.0 / 255.0;
+	
+	final protected int[][] slices;
+	
+	public ByteRGBASampler( final int width, final int height, final int depth, final boolean linear )
+	{
+		super( width, height, depth, linear );
+		slices = new int[ depth ][];
+	}
+	
+	final static protected int toByte( final double x )
+	{
+		return Math.max( 0, Math.min( 255, ( int )Math.round( x * 255 ) ) );
+	}
+	
+	@Override
+	protected void createSlice( final int z )
+	{
+		slices[ z ] = new int[ width * height ];
+	}
+	
+	@Override
+	final protected void store( final int z, final int i, final double a, final double r, final double g, final double b )
+	{
+		slices[ z ][ i ] = ( toByte( a ) << 24 ) | ( toByte( r ) << 16 ) | ( toByte( g ) << 8 ) | toByte( b );
+	}
+	
+	@Override
+	final protected void voxel( final int x, final int y, final int z, final double[] argb )
+	{
+		final int v = slices[ z ][ y * width + x ];
+		argb[ 0 ] = ( v >>> 24 ) * toDouble;
+		argb[ 1 ] = ( ( v >> 16 ) & 0xff ) * toDouble;
+		argb[ 2 ] = ( ( v >> 8 ) & 0xff ) * toDouble;
+		argb[ 3 ] = ( v & 0xff ) * toDouble;
+	}
+	
+	@Override
+	final protected void addVoxel( final int x, final int y, final int z, final double w, final double[] argb )
+	{
+		final int v = slices[ z ][ y * width + x ];
+		final double s = w * toDouble;
+		argb[ 0 ] += ( v >>> 24 ) * s;
+		argb[ 1 ] += ( ( v >> 16 ) & 0xff ) * s;
+		argb[ 2 ] += ( ( v >> 8 ) & 0xff ) * s;
+		argb[ 3 ] += ( v & 0xff ) * s;
+	}
+}
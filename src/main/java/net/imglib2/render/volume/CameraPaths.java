@@ -0,0 +1,67 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.realtransform.AffineTransform3D;
+
+/**
+ * The predefined camera paths {@link Renderer#appendCamera1} to
+ * {@link Renderer#appendCamera5}.
+ */
+public enum CameraPaths implements CameraPath
+{
+	Camera1
+	{
+		@Override
+		public void append( final AffineTransform3D affine, final double animation )
+		{
+			Renderer.appendCamera1( affine, animation );
+		}
+	},
+	Camera2
+	{
+		@Override
+		public void append( final AffineTransform3D affine, final double animation )
+		{
+			Renderer.appendCamera2( affine, animation );
+		}
+	},
+	Camera3
+	{
+		@Override
+		public void append( final AffineTransform3D affine, final double animation )
+		{
+			Renderer.appendCamera3( affine, animation );
+		}
+	},
+	Camera4
+	{
+		@Override
+		public void append( final AffineTransform3D affine, final double animation )
+		{
+			Renderer.appendCamera4( affine, animation );
+		}
+	},
+	Camera5
+	{
+		@Override
+		public void append( final AffineTransform3D affine, final double animation )
+		{
+			Renderer.appendCamera5( affine, animation );
+		}
+	};
+}
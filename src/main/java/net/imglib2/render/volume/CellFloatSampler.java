@@ -0,0 +1,149 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.Cursor;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.cell.AbstractCell;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.cell.Cells;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * {@link FloatSampler} reading the float[] of each cell of a
+ * {@link CellImg}.
+ */
+public class CellFloatSampler extends FloatSampler
+{
+	/* cell data by grid index */
+	final protected float[][] cells;
+	final protected int cellWidth, cellHeight, cellDepth;
+	final protected int gridWidth, gridWidthHeight;
+	
+	/* actual width and height of the cells in each grid column and row */
+	final protected int[] columnWidths, rowHeights;
+	
+	public CellFloatSampler(
+			final float[][] cells,
+			final int width,
+			final int height,
+			final int depth,
+			final int cellWidth,
+			final int cellHeight,
+			final int cellDepth,
+			final boolean linear )
+	{
+		super( width, height, depth, linear );
+		this.cells = cells;
+		this.cellWidth = cellWidth;
+		this.cellHeight = cellHeight;
+		this.cellDepth = cellDepth;
+		
+		gridWidth = ( width + cellWidth - 1 ) / cellWidth;
+		final int gridHeight = ( height + cellHeight - 1 ) / cellHeight;
+		gridWidthHeight = gridWidth * gridHeight;
+		
+		columnWidths = new int[ gridWidth ];
+		for ( int i = 0; i < gridWidth; ++i )
+			columnWidths[ i ] = Math.min( cellWidth, width - i * cellWidth );
+		rowHeights = new int[ gridHeight ];
+		for ( int i = 0; i < gridHeight; ++i )
+			rowHeights[ i ] = Math.min( cellHeight, height - i * cellHeight );
+	}
+	
+	@Override
+	final protected float voxel( final int x, final int y, final int z )
+	{
+		final int gx = x / cellWidth;
+		final int gy = y / cellHeight;
+		final int gz = z / cellDepth;
+		final int lx = x - gx * cellWidth;
+		final int ly = y - gy * cellHeight;
+		final int lz = z - gz * cellDepth;
+		final int w = columnWidths[ gx ];
+		return cells[ gz * gridWidthHeight + gy * gridWidth + gx ][ ( lz * rowHeights[ gy ] + ly ) * w + lx ];
+	}
+	
+	@Override
+	final protected double interior( final int x0, final int y0, final int z0, final double fx, final double fy, final double fz )
+	{
+		final int gx = x0 / cellWidth;
+		final int gy = y0 / cellHeight;
+		final int gz = z0 / cellDepth;
+		final int lx = x0 - gx * cellWidth;
+		final int ly = y0 - gy * cellHeight;
+		final int lz = z0 - gz * cellDepth;
+		final int w = columnWidths[ gx ];
+		final int h = rowHeights[ gy ];
+		
+		/* all eight neighbors in the same cell */
+		if ( lx < w - 1 && ly < h - 1 && lz < cellDepth - 1 )
+		{
+			final float[] data = cells[ gz * gridWidthHeight + gy * gridWidth + gx ];
+			final int wh = w * h;
+			final int i000 = ( lz * h + ly ) * w + lx;
+			final int i010 = i000 + w;
+			final int i001 = i000 + wh;
+			final int i011 = i001 + w;
+			return lerp(
+					data[ i000 ], data[ i000 + 1 ], data[ i010 ], data[ i010 + 1 ],
+					data[ i001 ], data[ i001 + 1 ], data[ i011 ], data[ i011 + 1 ],
+					fx, fy, fz );
+		}
+		
+		final int x1 = x0 + 1;
+		final int y1 = y0 + 1;
+		final int z1 = z0 + 1;
+		return lerp(
+				voxel( x0, y0, z0 ), voxel( x1, y0, z0 ), voxel( x0, y1, z0 ), voxel( x1, y1, z0 ),
+				voxel( x0, y0, z1 ), voxel( x1, y0, z1 ), voxel( x0, y1, z1 ), voxel( x1, y1, z1 ),
+				fx, fy, fz );
+	}
+	
+	/**
+	 * @return null if a cell is not backed by a float[]
+	 */
+	final static public < C extends AbstractCell< ? > > CellFloatSampler create( final CellImg< FloatType, ?, C > img, final boolean linear )
+	{
+		final Cells< ?, C > grid = img.getCells();
+		final long[] gridDimensions = new long[ 3 ];
+		grid.dimensions( gridDimensions );
+		final int[] cellDimensions = new int[ 3 ];
+		grid.cellDimensions( cellDimensions );
+		
+		final float[][] cells = new float[ ( int )( gridDimensions[ 0 ] * gridDimensions[ 1 ] * gridDimensions[ 2 ] ) ][];
+		final Cursor< C > cursor = grid.localizingCursor();
+		while ( cursor.hasNext() )
+		{
+			final Object data = cursor.next().getData();
+			if ( !( data instanceof FloatArray ) )
+				return null;
+			final int i = ( int )( ( cursor.getLongPosition( 2 ) * gridDimensions[ 1 ] + cursor.getLongPosition( 1 ) ) * gridDimensions[ 0 ] + cursor.getLongPosition( 0 ) );
+			cells[ i ] = ( ( FloatArray )data ).getCurrentStorageArray();
+		}
+		
+		return new CellFloatSampler(
+				cells,
+				( int )img.dimension( 0 ),
+				( int )img.dimension( 1 ),
+				( int )img.dimension( 2 ),
+				cellDimensions[ 0 ],
+				cellDimensions[ 1 ],
+				cellDimensions[ 2 ],
+				linear );
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * {@link AlphaIntensityLayers} that looks up the opacity corrected 1d
+ * table of a {@link TransferFunctionTable} per sample.  The transparency of
+ * a ray does not change with the step size, so larger steps render
+ * visually equivalent images from fewer samples.
+ */
+public class CorrectedAlphaIntensityLayers< T extends RealType< T > > extends AlphaIntensityLayers< T >
+{
+	final protected TransferFunctionTable table;
+	
+	/**
+	 * @param scale
+	 * @param offset
+	 * @param stepSize of the renderer, alpha is that of step size 1
+	 * @param min smallest intensity of the volume
+	 * @param max largest intensity of the volume
+	 * @param size number of bins of the table
+	 */
+	public CorrectedAlphaIntensityLayers(
+			final double scale,
+			final double offset,
+			final double stepSize,
+			final double min,
+			final double max,
+			final int size )
+	{
+		super( scale, offset );
+		table = new TransferFunctionTable( this, min, max, size, stepSize, false );
+	}
+	
+	public CorrectedAlphaIntensityLayers( final double scale, final double offset, final double stepSize, final double min, final double max )
+	{
+		this( scale, offset, stepSize, min, max, 1024 );
+	}
+	
+	public TransferFunctionTable table()
+	{
+		return table;
+	}
+	
+	@Override
+	public void accumulateRow(
+			final T accumulator,
+			final RandomAccess< T > access,
+			final long min,
+			final long max,
+			final long step,
+			final int d )
+	{
+		access.setPosition( max, d );
+		double a = accumulator.getRealDouble();
+		while ( access.getLongPosition( d ) >= min )
+		{
+			final int bin = table.bin( access.get().getRealDouble() );
+			a = a * ( 1.0 - table.opacity( bin ) ) + table.intensity( bin );
+			access.move( -step, d );
+		}
+		accumulator.setReal( a );
+	}
+	
+	@Override
+	public void accumulateBatch(
+			final double[][] accumulators,
+			final float[][] samples,
+			final int numRays,
+			final int numSamples )
+	{
+		final double[] a = accumulators[ 0 ];
+		final float[] intensities = samples[ 0 ];
+		for ( int s = 0, o = 0; s < numSamples; ++s, o += numRays )
+		{
+			for ( int r = 0; r < numRays; ++r )
+			{
+				final int bin = table.bin( intensities[ o + r ] );
+				a[ r ] = a[ r ] * ( 1.0 - table.opacity( bin ) ) + table.intensity( bin );
+			}
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.Interval;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+
+/**
+ * Counts the samples read from source.  Each access counts in its own
+ * unsynchronized counter which is registered with the {@link RenderStats}
+ * and summed after rendering.  Wrap the transformed source inside of
+ * {@link EmptySpaceSkippingRandomAccessible} to count only the samples that
+ * are actually read.
+ */
+public class CountingRandomAccessible< T > implements RandomAccessible< T >
+{
+	final protected RandomAccessible< T > source;
+	final protected RenderStats stats;
+	
+	public CountingRandomAccessible( final RandomAccessible< T > source, final RenderStats stats )
+	{
+		this.source = source;
+		this.stats = stats;
+	}
+	
+	@Override
+	public int numDimensions()
+	{
+		return source.numDimensions();
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess()
+	{
+		final CountingRandomAccess access = new CountingRandomAccess();
+		stats.register( access.count );
+		return access;
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess( final Interval interval )
+	{
+		return randomAccess();
+	}
+	
+	public class CountingRandomAccess extends Point implements RandomAccess< T >
+	{
+		final protected RandomAccess< T > sourceAccess;
+		
+		/* number of samples read, written by the rendering thread only */
+		final protected long[] count = new long[ 1 ];
+		
+		public CountingRandomAccess()
+		{
+			super( source.numDimensions() );
+			sourceAccess = source.randomAccess();
+		}
+		
+		@Override
+		public T get()
+		{
+			++count[ 0 ];
+			sourceAccess.setPosition( position );
+			return sourceAccess.get();
+		}
+
+		@Override
+		public CountingRandomAccess copy()
+		{
+			final CountingRandomAccess copy = new CountingRandomAccess();
+			stats.register( copy.count );
+			copy.setPosition( this );
+			return copy;
+		}
+
+		@Override
+		public CountingRandomAccess copyRandomAccess()
+		{
+			return copy();
+		}
+	}
+}
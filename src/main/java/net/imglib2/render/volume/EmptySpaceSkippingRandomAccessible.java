@@ -0,0 +1,274 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.Interval;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+
+/**
+ * Wraps a transformed source in canvas coordinates such that moving along
+ * the ray dimension (2) jumps over all samples that fall into fully
+ * transparent bricks of a {@link BrickIndex}.  Jumps are multiples of the
+ * requested step, so the remaining samples are exactly those of the
+ * wrapped source and any {@link RowAccumulator} composites the same result,
+ * front-to-back or back-to-front.
+ * 
+ * Only valid for nearest neighbor and n-linear interpolation.
+ */
+public class EmptySpaceSkippingRandomAccessible< T > implements RandomAccessible< T >
+{
+	/* tolerance for sample positions and jumps close to brick boundaries */
+	final static protected double eps = 1e-6;
+	
+	final protected RandomAccessible< T > source;
+	final protected ProjectiveRays rays;
+	final protected BrickIndex index;
+	final protected boolean[][] transparent;
+	final protected boolean transparentBackground;
+	
+	/* sample positions p with min <= p < max are covered by bricks */
+	final protected double[] min = new double[]{ -1, -1, -1 };
+	final protected double[] max = new double[ 3 ];
+	
+	/**
+	 * @param source transformed source in canvas coordinates
+	 * @param rays the rays of the canvas pixels in source coordinates
+	 * @param index min/max index of the untransformed source
+	 * @param transparency the current transfer function
+	 */
+	public EmptySpaceSkippingRandomAccessible(
+			final RandomAccessible< T > source,
+			final ProjectiveRays rays,
+			final BrickIndex index,
+			final TransparencyTest transparency )
+	{
+		this( source, rays, index, index.transparentBricks( transparency ), isTransparentBackground( index, transparency ) );
+	}
+	
+	/**
+	 * Share the evaluated transfer function between wrappers of the same
+	 * index, e.g. for all jittered samples or passes of a frame.
+	 * 
+	 * @param source transformed source in canvas coordinates
+	 * @param rays the rays of the canvas pixels in source coordinates
+	 * @param index min/max index of the untransformed source
+	 * @param transparent {@link BrickIndex#transparentBricks(TransparencyTest)} of the current transfer function
+	 * @param transparentBackground whether the zero background is transparent
+	 */
+	public EmptySpaceSkippingRandomAccessible(
+			final RandomAccessible< T > source,
+			final ProjectiveRays rays,
+			final BrickIndex index,
+			final boolean[][] transparent,
+			final boolean transparentBackground )
+	{
+		this.source = source;
+		this.rays = rays;
+		this.index = index;
+		this.transparent = transparent;
+		this.transparentBackground = transparentBackground;
+		for ( int d = 0; d < 3; ++d )
+			max[ d ] = index.dimension( d );
+	}
+	
+	/**
+	 * Whether the zero background beyond the index is transparent.
+	 */
+	final static public boolean isTransparentBackground( final BrickIndex index, final TransparencyTest transparency )
+	{
+		final double[] zeros = new double[ index.numChannels() ];
+		return transparency.isTransparent( zeros, zeros );
+	}
+	
+	@Override
+	public int numDimensions()
+	{
+		return source.numDimensions();
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess()
+	{
+		return new SkippingRandomAccess();
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess( final Interval interval )
+	{
+		return randomAccess();
+	}
+	
+	public class SkippingRandomAccess extends Point implements RandomAccess< T >
+	{
+		final protected RandomAccess< T > sourceAccess;
+		
+		/* current ray */
+		protected long rayX = Long.MIN_VALUE, rayY = Long.MIN_VALUE;
+		final protected double[] origin = new double[ 3 ];
+		final protected double[] direction = new double[ 3 ];
+		
+		final protected double[] p = new double[ 3 ];
+		final protected long[] f = new long[ 3 ];
+		final protected double[] brickMin = new double[ 3 ];
+		final protected double[] brickMax = new double[ 3 ];
+		final protected double[] zRange = new double[ 2 ];
+		
+		public SkippingRandomAccess()
+		{
+			super( source.numDimensions() );
+			sourceAccess = source.randomAccess();
+		}
+		
+		protected void updateRay()
+		{
+			if ( position[ 0 ] != rayX || position[ 1 ] != rayY )
+			{
+				rayX = position[ 0 ];
+				rayY = position[ 1 ];
+				rays.origin( rayX, rayY, origin );
+				rays.direction( rayX, rayY, direction );
+			}
+		}
+		
+		/**
+		 * Number of steps of size step from z to the first position at or
+		 * beyond zExit, at least one.
+		 */
+		final protected long steps( final double z, final double zExit, final long step )
+		{
+			return Math.max( 1, ( long )Math.ceil( ( zExit - z ) / step - eps ) );
+		}
+		
+		/**
+		 * Move along the ray while the current sample is fully transparent.
+		 * 
+		 * @param step signed step size
+		 */
+		protected void skip( final long step )
+		{
+			updateRay();
+			while ( true )
+			{
+				final long z = position[ 2 ];
+				for ( int d = 0; d < 3; ++d )
+					p[ d ] = origin[ d ] + z * direction[ d ];
+				
+				if (
+						p[ 0 ] < min[ 0 ] - eps || p[ 0 ] >= max[ 0 ] + eps ||
+						p[ 1 ] < min[ 1 ] - eps || p[ 1 ] >= max[ 1 ] + eps ||
+						p[ 2 ] < min[ 2 ] - eps || p[ 2 ] >= max[ 2 ] + eps )
+				{
+					if ( !transparentBackground )
+						return;
+					
+					/* jump to where the ray enters the bricks or beyond any reasonable range */
+					final boolean hits = ProjectiveRays.intersect( origin, direction, min, max, zRange );
+					if ( hits && step > 0 && z < zRange[ 0 ] )
+						position[ 2 ] += steps( z, zRange[ 0 ], step ) * step;
+					else if ( hits && step < 0 && z > zRange[ 1 ] )
+						position[ 2 ] += steps( -z, -zRange[ 1 ], -step ) * step;
+					else
+					{
+						position[ 2 ] = step > 0 ? Long.MAX_VALUE / 4 : Long.MIN_VALUE / 4;
+						return;
+					}
+					continue;
+				}
+				
+				/* samples on a voxel or volume boundary could read from either side */
+				for ( int d = 0; d < 3; ++d )
+				{
+					f[ d ] = ( long )Math.floor( p[ d ] - eps );
+					if ( f[ d ] != ( long )Math.floor( p[ d ] + eps ) || f[ d ] < min[ d ] || f[ d ] >= max[ d ] )
+						return;
+				}
+				
+				/* coarsest transparent brick containing the sample */
+				int level = -1;
+				for ( int l = 0; l < transparent.length; ++l )
+				{
+					if ( transparent[ l ][ brick( l, f ) ] )
+						level = l;
+					else
+						break;
+				}
+				if ( level < 0 )
+					return;
+				
+				final long s = index.brickSize( level );
+				for ( int d = 0; d < 3; ++d )
+				{
+					final long b = Math.max( 0, f[ d ] ) / s;
+					brickMin[ d ] = b == 0 ? -1 : b * s;
+					brickMax[ d ] = Math.min( max[ d ], ( b + 1 ) * s );
+				}
+				
+				ProjectiveRays.intersect( origin, direction, brickMin, brickMax, zRange );
+				if ( step > 0 )
+					position[ 2 ] += steps( z, zRange[ 1 ], step ) * step;
+				else
+					position[ 2 ] += steps( -z, -zRange[ 0 ], -step ) * step;
+			}
+		}
+		
+		final protected int brick( final int l, final long[] f )
+		{
+			final long s = index.brickSize( l );
+			final long bx = Math.max( 0, f[ 0 ] ) / s;
+			final long by = Math.max( 0, f[ 1 ] ) / s;
+			final long bz = Math.max( 0, f[ 2 ] ) / s;
+			return ( int )( ( bz * index.numBricks( l, 1 ) + by ) * index.numBricks( l, 0 ) + bx );
+		}
+		
+		@Override
+		public void move( final long distance, final int d )
+		{
+			position[ d ] += distance;
+			if ( d == 2 && distance != 0 )
+				skip( distance );
+		}
+		
+		@Override
+		public void move( final int distance, final int d )
+		{
+			move( ( long )distance, d );
+		}
+		
+		@Override
+		public T get()
+		{
+			sourceAccess.setPosition( position );
+			return sourceAccess.get();
+		}
+
+		@Override
+		public SkippingRandomAccess copy()
+		{
+			final SkippingRandomAccess copy = new SkippingRandomAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+
+		@Override
+		public SkippingRandomAccess copyRandomAccess()
+		{
+			return copy();
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+/**
+ * {@link SlicedARGBSampler} storing a, r, g, b as interleaved floats,
+ * 16 bytes per voxel.
+ */
+public class FloatRGBASampler extends SlicedARGBSampler
+{
+	final protected float[][] slices;
+	
+	public FloatRGBASampler( final int width, final int height, final int depth, final boolean linear )
+	{
+		super( width, height, depth, linear );
+		slices = new float[ depth ][];
+	}
+	
+	@Override
+	protected void createSlice( final int z )
+	{
+		slices[ z ] = new float[ 4 * width * height ];
+	}
+	
+	@Override
+	final protected void store( final int z, final int i, final double a, final double r, final double g, final double b )
+	{
+		final float[] slice = slices[ z ];
+		final int j = 4 * i;
+		slice[ j ] = ( float )a;
+		slice[ j + 1 ] = ( float )r;
+		slice[ j + 2 ] = ( float )g;
+		slice[ j + 3 ] = ( float )b;
+	}
+	
+	@Override
+	final protected void voxel( final int x, final int y, final int z, final double[] argb )
+	{
+		final float[] slice = slices[ z ];
+		final int j = 4 * ( y * width + x );
+		argb[ 0 ] = slice[ j ];
+		argb[ 1 ] = slice[ j + 1 ];
+		argb[ 2 ] = slice[ j + 2 ];
+		argb[ 3 ] = slice[ j + 3 ];
+	}
+	
+	@Override
+	final protected void addVoxel( final int x, final int y, final int z, final double w, final double[] argb )
+	{
+		final float[] slice = slices[ z ];
+		final int j = 4 * ( y * width + x );
+		argb[ 0 ] += w * slice[ j ];
+		argb[ 1 ] += w * slice[ j + 1 ];
+		argb[ 2 ] += w * slice[ j + 2 ];
+		argb[ 3 ] += w * slice[ j + 3 ];
+	}
+}
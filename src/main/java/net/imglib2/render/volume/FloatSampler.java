@@ -0,0 +1,201 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.RealInterval;
+import net.imglib2.RealPoint;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.cell.CellImg;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.render.volume.Renderer.Interpolation;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Nearest neighbor and n-linear interpolation of a 3d float volume that is
+ * zero outside of [0, dimension).  This replaces
+ * {@link net.imglib2.view.Views#interpolate} over an extended view for
+ * containers whose float arrays can be read directly.  Implementations
+ * provide access to voxels and read the eight neighbors of n-linear
+ * interpolation inside the volume.
+ */
+abstract public class FloatSampler implements RealRandomAccessible< FloatType >
+{
+	final protected int width, height, depth;
+	final protected boolean linear;
+	
+	public FloatSampler( final int width, final int height, final int depth, final boolean linear )
+	{
+		this.width = width;
+		this.height = height;
+		this.depth = depth;
+		this.linear = linear;
+	}
+	
+	/**
+	 * Voxel (x, y, z) which is inside the volume.
+	 */
+	abstract protected float voxel( final int x, final int y, final int z );
+	
+	/**
+	 * n-linear interpolation at (x0 + fx, y0 + fy, z0 + fz) where all eight
+	 * neighbors are inside the volume.
+	 */
+	abstract protected double interior( final int x0, final int y0, final int z0, final double fx, final double fy, final double fz );
+	
+	final protected float voxelOrZero( final int x, final int y, final int z )
+	{
+		if ( x < 0 || y < 0 || z < 0 || x >= width || y >= height || z >= depth )
+			return 0;
+		return voxel( x, y, z );
+	}
+	
+	final static protected double lerp(
+			final double v000, final double v100, final double v010, final double v110,
+			final double v001, final double v101, final double v011, final double v111,
+			final double fx, final double fy, final double fz )
+	{
+		final double v00 = v000 + fx * ( v100 - v000 );
+		final double v10 = v010 + fx * ( v110 - v010 );
+		final double v01 = v001 + fx * ( v101 - v001 );
+		final double v11 = v011 + fx * ( v111 - v011 );
+		final double v0 = v00 + fy * ( v10 - v00 );
+		final double v1 = v01 + fy * ( v11 - v01 );
+		return v0 + fz * ( v1 - v0 );
+	}
+	
+	final public double nearestNeighbor( final double x, final double y, final double z )
+	{
+		final double rx = Math.floor( x + 0.5 );
+		final double ry = Math.floor( y + 0.5 );
+		final double rz = Math.floor( z + 0.5 );
+		if ( rx < 0 || ry < 0 || rz < 0 || rx >= width || ry >= height || rz >= depth )
+			return 0;
+		return voxel( ( int )rx, ( int )ry, ( int )rz );
+	}
+	
+	final public double nLinear( final double x, final double y, final double z )
+	{
+		final double x0d = Math.floor( x );
+		final double y0d = Math.floor( y );
+		final double z0d = Math.floor( z );
+		if ( x0d < -1 || y0d < -1 || z0d < -1 || x0d >= width || y0d >= height || z0d >= depth )
+			return 0;
+		
+		final int x0 = ( int )x0d;
+		final int y0 = ( int )y0d;
+		final int z0 = ( int )z0d;
+		final double fx = x - x0d;
+		final double fy = y - y0d;
+		final double fz = z - z0d;
+		
+		if ( x0 >= 0 && y0 >= 0 && z0 >= 0 && x0 < width - 1 && y0 < height - 1 && z0 < depth - 1 )
+			return interior( x0, y0, z0, fx, fy, fz );
+		
+		final int x1 = x0 + 1;
+		final int y1 = y0 + 1;
+		final int z1 = z0 + 1;
+		return lerp(
+				voxelOrZero( x0, y0, z0 ), voxelOrZero( x1, y0, z0 ), voxelOrZero( x0, y1, z0 ), voxelOrZero( x1, y1, z0 ),
+				voxelOrZero( x0, y0, z1 ), voxelOrZero( x1, y0, z1 ), voxelOrZero( x0, y1, z1 ), voxelOrZero( x1, y1, z1 ),
+				fx, fy, fz );
+	}
+	
+	final public double sample( final double x, final double y, final double z )
+	{
+		return linear ? nLinear( x, y, z ) : nearestNeighbor( x, y, z );
+	}
+	
+	@Override
+	public int numDimensions()
+	{
+		return 3;
+	}
+
+	@Override
+	public RealRandomAccess< FloatType > realRandomAccess()
+	{
+		return new FloatSamplerAccess();
+	}
+
+	@Override
+	public RealRandomAccess< FloatType > realRandomAccess( final RealInterval interval )
+	{
+		return realRandomAccess();
+	}
+	
+	public class FloatSamplerAccess extends RealPoint implements RealRandomAccess< FloatType >
+	{
+		final protected FloatType t = new FloatType();
+		
+		public FloatSamplerAccess()
+		{
+			super( 3 );
+		}
+		
+		@Override
+		public FloatType get()
+		{
+			t.set( ( float )sample( position[ 0 ], position[ 1 ], position[ 2 ] ) );
+			return t;
+		}
+
+		@Override
+		public FloatSamplerAccess copy()
+		{
+			final FloatSamplerAccess copy = new FloatSamplerAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+
+		@Override
+		public FloatSamplerAccess copyRealRandomAccess()
+		{
+			return copy();
+		}
+	}
+	
+	/**
+	 * Create the sampler for a 3d float source if its container is supported
+	 * and the interpolation method is nearest neighbor or n-linear.
+	 * 
+	 * @return null otherwise
+	 */
+	@SuppressWarnings( "unchecked" )
+	final static public FloatSampler create( final RandomAccessibleInterval< ? > source, final Interpolation interpolationMethod )
+	{
+		if (
+				interpolationMethod == Interpolation.LC ||
+				source.numDimensions() != 3 ||
+				source.min( 0 ) != 0 || source.min( 1 ) != 0 || source.min( 2 ) != 0 ||
+				!( source.randomAccess().get() instanceof FloatType ) )
+			return null;
+		
+		final boolean linear = interpolationMethod == Interpolation.NL;
+		if ( source instanceof ArrayImg && ( ( ArrayImg< ?, ? > )source ).update( null ) instanceof FloatArray )
+			return new ArrayFloatSampler( ( ArrayImg< FloatType, FloatArray > )source, linear );
+		if ( source instanceof PlanarImg && ( ( PlanarImg< ?, ? > )source ).numSlices() > 0 && ( ( PlanarImg< ?, ? > )source ).getPlane( 0 ) instanceof FloatArray )
+			return new PlanarFloatSampler( ( PlanarImg< FloatType, FloatArray > )source, linear );
+		if ( source instanceof CellImg )
+			return CellFloatSampler.create( ( CellImg< FloatType, ?, ? > )source, linear );
+		
+		return null;
+	}
+}
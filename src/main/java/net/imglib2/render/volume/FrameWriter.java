@@ -0,0 +1,30 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import ij.ImagePlus;
+
+import java.io.IOException;
+
+/**
+ * Receives the rendered frames of an {@link Animation}.  Frames may arrive
+ * out of order but write is never called concurrently.
+ */
+public interface FrameWriter
+{
+	public void write( final int frame, final ImagePlus imp ) throws IOException;
+}
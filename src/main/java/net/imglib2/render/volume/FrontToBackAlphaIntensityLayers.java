@@ -0,0 +1,78 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Front-to-back variant of {@link AlphaIntensityLayers}.  Samples are
+ * composited starting at min, on the same grid as the back-to-front
+ * rendering, while tracking the accumulated transmittance.  The ray is
+ * terminated as soon as the transmittance drops below minTransmittance.
+ * 
+ * The difference to the back-to-front result is bounded by
+ * minTransmittance * max( |intensity| ) of the samples behind the
+ * termination point and the initial accumulator value.
+ * 
+ * The inherited {@link #accumulateBatch} composites back-to-front without
+ * termination.
+ */
+public class FrontToBackAlphaIntensityLayers< T extends RealType< T > > extends AlphaIntensityLayers< T >
+{
+	final protected double minTransmittance;
+	
+	public FrontToBackAlphaIntensityLayers( final double scale, final double offset, final double minTransmittance )
+	{
+		super( scale, offset );
+		this.minTransmittance = minTransmittance;
+	}
+	
+	public FrontToBackAlphaIntensityLayers( final double scale, final double offset )
+	{
+		this( scale, offset, 1.0 / 255.0 );
+	}
+	
+	@Override
+	public void accumulateRow(
+			final T accumulator,
+			final RandomAccess< T > access,
+			final long min,
+			final long max,
+			final long step,
+			final int d )
+	{
+		if ( max < min )
+			return;
+		
+		/* first sample of the back-to-front grid max, max - step, ... */
+		access.setPosition( max - ( max - min ) / step * step, d );
+		double a = 0;
+		double transmittance = 1.0;
+		while ( access.getLongPosition( d ) <= max )
+		{
+			final double b = access.get().getRealDouble();
+			final double alpha = alpha( b );
+			a += transmittance * b * alpha;
+			transmittance *= 1.0 - alpha;
+			if ( transmittance < minTransmittance )
+				break;
+			access.move( step, d );
+		}
+		accumulator.setReal( a + transmittance * accumulator.getRealDouble() );
+	}
+}
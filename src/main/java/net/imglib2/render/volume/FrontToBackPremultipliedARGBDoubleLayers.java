@@ -0,0 +1,80 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.AbstractARGBDoubleType;
+
+/**
+ * Front-to-back variant of {@link PremultipliedARGBDoubleLayers}, see
+ * {@link FrontToBackARGBDoubleLayers}.
+ */
+public class FrontToBackPremultipliedARGBDoubleLayers< T extends AbstractARGBDoubleType< T > > extends PremultipliedARGBDoubleLayers< T >
+{
+	final protected double minTransmittance;
+	
+	public FrontToBackPremultipliedARGBDoubleLayers( final double minTransmittance )
+	{
+		this.minTransmittance = minTransmittance;
+	}
+	
+	public FrontToBackPremultipliedARGBDoubleLayers()
+	{
+		this( 1.0 / 255.0 );
+	}
+	
+	@Override
+	public void accumulateRow(
+			final T accumulator,
+			final RandomAccess< T > access,
+			final long min,
+			final long max,
+			final long step,
+			final int d )
+	{
+		if ( max < min )
+			return;
+		
+		/* first sample of the back-to-front grid max, max - step, ... */
+		access.setPosition( max - ( max - min ) / step * step, d );
+		double a = 0;
+		double r = 0;
+		double g = 0;
+		double b = 0;
+		double transmittance = 1.0;
+		while ( access.getLongPosition( d ) <= max )
+		{
+			final T argb = access.get();
+			final double alpha = argb.getA();
+			
+			a += transmittance * alpha * alpha;
+			r += transmittance * argb.getR();
+			g += transmittance * argb.getG();
+			b += transmittance * argb.getB();
+			
+			transmittance *= 1.0 - alpha;
+			if ( transmittance < minTransmittance )
+				break;
+			access.move( step, d );
+		}
+		accumulator.set(
+				a + transmittance * accumulator.getA(),
+				r + transmittance * accumulator.getR(),
+				g + transmittance * accumulator.getG(),
+				b + transmittance * accumulator.getB() );
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import ij.ImagePlus;
+
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.img.Img;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.render.volume.Renderer.Interpolation;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * A stack prepared for gray rendering with {@link Renderer#renderGray}: the
+ * float volume, its interpolant and the brick index for empty space
+ * skipping, optionally with coarser levels of a resolution pyramid.
+ * Read-only after construction, so any number of threads can render it at
+ * the same time.
+ */
+public class GrayVolume
+{
+	/* null for volumes on disk */
+	final protected Img< FloatType > img;
+	final protected FinalInterval box;
+	final protected Interpolation interpolationMethod;
+	final protected RealRandomAccessible< FloatType > interpolant;
+	
+	/* null for Lanczos interpolation which reads beyond the bricks */
+	final protected BrickIndex index;
+	
+	/* next coarser level of the resolution pyramid, null for none */
+	final protected GrayVolume coarser;
+	
+	/**
+	 * @param impSource 3d image, will be converted to float
+	 * @param interpolationMethod
+	 * @param numLevels number of resolution levels including the full resolution, see {@link VolumePyramid}
+	 * @param pyramidDirectory TIFF cache of the coarser levels, null for none, levels are cached in a subdirectory per source
+	 * @param pool for copying, downsampling and indexing, null for the calling thread
+	 */
+	public GrayVolume(
+			final ImagePlus impSource,
+			final Interpolation interpolationMethod,
+			final int numLevels,
+			final String pyramidDirectory,
+			final ForkJoinPool pool )
+	{
+		/* wrap or copy contents */
+		this( Renderer.floatImagePlus( impSource, pool ), interpolationMethod, numLevels, 0, VolumePyramid.directory( pyramidDirectory, impSource ), pool );
+		
+		System.out.println(
+				box.dimension( 0 ) + " " + 
+				box.dimension( 1 ) + " " +
+				box.dimension( 2 ) );
+	}
+	
+	/**
+	 * @param impSource 3d image, will be converted to float
+	 * @param interpolationMethod
+	 * @param pool for copying and indexing, null for the calling thread
+	 */
+	public GrayVolume(
+			final ImagePlus impSource,
+			final Interpolation interpolationMethod,
+			final ForkJoinPool pool )
+	{
+		this( impSource, interpolationMethod, 1, null, pool );
+	}
+	
+	/**
+	 * @param impSource 3d image or time series, will be converted to float
+	 * @param t 0-based frame of the time series
+	 * @param interpolationMethod
+	 * @param pool for copying and indexing, null for the calling thread
+	 */
+	public GrayVolume(
+			final ImagePlus impSource,
+			final int t,
+			final Interpolation interpolationMethod,
+			final ForkJoinPool pool )
+	{
+		this( Renderer.floatImagePlus( impSource, t, pool ), interpolationMethod, 1, 0, null, pool );
+	}
+	
+	/**
+	 * Volume without an Img whose interpolant is filled elsewhere, e.g. by
+	 * {@link StreamingGrayVolume}.  No empty space skipping, no pyramid.
+	 */
+	protected GrayVolume(
+			final FinalInterval box,
+			final Interpolation interpolationMethod,
+			final RealRandomAccessible< FloatType > interpolant )
+	{
+		if ( interpolationMethod == Interpolation.LC )
+			throw new IllegalArgumentException( "Lanczos interpolation is not supported for this volume." );
+		
+		img = null;
+		this.box = box;
+		this.interpolationMethod = interpolationMethod;
+		this.interpolant = interpolant;
+		index = null;
+		coarser = null;
+	}
+	
+	/**
+	 * Render a {@link BlockVolume} on disk whose blocks are read on demand.
+	 * Empty space skipping and the resolution pyramid are not available
+	 * because they would require a pass over the whole volume.
+	 * 
+	 * @param blocks
+	 * @param interpolationMethod nearest neighbor or n-linear
+	 * @param maxBytes memory budget for loaded blocks
+	 */
+	public GrayVolume(
+			final BlockVolume blocks,
+			final Interpolation interpolationMethod,
+			final long maxBytes )
+	{
+		this(
+				new FinalInterval( blocks.width(), blocks.height(), blocks.depth() ),
+				interpolationMethod,
+				new BlockFloatSampler( blocks, interpolationMethod == Interpolation.NL, maxBytes ) );
+	}
+	
+	protected GrayVolume(
+			final PlanarImg< FloatType, FloatArray > img,
+			final Interpolation interpolationMethod,
+			final int numLevels,
+			final int level,
+			final String pyramidDirectory,
+			final ForkJoinPool pool )
+	{
+		this.img = img;
+		box = new FinalInterval( img );
+		this.interpolationMethod = interpolationMethod;
+		
+		interpolant = Renderer.buildInterpolant( img, interpolationMethod );
+		
+		final RenderStats stats = RenderStats.current();
+		
+		/* index for empty space skipping, Lanczos reads beyond the bricks */
+		final long t0 = System.nanoTime();
+		if ( interpolationMethod == Interpolation.LC )
+			index = null;
+		else
+			index = new BrickIndex( Collections.singletonList( img ), Renderer.brickSize, pool );
+		if ( stats != null )
+			stats.phase( RenderStats.Phase.INDEX, System.nanoTime() - t0 );
+		
+		if ( numLevels > 1 && Math.max( img.dimension( 0 ), Math.max( img.dimension( 1 ), img.dimension( 2 ) ) ) > 1 )
+			coarser = new GrayVolume(
+					VolumePyramid.coarser( img, VolumePyramid.file( pyramidDirectory, level + 1 ), pool ),
+					interpolationMethod,
+					numLevels - 1,
+					level + 1,
+					pyramidDirectory,
+					pool );
+		else
+			coarser = null;
+	}
+	
+	public int numLevels()
+	{
+		return coarser == null ? 1 : coarser.numLevels() + 1;
+	}
+	
+	/**
+	 * Level l of the resolution pyramid, 0 is this volume.
+	 */
+	public GrayVolume level( final int l )
+	{
+		return l == 0 ? this : coarser.level( l - 1 );
+	}
+	
+	/**
+	 * @return null for volumes on disk
+	 */
+	public Img< FloatType > img()
+	{
+		return img;
+	}
+}
@@ -0,0 +1,58 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import ij.ImagePlus;
+import ij.io.FileSaver;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes frames as a numbered TIFF or PNG sequence
+ * directory/prefix00000.tif, directory/prefix00001.tif, ...
+ */
+public class ImageSequenceWriter implements FrameWriter
+{
+	public enum Format { TIFF, PNG };
+	
+	final protected File directory;
+	final protected String prefix;
+	final protected Format format;
+	
+	public ImageSequenceWriter( final File directory, final String prefix, final Format format )
+	{
+		this.directory = directory;
+		this.prefix = prefix;
+		this.format = format;
+	}
+	
+	public File file( final int frame )
+	{
+		return new File( directory, String.format( "%s%05d.%s", prefix, frame, format == Format.TIFF ? "tif" : "png" ) );
+	}
+	
+	@Override
+	public void write( final int frame, final ImagePlus imp ) throws IOException
+	{
+		final String path = file( frame ).getAbsolutePath();
+		final FileSaver saver = new FileSaver( imp );
+		final boolean success = format == Format.TIFF ? saver.saveAsTiff( path ) : saver.saveAsPng( path );
+		if ( !success )
+			throw new IOException( "Could not write frame " + frame + " to " + path );
+	}
+}
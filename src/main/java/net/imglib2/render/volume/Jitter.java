@@ -0,0 +1,71 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+/**
+ * Deterministic per-ray jitter of the sample positions along the rays.
+ * Instead of sampling all rays at the same canvas z-grid, which produces
+ * wood-grain artifacts on surfaces that are nearly parallel to the canvas,
+ * the grid of each ray is shifted by a hashed offset within one step.  The
+ * pattern depends only on the pixel and the seed, so renderings are
+ * reproducible and do not flicker between frames of an animation.
+ * 
+ * With numSamples > 1, each pixel averages numSamples rays with stratified
+ * offsets (hash + i) / numSamples.
+ */
+public class Jitter
+{
+	final protected long seed;
+	final protected int numSamples;
+	
+	public Jitter( final long seed, final int numSamples )
+	{
+		this.seed = seed;
+		this.numSamples = numSamples;
+	}
+	
+	public Jitter( final long seed )
+	{
+		this( seed, 1 );
+	}
+	
+	public int numSamples()
+	{
+		return numSamples;
+	}
+	
+	/**
+	 * Hash of pixel (x, y) in [0, 1).
+	 */
+	final public double hash( final long x, final long y )
+	{
+		/* splitmix64 finalizer */
+		long h = seed + x * 0x9e3779b97f4a7c15L + y * 0xc2b2ae3d27d4eb4fL;
+		h = ( h ^ ( h >>> 30 ) ) * 0xbf58476d1ce4e5b9L;
+		h = ( h ^ ( h >>> 27 ) ) * 0x94d049bb133111ebL;
+		h = h ^ ( h >>> 31 );
+		return ( h >>> 11 ) * 0x1.0p-53;
+	}
+	
+	/**
+	 * Canvas z-offset of ray i of pixel (x, y) in [-stepSize / 2, stepSize / 2).
+	 */
+	final public double offset( final long x, final long y, final int i, final long stepSize )
+	{
+		return ( ( hash( x, y ) + i ) / numSamples - 0.5 ) * stepSize;
+	}
+}
@@ -0,0 +1,223 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import java.util.concurrent.ForkJoinPool;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.type.numeric.ARGBDoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.composite.RealComposite;
+
+/**
+ * {@link PremultipliedARGBSampler} that converts the volume brick by brick on
+ * first touch by any render thread.  Bricks are stored as interleaved
+ * premultiplied float RGBA in a {@link BlockCache}, i.e. each brick is
+ * converted once even if several threads touch it at the same time, and if
+ * the converted bricks exceed maxBytes, a clock sweep over the converted
+ * bricks drops those that were not touched since its last pass.  Dropped
+ * bricks are converted again when touched.
+ * 
+ * Only the ARGB conversion is deferred.  The composite volume that the
+ * bricks are converted from is the full float copy of the stack, and
+ * {@link ARGBVolume} builds the complete {@link BrickIndex} up front
+ * because empty space skipping has to know transparent bricks before they
+ * are touched.
+ */
+public class LazyARGBSampler extends PremultipliedARGBSampler
+{
+	final protected int brickBits, brickSize;
+	final protected int bricksX, bricksY, bricksZ;
+	final protected long maxBytes;
+	
+	/* converted bricks */
+	final protected BlockCache bricks;
+	
+	protected volatile RandomAccessible< RealComposite< FloatType > > composite;
+	protected volatile RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble;
+	
+	/**
+	 * @param brickBits edge length of the bricks is 2^brickBits
+	 * @param maxBytes memory budget for converted bricks
+	 */
+	public LazyARGBSampler(
+			final int width,
+			final int height,
+			final int depth,
+			final boolean linear,
+			final int brickBits,
+			final long maxBytes )
+	{
+		super( width, height, depth, linear );
+		this.brickBits = brickBits;
+		this.maxBytes = maxBytes;
+		brickSize = 1 << brickBits;
+		bricksX = ( width + brickSize - 1 ) >> brickBits;
+		bricksY = ( height + brickSize - 1 ) >> brickBits;
+		bricksZ = ( depth + brickSize - 1 ) >> brickBits;
+		bricks = new BlockCache(
+				bricksX * bricksY * bricksZ,
+				maxBytes,
+				new BlockCache.Loader()
+				{
+					@Override
+					public float[] load( final int i )
+					{
+						return convertBrick( i % bricksX, i / bricksX % bricksY, i / bricksX / bricksY );
+					}
+				} );
+	}
+	
+	/**
+	 * Bricks of 32^3 voxels.
+	 * 
+	 * @param maxBytes memory budget for converted bricks
+	 */
+	public LazyARGBSampler( final int width, final int height, final int depth, final boolean linear, final long maxBytes )
+	{
+		this( width, height, depth, linear, 5, maxBytes );
+	}
+	
+	public LazyARGBSampler( final int width, final int height, final int depth, final boolean linear )
+	{
+		this( width, height, depth, linear, defaultMaxBytes() );
+	}
+	
+	/**
+	 * Default memory budget for converted bricks, a quarter of the maximum
+	 * heap.
+	 */
+	final static public long defaultMaxBytes()
+	{
+		return Runtime.getRuntime().maxMemory() / 4;
+	}
+	
+	/**
+	 * Set the composite volume and drop all converted bricks.  Nothing is
+	 * converted here.
+	 * 
+	 * @param pool ignored, bricks are converted by the render threads
+	 */
+	@Override
+	public void convert(
+			final RandomAccessible< RealComposite< FloatType > > composite,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final ForkJoinPool pool )
+	{
+		this.composite = composite;
+		this.composite2ARGBDouble = composite2ARGBDouble;
+		bricks.clear();
+	}
+	
+	/**
+	 * Number of bytes held by converted bricks.
+	 */
+	public long bytes()
+	{
+		return bricks.bytes();
+	}
+	
+	final protected int brickWidth( final int bx )
+	{
+		return Math.min( brickSize, width - ( bx << brickBits ) );
+	}
+	
+	final protected int brickHeight( final int by )
+	{
+		return Math.min( brickSize, height - ( by << brickBits ) );
+	}
+	
+	final protected int brickDepth( final int bz )
+	{
+		return Math.min( brickSize, depth - ( bz << brickBits ) );
+	}
+	
+	/**
+	 * Offset of voxel (x, y, z) in its brick.
+	 */
+	final protected int offset( final int x, final int y, final int z )
+	{
+		final int mask = brickSize - 1;
+		return 4 * ( ( ( z & mask ) * brickHeight( y >> brickBits ) + ( y & mask ) ) * brickWidth( x >> brickBits ) + ( x & mask ) );
+	}
+	
+	/**
+	 * The brick containing voxel (x, y, z), converted if necessary.
+	 */
+	final protected float[] brick( final int x, final int y, final int z )
+	{
+		final int bx = x >> brickBits;
+		final int by = y >> brickBits;
+		final int bz = z >> brickBits;
+		return bricks.get( ( bz * bricksY + by ) * bricksX + bx );
+	}
+	
+	protected float[] convertBrick( final int bx, final int by, final int bz )
+	{
+		final int x0 = bx << brickBits;
+		final int y0 = by << brickBits;
+		final int z0 = bz << brickBits;
+		final int w = brickWidth( bx );
+		final int h = brickHeight( by );
+		final int d = brickDepth( bz );
+		final float[] data = new float[ 4 * w * h * d ];
+		final RandomAccess< RealComposite< FloatType > > access = composite.randomAccess();
+		final ARGBDoubleType argb = new ARGBDoubleType();
+		for ( int z = 0, j = 0; z < d; ++z )
+		{
+			access.setPosition( z0 + z, 2 );
+			for ( int y = 0; y < h; ++y )
+			{
+				access.setPosition( y0 + y, 1 );
+				for ( int x = 0; x < w; ++x, j += 4 )
+				{
+					access.setPosition( x0 + x, 0 );
+					composite2ARGBDouble.convert( access.get(), argb );
+					final double a = argb.getA();
+					data[ j ] = ( float )a;
+					data[ j + 1 ] = ( float )( a * argb.getR() );
+					data[ j + 2 ] = ( float )( a * argb.getG() );
+					data[ j + 3 ] = ( float )( a * argb.getB() );
+				}
+			}
+		}
+		return data;
+	}
+	
+	@Override
+	final protected void voxel( final int x, final int y, final int z, final double[] argb )
+	{
+		final float[] data = brick( x, y, z );
+		final int j = offset( x, y, z );
+		argb[ 0 ] = data[ j ];
+		argb[ 1 ] = data[ j + 1 ];
+		argb[ 2 ] = data[ j + 2 ];
+		argb[ 3 ] = data[ j + 3 ];
+	}
+	
+	@Override
+	final protected void addVoxel( final int x, final int y, final int z, final double w, final double[] argb )
+	{
+		final float[] data = brick( x, y, z );
+		final int j = offset( x, y, z );
+		argb[ 0 ] += w * data[ j ];
+		argb[ 1 ] += w * data[ j + 1 ];
+		argb[ 2 ] += w * data[ j + 2 ];
+		argb[ 3 ] += w * data[ j + 3 ];
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * {@link FloatSampler} reading the float[] of each slice of a
+ * {@link PlanarImg}, e.g. the pixel arrays of an ImageJ stack.
+ */
+public class PlanarFloatSampler extends FloatSampler
+{
+	final protected float[][] slices;
+	
+	public PlanarFloatSampler( final float[][] slices, final int width, final int height, final boolean linear )
+	{
+		super( width, height, slices.length, linear );
+		this.slices = slices;
+	}
+	
+	public PlanarFloatSampler( final PlanarImg< FloatType, FloatArray > img, final boolean linear )
+	{
+		this( slices( img ), ( int )img.dimension( 0 ), ( int )img.dimension( 1 ), linear );
+	}
+	
+	final static protected float[][] slices( final PlanarImg< FloatType, FloatArray > img )
+	{
+		final float[][] slices = new float[ img.numSlices() ][];
+		for ( int z = 0; z < slices.length; ++z )
+			slices[ z ] = img.getPlane( z ).getCurrentStorageArray();
+		return slices;
+	}
+	
+	@Override
+	final protected float voxel( final int x, final int y, final int z )
+	{
+		return slices[ z ][ y * width + x ];
+	}
+	
+	@Override
+	final protected double interior( final int x0, final int y0, final int z0, final double fx, final double fy, final double fz )
+	{
+		final float[] s0 = slices[ z0 ];
+		final float[] s1 = slices[ z0 + 1 ];
+		final int i00 = y0 * width + x0;
+		final int i10 = i00 + width;
+		return lerp(
+				s0[ i00 ], s0[ i00 + 1 ], s0[ i10 ], s0[ i10 + 1 ],
+				s1[ i00 ], s1[ i00 + 1 ], s1[ i10 ], s1[ i10 + 1 ],
+				fx, fy, fz );
+	}
+}
@@ -0,0 +1,97 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.type.numeric.AbstractARGBDoubleType;
+
+/**
+ * {@link ARGBDoubleLayers} for samples with premultiplied alpha as provided
+ * by {@link PremultipliedARGBSampler}, i.e. r, g, b of each sample are
+ * already weighted by its alpha.
+ */
+public class PremultipliedARGBDoubleLayers< T extends AbstractARGBDoubleType< T > > implements RowAccumulator< T >, BatchAccumulator
+{
+	@Override
+	public void accumulateRow(
+			final T accumulator,
+			final RandomAccess< T > access,
+			final long min,
+			final long max,
+			final long step,
+			final int d )
+	{
+		access.setPosition( max, d );
+		double a = accumulator.getA();
+		double r = accumulator.getR();
+		double g = accumulator.getG();
+		double b = accumulator.getB();
+		while ( access.getLongPosition( d ) >= min )
+		{
+			final T argb = access.get();
+			final double alpha = argb.getA();
+			
+			a *= 1.0 - alpha;
+			r *= 1.0 - alpha;
+			g *= 1.0 - alpha;
+			b *= 1.0 - alpha;
+			
+			a += alpha * alpha;
+			r += argb.getR();
+			g += argb.getG();
+			b += argb.getB();
+			
+			access.move( -step, d );
+		}
+		accumulator.set( a, r, g, b );
+	}
+	
+	@Override
+	public int numChannels()
+	{
+		return 4;
+	}
+	
+	@Override
+	public void accumulateBatch(
+			final double[][] accumulators,
+			final float[][] samples,
+			final int numRays,
+			final int numSamples )
+	{
+		final double[] a = accumulators[ 0 ];
+		final double[] r = accumulators[ 1 ];
+		final double[] g = accumulators[ 2 ];
+		final double[] b = accumulators[ 3 ];
+		final float[] as = samples[ 0 ];
+		final float[] rs = samples[ 1 ];
+		final float[] gs = samples[ 2 ];
+		final float[] bs = samples[ 3 ];
+		for ( int s = 0, o = 0; s < numSamples; ++s, o += numRays )
+		{
+			for ( int i = 0; i < numRays; ++i )
+			{
+				final double alpha = as[ o + i ];
+				final double t = 1.0 - alpha;
+				a[ i ] = a[ i ] * t + alpha * alpha;
+				r[ i ] = r[ i ] * t + rs[ o + i ];
+				g[ i ] = g[ i ] * t + gs[ o + i ];
+				b[ i ] = b[ i ] * t + bs[ o + i ];
+			}
+		}
+	}
+}
@@ -0,0 +1,235 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import java.util.concurrent.ForkJoinPool;
+
+import net.imglib2.RandomAccessible;
+import net.imglib2.RealInterval;
+import net.imglib2.RealPoint;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+import net.imglib2.type.numeric.ARGBDoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.composite.RealComposite;
+
+/**
+ * Nearest neighbor and n-linear interpolation of a compact ARGB volume with
+ * premultiplied alpha that is zero outside of [0, dimension).  The volume is
+ * the {@link RealCompositeARGBDoubleConverter} conversion of a multi-channel
+ * float volume, stored as (a, a * r, a * g, a * b) per voxel.  Samples are
+ * premultiplied and must be composited with
+ * {@link PremultipliedARGBDoubleLayers}.
+ */
+abstract public class PremultipliedARGBSampler implements RealRandomAccessible< ARGBDoubleType >
+{
+	final protected int width, height, depth;
+	final protected boolean linear;
+	
+	public PremultipliedARGBSampler( final int width, final int height, final int depth, final boolean linear )
+	{
+		this.width = width;
+		this.height = height;
+		this.depth = depth;
+		this.linear = linear;
+	}
+	
+	/**
+	 * Set argb to voxel (x, y, z) which is inside the volume.
+	 */
+	abstract protected void voxel( final int x, final int y, final int z, final double[] argb );
+	
+	/**
+	 * Add w * voxel (x, y, z) which is inside the volume to argb.
+	 */
+	abstract protected void addVoxel( final int x, final int y, final int z, final double w, final double[] argb );
+	
+	/**
+	 * Set the composite volume in [0, dimension) to be sampled.
+	 * 
+	 * @param pool for converting it, null for the calling thread
+	 */
+	abstract public void convert(
+			final RandomAccessible< RealComposite< FloatType > > composite,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final ForkJoinPool pool );
+	
+	final protected boolean contains( final int x, final int y, final int z )
+	{
+		return x >= 0 && y >= 0 && z >= 0 && x < width && y < height && z < depth;
+	}
+	
+	final public void nearestNeighbor( final double x, final double y, final double z, final double[] argb )
+	{
+		final double rx = Math.floor( x + 0.5 );
+		final double ry = Math.floor( y + 0.5 );
+		final double rz = Math.floor( z + 0.5 );
+		if ( rx < 0 || ry < 0 || rz < 0 || rx >= width || ry >= height || rz >= depth )
+			argb[ 0 ] = argb[ 1 ] = argb[ 2 ] = argb[ 3 ] = 0;
+		else
+			voxel( ( int )rx, ( int )ry, ( int )rz, argb );
+	}
+	
+	final public void nLinear( final double x, final double y, final double z, final double[] argb )
+	{
+		argb[ 0 ] = argb[ 1 ] = argb[ 2 ] = argb[ 3 ] = 0;
+		
+		final double x0d = Math.floor( x );
+		final double y0d = Math.floor( y );
+		final double z0d = Math.floor( z );
+		if ( x0d < -1 || y0d < -1 || z0d < -1 || x0d >= width || y0d >= height || z0d >= depth )
+			return;
+		
+		final int x0 = ( int )x0d;
+		final int y0 = ( int )y0d;
+		final int z0 = ( int )z0d;
+		final int x1 = x0 + 1;
+		final int y1 = y0 + 1;
+		final int z1 = z0 + 1;
+		final double fx = x - x0d;
+		final double fy = y - y0d;
+		final double fz = z - z0d;
+		final double gx = 1.0 - fx;
+		final double gy = 1.0 - fy;
+		final double gz = 1.0 - fz;
+		
+		if ( x0 >= 0 && y0 >= 0 && z0 >= 0 && x1 < width && y1 < height && z1 < depth )
+		{
+			addVoxel( x0, y0, z0, gx * gy * gz, argb );
+			addVoxel( x1, y0, z0, fx * gy * gz, argb );
+			addVoxel( x0, y1, z0, gx * fy * gz, argb );
+			addVoxel( x1, y1, z0, fx * fy * gz, argb );
+			addVoxel( x0, y0, z1, gx * gy * fz, argb );
+			addVoxel( x1, y0, z1, fx * gy * fz, argb );
+			addVoxel( x0, y1, z1, gx * fy * fz, argb );
+			addVoxel( x1, y1, z1, fx * fy * fz, argb );
+		}
+		else
+		{
+			if ( contains( x0, y0, z0 ) ) addVoxel( x0, y0, z0, gx * gy * gz, argb );
+			if ( contains( x1, y0, z0 ) ) addVoxel( x1, y0, z0, fx * gy * gz, argb );
+			if ( contains( x0, y1, z0 ) ) addVoxel( x0, y1, z0, gx * fy * gz, argb );
+			if ( contains( x1, y1, z0 ) ) addVoxel( x1, y1, z0, fx * fy * gz, argb );
+			if ( contains( x0, y0, z1 ) ) addVoxel( x0, y0, z1, gx * gy * fz, argb );
+			if ( contains( x1, y0, z1 ) ) addVoxel( x1, y0, z1, fx * gy * fz, argb );
+			if ( contains( x0, y1, z1 ) ) addVoxel( x0, y1, z1, gx * fy * fz, argb );
+			if ( contains( x1, y1, z1 ) ) addVoxel( x1, y1, z1, fx * fy * fz, argb );
+		}
+	}
+	
+	/**
+	 * This sampler with n-linear or nearest neighbor interpolation sharing
+	 * the same storage.
+	 */
+	public RealRandomAccessible< ARGBDoubleType > interpolant( final boolean linear )
+	{
+		if ( linear == this.linear )
+			return this;
+		
+		return new RealRandomAccessible< ARGBDoubleType >()
+		{
+			@Override
+			public int numDimensions()
+			{
+				return 3;
+			}
+
+			@Override
+			public RealRandomAccess< ARGBDoubleType > realRandomAccess()
+			{
+				return new PremultipliedARGBSamplerAccess( linear );
+			}
+
+			@Override
+			public RealRandomAccess< ARGBDoubleType > realRandomAccess( final RealInterval interval )
+			{
+				return realRandomAccess();
+			}
+		};
+	}
+	
+	final public void sample( final double x, final double y, final double z, final double[] argb )
+	{
+		sample( x, y, z, argb, linear );
+	}
+	
+	final protected void sample( final double x, final double y, final double z, final double[] argb, final boolean linear )
+	{
+		if ( linear )
+			nLinear( x, y, z, argb );
+		else
+			nearestNeighbor( x, y, z, argb );
+	}
+	
+	@Override
+	public int numDimensions()
+	{
+		return 3;
+	}
+
+	@Override
+	public RealRandomAccess< ARGBDoubleType > realRandomAccess()
+	{
+		return new PremultipliedARGBSamplerAccess();
+	}
+
+	@Override
+	public RealRandomAccess< ARGBDoubleType > realRandomAccess( final RealInterval interval )
+	{
+		return realRandomAccess();
+	}
+	
+	public class PremultipliedARGBSamplerAccess extends RealPoint implements RealRandomAccess< ARGBDoubleType >
+	{
+		final protected ARGBDoubleType t = new ARGBDoubleType();
+		final protected double[] argb = new double[ 4 ];
+		final protected boolean linear;
+		
+		public PremultipliedARGBSamplerAccess( final boolean linear )
+		{
+			super( 3 );
+			this.linear = linear;
+		}
+		
+		public PremultipliedARGBSamplerAccess()
+		{
+			this( PremultipliedARGBSampler.this.linear );
+		}
+		
+		@Override
+		public ARGBDoubleType get()
+		{
+			sample( position[ 0 ], position[ 1 ], position[ 2 ], argb, linear );
+			t.set( argb[ 0 ], argb[ 1 ], argb[ 2 ], argb[ 3 ] );
+			return t;
+		}
+
+		@Override
+		public PremultipliedARGBSamplerAccess copy()
+		{
+			final PremultipliedARGBSamplerAccess copy = new PremultipliedARGBSamplerAccess( linear );
+			copy.setPosition( this );
+			return copy;
+		}
+
+		@Override
+		public PremultipliedARGBSamplerAccess copyRealRandomAccess()
+		{
+			return copy();
+		}
+	}
+}
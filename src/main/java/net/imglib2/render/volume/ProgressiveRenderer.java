@@ -0,0 +1,285 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.Translation3D;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.AbstractARGBDoubleType;
+
+/**
+ * Progressive ARGB rendering of a prepared {@link ARGBVolume} for
+ * interactive exploration.  Each requested camera is rendered in passes
+ * into the same canvas:  coarse passes with nearest neighbor interpolation
+ * and a large step at halving pixel subsampling, then full quality passes
+ * at subsampling 2 and 1.  Pixels of a subsampled pass fill the blocks they
+ * represent.  A pass with the same settings as its predecessor at twice the
+ * subsampling renders only the new pixels and keeps the others.
+ * 
+ * Cameras are rendered one at a time on a background thread.  A new request
+ * stops the current rendering after the band of rows in progress, and
+ * requests that are superseded before they start are dropped.
+ */
+public class ProgressiveRenderer< T extends AbstractARGBDoubleType< T > >
+{
+	final protected ARGBVolume volume, coarseVolume;
+	final protected int[] argbPixels;
+	final protected int width, height;
+	final protected double distance, f;
+	final protected Translation3D offset;
+	final protected long stepSize, coarseStepSize;
+	final protected int initialSubsampling;
+	final protected T bg;
+	final protected double minTransmittance;
+	final protected Jitter jitter;
+	final protected ForkJoinPool pool;
+	final protected RefinementListener listener;
+	
+	/* transfer function evaluated on the brick index per pyramid level, valid for one frame */
+	protected boolean[][][] transparentLevels;
+	
+	final protected AtomicLong requests = new AtomicLong();
+	final protected ExecutorService renderer = Executors.newSingleThreadExecutor();
+	
+	/**
+	 * @param volume
+	 * @param argbCanvas target canvas, receives all passes
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center
+	 * @param stepSize z-stepping of the full quality passes
+	 * @param coarseStepSize z-stepping of the coarse passes
+	 * @param initialSubsampling pixel subsampling of the first pass, rounded down to a power of 2
+	 * @param bg background color
+	 * @param minTransmittance composite front-to-back and terminate rays once their transmittance drops below this value, 0 composites back-to-front
+	 * @param jitter offset the start of each ray by a hashed fraction of stepSize and average numSamples stratified rays per pixel in one pass, null for none
+	 * @param pool render tiles in parallel on this pool, null renders in the render thread
+	 * @param listener notified after each pass
+	 */
+	public ProgressiveRenderer(
+			final ARGBVolume volume,
+			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final long coarseStepSize,
+			final int initialSubsampling,
+			final T bg,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ForkJoinPool pool,
+			final RefinementListener listener )
+	{
+		this.volume = volume;
+		coarseVolume = volume.nearestNeighbor();
+		argbPixels = argbCanvas.update( null ).getCurrentStorageArray();
+		width = ( int )argbCanvas.dimension( 0 );
+		height = ( int )argbCanvas.dimension( 1 );
+		this.distance = distance;
+		this.f = f;
+		this.offset = offset;
+		this.stepSize = stepSize;
+		this.coarseStepSize = coarseStepSize;
+		this.initialSubsampling = Integer.highestOneBit( Math.max( 1, initialSubsampling ) );
+		this.bg = bg;
+		this.minTransmittance = minTransmittance;
+		this.jitter = jitter;
+		this.pool = pool;
+		this.listener = listener;
+	}
+	
+	/**
+	 * Coarse passes start at subsampling 8 with 4 * stepSize.
+	 */
+	public ProgressiveRenderer(
+			final ARGBVolume volume,
+			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final ForkJoinPool pool,
+			final RefinementListener listener )
+	{
+		this( volume, argbCanvas, distance, f, offset, stepSize, 4 * stepSize, 8, bg, 0, null, pool, listener );
+	}
+	
+	/**
+	 * Render orientation progressively in the background, stopping the
+	 * rendering of any earlier request.
+	 */
+	public void request( final AffineTransform3D orientation )
+	{
+		final AffineTransform3D camera = orientation.copy();
+		final long request = requests.incrementAndGet();
+		renderer.execute(
+				new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						if ( request == requests.get() )
+							render( camera, request );
+					}
+				} );
+	}
+	
+	/**
+	 * Stop rendering and release the render thread.
+	 */
+	public void shutdown()
+	{
+		requests.incrementAndGet();
+		renderer.shutdown();
+	}
+	
+	/**
+	 * Render all passes of orientation in the calling thread.
+	 * 
+	 * @return true if all passes were rendered, false if a newer request
+	 * 		arrived before
+	 */
+	protected boolean render( final AffineTransform3D orientation, final long request )
+	{
+		int pass = 0;
+		transparentLevels = new boolean[ volume.numLevels() ][][];
+		
+		/* coarse */
+		for ( int s = initialSubsampling; s > 1; s /= 2, ++pass )
+		{
+			if ( !renderPass( coarseVolume, orientation, coarseStepSize, s, s < initialSubsampling, request ) )
+				return false;
+			listener.passRendered( pass, s, false );
+		}
+		
+		/* full quality, reusing the last coarse pass if the settings match */
+		final boolean same = coarseVolume == volume && coarseStepSize == stepSize;
+		if ( !( same && initialSubsampling > 1 ) )
+		{
+			if ( !renderPass( volume, orientation, stepSize, 2, false, request ) )
+				return false;
+			listener.passRendered( pass++, 2, false );
+		}
+		if ( !renderPass( volume, orientation, stepSize, 1, true, request ) )
+			return false;
+		listener.passRendered( pass, 1, true );
+		
+		return true;
+	}
+	
+	/**
+	 * Render the pixels at subsampling s, the grid at 2s is kept if reuse
+	 * is true, and fill the s x s blocks of the canvas with them.
+	 */
+	protected boolean renderPass(
+			final ARGBVolume passVolume,
+			final AffineTransform3D orientation,
+			final long passStepSize,
+			final int s,
+			final boolean reuse,
+			final long request )
+	{
+		if ( reuse )
+		{
+			if (
+					!renderGrid( passVolume, orientation, passStepSize, 2 * s, s, 0, request ) ||
+					!renderGrid( passVolume, orientation, passStepSize, 2 * s, 0, s, request ) ||
+					!renderGrid( passVolume, orientation, passStepSize, 2 * s, s, s, request ) )
+				return false;
+		}
+		else if ( !renderGrid( passVolume, orientation, passStepSize, s, 0, 0, request ) )
+			return false;
+		
+		/* fill blocks, the top left pixel of each block is rendered */
+		if ( s > 1 )
+		{
+			for ( int y = 0; y < height; ++y )
+			{
+				final int row = y * width;
+				final int blockRow = ( y - y % s ) * width;
+				for ( int x = 0; x < width; ++x )
+					if ( x % s != 0 || row != blockRow )
+						argbPixels[ row + x ] = argbPixels[ blockRow + x - x % s ];
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Render the camera pixels (x0 + s * i, y0 + s * j) band by band,
+	 * stopping between bands if a newer request arrived.
+	 */
+	protected boolean renderGrid(
+			final ARGBVolume passVolume,
+			final AffineTransform3D orientation,
+			final long passStepSize,
+			final int s,
+			final int x0,
+			final int y0,
+			final long request )
+	{
+		final int gridWidth = ( width - x0 + s - 1 ) / s;
+		final int gridHeight = ( height - y0 + s - 1 ) / s;
+		if ( gridWidth <= 0 || gridHeight <= 0 )
+			return true;
+		
+		for ( int j0 = 0; j0 < gridHeight; j0 += Renderer.tileSize )
+		{
+			if ( request != requests.get() )
+				return false;
+			
+			final int bandHeight = Math.min( Renderer.tileSize, gridHeight - j0 );
+			final int[] band = new int[ gridWidth * bandHeight ];
+			Renderer.renderARGB(
+					passVolume,
+					ArrayImgs.argbs( band, gridWidth, bandHeight ),
+					width,
+					height,
+					s,
+					x0,
+					y0 + ( long )s * j0,
+					orientation,
+					distance,
+					f,
+					offset,
+					passStepSize,
+					bg,
+					minTransmittance,
+					jitter,
+					transparentLevels,
+					pool );
+			
+			for ( int j = 0; j < bandHeight; ++j )
+			{
+				final int row = ( y0 + s * ( j0 + j ) ) * width + x0;
+				for ( int i = 0; i < gridWidth; ++i )
+					argbPixels[ row + s * i ] = band[ j * gridWidth + i ];
+			}
+		}
+		return true;
+	}
+}
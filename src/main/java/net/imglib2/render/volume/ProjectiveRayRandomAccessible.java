@@ -0,0 +1,125 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.Interval;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.RealRandomAccess;
+import net.imglib2.RealRandomAccessible;
+
+/**
+ * A {@link RealRandomAccessible} rendered through the {@link ProjectiveRays}
+ * of a camera.  Replaces {@link net.imglib2.realtransform.RealViews#transform}
+ * for the renderer: instead of applying the whole transformation sequence at
+ * each sample, the source position is updated along the current ray by
+ * adding the source increment of the z-offset since the last sample.  Ray
+ * origin and direction are updated only when x or y change.
+ */
+public class ProjectiveRayRandomAccessible< T > implements RandomAccessible< T >
+{
+	final protected RealRandomAccessible< T > source;
+	final protected ProjectiveRays rays;
+	
+	public ProjectiveRayRandomAccessible( final RealRandomAccessible< T > source, final ProjectiveRays rays )
+	{
+		this.source = source;
+		this.rays = rays;
+	}
+
+	@Override
+	public int numDimensions()
+	{
+		return 3;
+	}
+
+	@Override
+	public RayRandomAccess randomAccess()
+	{
+		return new RayRandomAccess();
+	}
+
+	@Override
+	public RayRandomAccess randomAccess( final Interval interval )
+	{
+		return randomAccess();
+	}
+	
+	public class RayRandomAccess extends Point implements RandomAccess< T >
+	{
+		final protected RealRandomAccess< T > sourceAccess;
+		
+		/* current ray and the canvas z of the current source position */
+		protected long rayX = Long.MIN_VALUE, rayY = Long.MIN_VALUE, rayZ;
+		final protected double[] origin = new double[ 3 ];
+		final protected double[] direction = new double[ 3 ];
+		final protected double[] sourcePosition = new double[ 3 ];
+		
+		public RayRandomAccess()
+		{
+			super( 3 );
+			sourceAccess = source.realRandomAccess();
+		}
+		
+		final protected void updateSourcePosition()
+		{
+			final long z = position[ 2 ];
+			if ( position[ 0 ] != rayX || position[ 1 ] != rayY )
+			{
+				rayX = position[ 0 ];
+				rayY = position[ 1 ];
+				rayZ = z;
+				rays.origin( rayX, rayY, origin );
+				rays.direction( rayX, rayY, direction );
+				sourcePosition[ 0 ] = origin[ 0 ] + z * direction[ 0 ];
+				sourcePosition[ 1 ] = origin[ 1 ] + z * direction[ 1 ];
+				sourcePosition[ 2 ] = origin[ 2 ] + z * direction[ 2 ];
+			}
+			else if ( z != rayZ )
+			{
+				final long dz = z - rayZ;
+				rayZ = z;
+				sourcePosition[ 0 ] += dz * direction[ 0 ];
+				sourcePosition[ 1 ] += dz * direction[ 1 ];
+				sourcePosition[ 2 ] += dz * direction[ 2 ];
+			}
+		}
+		
+		@Override
+		public T get()
+		{
+			updateSourcePosition();
+			sourceAccess.setPosition( sourcePosition );
+			return sourceAccess.get();
+		}
+
+		@Override
+		public RayRandomAccess copy()
+		{
+			final RayRandomAccess copy = new RayRandomAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+
+		@Override
+		public RayRandomAccess copyRandomAccess()
+		{
+			return copy();
+		}
+	}
+}
@@ -0,0 +1,383 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.imglib2.realtransform.InvertibleRealTransform;
+
+/**
+ * Rays of the canvas pixels in source coordinates.  For the camera built by
+ * {@link Renderer#buildAffineTransform} and {@link Renderer#appendCamera},
+ * the source position of canvas (x, y, z) is
+ * 
+ * origin(x, y) + z * direction(x, y)
+ * 
+ * with origin and direction being affine in x and y.  Both are probed once
+ * from the inverse of the source to canvas transformation, such that the
+ * source position of any sample along a ray is a multiply-add away.
+ */
+public class ProjectiveRays
+{
+	final protected double[] o = new double[ 3 ];
+	final protected double[] ox = new double[ 3 ];
+	final protected double[] oy = new double[ 3 ];
+	final protected double[] d = new double[ 3 ];
+	final protected double[] dx = new double[ 3 ];
+	final protected double[] dy = new double[ 3 ];
+	
+	/* null for rays that start at canvas z = 0 */
+	final protected Jitter jitter;
+	final protected int sample;
+	final protected long stepSize;
+	
+	/* ray (x, y) is the ray of camera pixel (cameraX0 + cameraSubsampling * x, cameraY0 + cameraSubsampling * y) */
+	final protected long cameraSubsampling;
+	final protected double cameraX0, cameraY0;
+	
+	/**
+	 * @param sourceToCanvas the transformation from source to canvas
+	 * 		coordinates, straight lines along canvas z must map to straight
+	 * 		lines in source space
+	 */
+	public ProjectiveRays( final InvertibleRealTransform sourceToCanvas )
+	{
+		jitter = null;
+		sample = 0;
+		stepSize = 1;
+		cameraSubsampling = 1;
+		cameraX0 = 0;
+		cameraY0 = 0;
+		
+		final double[] p000 = probe( sourceToCanvas, 0, 0, 0 );
+		final double[] p100 = probe( sourceToCanvas, 1, 0, 0 );
+		final double[] p010 = probe( sourceToCanvas, 0, 1, 0 );
+		final double[] p001 = probe( sourceToCanvas, 0, 0, 1 );
+		final double[] p101 = probe( sourceToCanvas, 1, 0, 1 );
+		final double[] p011 = probe( sourceToCanvas, 0, 1, 1 );
+		
+		for ( int i = 0; i < 3; ++i )
+		{
+			o[ i ] = p000[ i ];
+			ox[ i ] = p100[ i ] - p000[ i ];
+			oy[ i ] = p010[ i ] - p000[ i ];
+			d[ i ] = p001[ i ] - p000[ i ];
+			dx[ i ] = p101[ i ] - p100[ i ] - d[ i ];
+			dy[ i ] = p011[ i ] - p010[ i ] - d[ i ];
+		}
+	}
+	
+	protected ProjectiveRays( final ProjectiveRays rays, final Jitter jitter, final int sample, final long stepSize )
+	{
+		for ( int i = 0; i < 3; ++i )
+		{
+			o[ i ] = rays.o[ i ];
+			ox[ i ] = rays.ox[ i ];
+			oy[ i ] = rays.oy[ i ];
+			d[ i ] = rays.d[ i ];
+			dx[ i ] = rays.dx[ i ];
+			dy[ i ] = rays.dy[ i ];
+		}
+		this.jitter = jitter;
+		this.sample = sample;
+		this.stepSize = stepSize;
+		cameraSubsampling = rays.cameraSubsampling;
+		cameraX0 = rays.cameraX0;
+		cameraY0 = rays.cameraY0;
+	}
+	
+	/**
+	 * The same rays with each ray shifted along itself by the canvas z-offset
+	 * of its sample in jitter.
+	 */
+	public ProjectiveRays jitter( final Jitter jitter, final int sample, final long stepSize )
+	{
+		return new ProjectiveRays( this, jitter, sample, stepSize );
+	}
+	
+	protected ProjectiveRays( final ProjectiveRays rays, final int subsampling, final double x0, final double y0 )
+	{
+		for ( int i = 0; i < 3; ++i )
+		{
+			o[ i ] = rays.o[ i ] + x0 * rays.ox[ i ] + y0 * rays.oy[ i ];
+			ox[ i ] = subsampling * rays.ox[ i ];
+			oy[ i ] = subsampling * rays.oy[ i ];
+			d[ i ] = rays.d[ i ] + x0 * rays.dx[ i ] + y0 * rays.dy[ i ];
+			dx[ i ] = subsampling * rays.dx[ i ];
+			dy[ i ] = subsampling * rays.dy[ i ];
+		}
+		jitter = rays.jitter;
+		sample = rays.sample;
+		stepSize = rays.stepSize;
+		cameraSubsampling = rays.cameraSubsampling * subsampling;
+		cameraX0 = rays.cameraX0 + rays.cameraSubsampling * x0;
+		cameraY0 = rays.cameraY0 + rays.cameraSubsampling * y0;
+	}
+	
+	/**
+	 * The rays of every subsampling-th canvas pixel starting at (x0, y0),
+	 * i.e. ray (x, y) of the result is ray
+	 * (x0 + subsampling * x, y0 + subsampling * y) of this.
+	 */
+	public ProjectiveRays subsample( final int subsampling, final double x0, final double y0 )
+	{
+		return new ProjectiveRays( this, subsampling, x0, y0 );
+	}
+	
+	protected ProjectiveRays( final ProjectiveRays rays, final double scale, final double shift )
+	{
+		for ( int i = 0; i < 3; ++i )
+		{
+			o[ i ] = scale * rays.o[ i ] + shift;
+			ox[ i ] = scale * rays.ox[ i ];
+			oy[ i ] = scale * rays.oy[ i ];
+			d[ i ] = scale * rays.d[ i ];
+			dx[ i ] = scale * rays.dx[ i ];
+			dy[ i ] = scale * rays.dy[ i ];
+		}
+		jitter = rays.jitter;
+		sample = rays.sample;
+		stepSize = rays.stepSize;
+		cameraSubsampling = rays.cameraSubsampling;
+		cameraX0 = rays.cameraX0;
+		cameraY0 = rays.cameraY0;
+	}
+	
+	/**
+	 * The same rays in source coordinates of level l of a
+	 * {@link VolumePyramid}.
+	 */
+	public ProjectiveRays level( final int l )
+	{
+		if ( l == 0 )
+			return this;
+		final double k = 1 << l;
+		return new ProjectiveRays( this, 1.0 / k, -( k - 1 ) / ( 2 * k ) );
+	}
+	
+	/**
+	 * Distance in source coordinates between the samples at canvas depth z
+	 * of neighboring rays, the larger of x and y.  Origin and direction are
+	 * affine, so it is the same for all rays.
+	 */
+	public double footprint( final double z )
+	{
+		double fx = 0, fy = 0;
+		for ( int i = 0; i < 3; ++i )
+		{
+			final double px = ox[ i ] + z * dx[ i ];
+			final double py = oy[ i ] + z * dy[ i ];
+			fx += px * px;
+			fy += py * py;
+		}
+		return Math.sqrt( Math.max( fx, fy ) );
+	}
+	
+	/**
+	 * Canvas z-offset of the ray of canvas pixel (x, y), hashed from the
+	 * camera pixel such that subsampled and full resolution rays of the
+	 * same camera pixel are jittered alike.
+	 */
+	final protected double zOffset( final double x, final double y )
+	{
+		if ( jitter == null )
+			return 0;
+		return jitter.offset(
+				( long )( cameraX0 + cameraSubsampling * x ),
+				( long )( cameraY0 + cameraSubsampling * y ),
+				sample,
+				stepSize );
+	}
+	
+	/**
+	 * Key of a camera setup, equal for equal parameter vectors.
+	 */
+	final static protected class Camera
+	{
+		final protected double[] parameters;
+		final protected int hashCode;
+		
+		public Camera( final double[] parameters )
+		{
+			this.parameters = parameters.clone();
+			hashCode = Arrays.hashCode( parameters );
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+		
+		@Override
+		public boolean equals( final Object o )
+		{
+			return o instanceof Camera && Arrays.equals( parameters, ( ( Camera )o ).parameters );
+		}
+	}
+	
+	final static protected int cacheSize = 16;
+	
+	/* recently used ray setups, repeated frames of the same camera and canvas reuse them */
+	final static private LinkedHashMap< Camera, ProjectiveRays > cache =
+			new LinkedHashMap< Camera, ProjectiveRays >( cacheSize, 0.75f, true )
+			{
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected boolean removeEldestEntry( final Map.Entry< Camera, ProjectiveRays > eldest )
+				{
+					return size() > cacheSize;
+				}
+			};
+	
+	/**
+	 * Get the cached rays of a camera or probe and cache them.
+	 * 
+	 * @param camera all parameters that define sourceToCanvas
+	 * @param sourceToCanvas
+	 */
+	final static synchronized public ProjectiveRays get( final double[] camera, final InvertibleRealTransform sourceToCanvas )
+	{
+		final Camera key = new Camera( camera );
+		ProjectiveRays rays = cache.get( key );
+		if ( rays == null )
+		{
+			rays = new ProjectiveRays( sourceToCanvas );
+			cache.put( key, rays );
+		}
+		return rays;
+	}
+	
+	final static protected double[] probe( final InvertibleRealTransform sourceToCanvas, final double x, final double y, final double z )
+	{
+		final double[] source = new double[ 3 ];
+		sourceToCanvas.applyInverse( source, new double[]{ x, y, z } );
+		return source;
+	}
+	
+	/**
+	 * Source position of canvas (x, y, 0), shifted by the jitter if any.
+	 */
+	final public void origin( final double x, final double y, final double[] origin )
+	{
+		final double z = zOffset( x, y );
+		for ( int i = 0; i < 3; ++i )
+			origin[ i ] = o[ i ] + x * ox[ i ] + y * oy[ i ] + z * ( d[ i ] + x * dx[ i ] + y * dy[ i ] );
+	}
+	
+	/**
+	 * Source increment per unit step along canvas z at (x, y).
+	 */
+	final public void direction( final double x, final double y, final double[] direction )
+	{
+		for ( int i = 0; i < 3; ++i )
+			direction[ i ] = d[ i ] + x * dx[ i ] + y * dy[ i ];
+	}
+	
+	/**
+	 * Intersect the ray of canvas pixel (x, y) with the source box [min, max]
+	 * and store the canvas z range of the intersection in zRange.
+	 * 
+	 * @return false if the ray misses the box
+	 */
+	final public boolean clip(
+			final double x,
+			final double y,
+			final double[] min,
+			final double[] max,
+			final double[] zRange )
+	{
+		final double z = zOffset( x, y );
+		double zMin = Double.NEGATIVE_INFINITY;
+		double zMax = Double.POSITIVE_INFINITY;
+		for ( int i = 0; i < 3; ++i )
+		{
+			final double direction = d[ i ] + x * dx[ i ] + y * dy[ i ];
+			final double origin = o[ i ] + x * ox[ i ] + y * oy[ i ] + z * direction;
+			if ( direction == 0 )
+			{
+				if ( origin < min[ i ] || origin > max[ i ] )
+					return false;
+			}
+			else
+			{
+				final double z1 = ( min[ i ] - origin ) / direction;
+				final double z2 = ( max[ i ] - origin ) / direction;
+				if ( z1 < z2 )
+				{
+					zMin = Math.max( zMin, z1 );
+					zMax = Math.min( zMax, z2 );
+				}
+				else
+				{
+					zMin = Math.max( zMin, z2 );
+					zMax = Math.min( zMax, z1 );
+				}
+			}
+		}
+		zRange[ 0 ] = zMin;
+		zRange[ 1 ] = zMax;
+		return zMin <= zMax;
+	}
+	
+	/**
+	 * Intersect a ray with the source box [min, max) and store the canvas z
+	 * range of the intersection in zRange.  The ray is given by its origin
+	 * and direction.
+	 * 
+	 * @return false if the ray misses the box
+	 */
+	final static public boolean intersect(
+			final double[] origin,
+			final double[] direction,
+			final double[] min,
+			final double[] max,
+			final double[] zRange )
+	{
+		double zMin = Double.NEGATIVE_INFINITY;
+		double zMax = Double.POSITIVE_INFINITY;
+		for ( int i = 0; i < 3; ++i )
+		{
+			if ( direction[ i ] == 0 )
+			{
+				if ( origin[ i ] < min[ i ] || origin[ i ] >= max[ i ] )
+					return false;
+			}
+			else
+			{
+				final double z1 = ( min[ i ] - origin[ i ] ) / direction[ i ];
+				final double z2 = ( max[ i ] - origin[ i ] ) / direction[ i ];
+				if ( z1 < z2 )
+				{
+					zMin = Math.max( zMin, z1 );
+					zMax = Math.min( zMax, z2 );
+				}
+				else
+				{
+					zMin = Math.max( zMin, z2 );
+					zMax = Math.min( zMax, z1 );
+				}
+			}
+		}
+		zRange[ 0 ] = zMin;
+		zRange[ 1 ] = zMax;
+		return zMin <= zMax;
+	}
+}
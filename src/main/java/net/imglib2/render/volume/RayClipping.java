@@ -0,0 +1,88 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.Interval;
+import net.imglib2.render.volume.Renderer.Interpolation;
+
+/**
+ * Clips the rays of canvas pixels to the part of the step grid that can
+ * read data from the source volume, i.e. the intersection of the ray with
+ * the source box extended by the support of the interpolator.  Samples
+ * outside read only the background.
+ */
+public class RayClipping
+{
+	/* tolerance for samples on the box boundary */
+	final static protected double eps = 1e-6;
+	
+	final protected ProjectiveRays rays;
+	
+	/* sample positions p with min <= p < max read data */
+	final protected double[] min = new double[ 3 ];
+	final protected double[] max = new double[ 3 ];
+	
+	/**
+	 * @param rays the rays of the canvas pixels in source coordinates
+	 * @param box the source volume
+	 * @param interpolationMethod
+	 */
+	public RayClipping( final ProjectiveRays rays, final Interval box, final Interpolation interpolationMethod )
+	{
+		this.rays = rays;
+		
+		/* voxels read at p: NN and NL floor( p ) .. floor( p ) + 1, LC floor( p ) - 2 .. floor( p ) + 3 */
+		final long margin = interpolationMethod == Interpolation.LC ? 3 : 1;
+		for ( int d = 0; d < 3; ++d )
+		{
+			min[ d ] = box.min( d ) - margin;
+			max[ d ] = box.max( d ) + margin;
+		}
+	}
+	
+	/**
+	 * Clip the samples maxZ, maxZ - step, ... &gt;= minZ of the ray through
+	 * canvas pixel (x, y).
+	 * 
+	 * @param zRange temporary storage for two doubles
+	 * @param range receives the clipped min and max, max being on the
+	 * 		step grid of the unclipped ray
+	 * @return false if no sample of the ray reads data
+	 */
+	public boolean clip(
+			final long x,
+			final long y,
+			final long minZ,
+			final long maxZ,
+			final long step,
+			final double[] zRange,
+			final long[] range )
+	{
+		if ( !rays.clip( x, y, min, max, zRange ) )
+			return false;
+		
+		final double zMin = Math.max( minZ, zRange[ 0 ] - eps );
+		final double zMax = Math.min( maxZ, zRange[ 1 ] + eps );
+		if ( zMin > zMax )
+			return false;
+		
+		range[ 0 ] = ( long )Math.ceil( zMin );
+		range[ 1 ] = maxZ - ( long )Math.ceil( ( maxZ - zMax ) / step ) * step;
+		
+		return range[ 0 ] <= range[ 1 ];
+	}
+}
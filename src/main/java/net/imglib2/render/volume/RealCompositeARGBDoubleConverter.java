@@ -27,7 +27,7 @@ import net.imglib2.view.composite.RealComposite;
  * @author Stephan Saalfeld <saalfeld@mpi-cbg.de>
  * @version 0.1a
  */
-public class RealCompositeARGBDoubleConverter< T extends RealType< T > > implements Converter< RealComposite< T >, ARGBDoubleType >
+public class RealCompositeARGBDoubleConverter< T extends RealType< T > > implements Converter< RealComposite< T >, ARGBDoubleType >, TransparencyTest
 {
 	final protected ARGBDoubleType[] argbs;
 	
@@ -71,5 +71,28 @@ public class RealCompositeARGBDoubleConverter< T extends RealType< T > > impleme
 		
 		output.set( a, r, g, b );
 	}
+	
+	/**
+	 * alpha is the clamped maximum of r, g, b which are linear in the
+	 * channels, so a range is transparent if the upper bounds of r, g, b
+	 * are not positive.
+	 */
+	@Override
+	public boolean isTransparent( final double[] min, final double[] max )
+	{
+		double r = 0, g = 0, b = 0;
+		for ( int i = 0; i < argbs.length; ++i )
+		{
+			final ARGBDoubleType c = argbs[ i ];
+			final double a = c.getA();
+			final double wr = a * c.getR();
+			final double wg = a * c.getG();
+			final double wb = a * c.getB();
+			r += Math.max( wr * min[ i ], wr * max[ i ] );
+			g += Math.max( wg * min[ i ], wg * max[ i ] );
+			b += Math.max( wb * min[ i ], wb * max[ i ] );
+		}
+		return r <= 0 && g <= 0 && b <= 0;
+	}
 
 }
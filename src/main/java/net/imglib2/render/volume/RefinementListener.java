@@ -0,0 +1,32 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+/**
+ * Notified by a {@link ProgressiveRenderer} whenever a refinement pass is
+ * complete in its canvas.  Called from the render thread, the next pass
+ * starts when it returns.
+ */
+public interface RefinementListener
+{
+	/**
+	 * @param pass index of the pass, starting at 0 for each camera
+	 * @param subsampling pixel subsampling of the pass, 1 for full resolution
+	 * @param last true for the final full quality pass
+	 */
+	public void passRendered( final int pass, final int subsampling, final boolean last );
+}
@@ -0,0 +1,30 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+/**
+ * Receives the phases and final statistics of renders recorded by a
+ * {@link RenderStats}.  Phases of concurrent work are reported from the
+ * thread that waited for it, but a listener may be called from several
+ * threads if the instrumented renders run concurrently.
+ */
+public interface RenderListener
+{
+	public void phaseFinished( final RenderStats.Phase phase, final long nanos );
+	
+	public void renderFinished( final RenderStats stats );
+}
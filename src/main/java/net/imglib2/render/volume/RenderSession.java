@@ -0,0 +1,332 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import ij.ImagePlus;
+import ij.process.ByteProcessor;
+import ij.process.ColorProcessor;
+import ij.process.FloatProcessor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.Translation3D;
+import net.imglib2.render.volume.Renderer.ARGBStorage;
+import net.imglib2.render.volume.Renderer.Interpolation;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.AbstractARGBDoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Renders one stack with many cameras and parameters.  The session prepares
+ * each {@link GrayVolume} and {@link ARGBVolume} once, on first use, and
+ * keeps it for all following renders such that a render only casts rays.
+ * Float canvases are recycled between renders.  All methods are thread-safe
+ * and renders run concurrently.  A volume is prepared only once even if
+ * several threads request it at the same time.
+ * 
+ * Composite volumes are identified by their converter instance, so a
+ * converter must not be changed once it was used with the session.
+ */
+public class RenderSession
+{
+	final protected ImagePlus imp;
+	final protected ForkJoinPool pool;
+	
+	/* memory budget for the bricks converted by lazy ARGB volumes */
+	final protected long maxBytes;
+	
+	/* prepared volumes by their parameters */
+	final protected ConcurrentHashMap< List< Object >, FutureTask< ? > > volumes = new ConcurrentHashMap< List< Object >, FutureTask< ? > >();
+	
+	/* recycled float canvases by size, at most maxBuffers per size */
+	final protected int maxBuffers;
+	final protected ConcurrentHashMap< Integer, ConcurrentLinkedQueue< float[] > > buffers = new ConcurrentHashMap< Integer, ConcurrentLinkedQueue< float[] > >();
+	
+	/**
+	 * @param imp the stack, must not be modified while the session is in use
+	 * @param pool for preparing volumes and rendering tiles, null for the calling thread
+	 * @param maxBytes memory budget for the bricks converted by each {@link ARGBStorage#LAZY} volume
+	 */
+	public RenderSession( final ImagePlus imp, final ForkJoinPool pool, final long maxBytes )
+	{
+		this.imp = imp;
+		this.pool = pool;
+		this.maxBytes = maxBytes;
+		maxBuffers = 2 * ( pool == null ? 1 : pool.getParallelism() );
+	}
+	
+	/**
+	 * @param imp the stack, must not be modified while the session is in use
+	 * @param pool for preparing volumes and rendering tiles, null for the calling thread
+	 */
+	public RenderSession( final ImagePlus imp, final ForkJoinPool pool )
+	{
+		this( imp, pool, LazyARGBSampler.defaultMaxBytes() );
+	}
+	
+	public RenderSession( final ImagePlus imp )
+	{
+		this( imp, Renderer.getSharedPool() );
+	}
+	
+	public ImagePlus imp()
+	{
+		return imp;
+	}
+	
+	public ForkJoinPool pool()
+	{
+		return pool;
+	}
+	
+	/**
+	 * Get or prepare the volume for key.
+	 */
+	@SuppressWarnings( "unchecked" )
+	protected < V > V volume( final List< Object > key, final Callable< V > prepare )
+	{
+		FutureTask< ? > task = volumes.get( key );
+		if ( task == null )
+		{
+			final FutureTask< V > newTask = new FutureTask< V >( prepare );
+			task = volumes.putIfAbsent( key, newTask );
+			if ( task == null )
+			{
+				task = newTask;
+				newTask.run();
+			}
+		}
+		try
+		{
+			return ( V )task.get();
+		}
+		catch ( final InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException( e );
+		}
+		catch ( final ExecutionException e )
+		{
+			/* let the next request retry */
+			volumes.remove( key, task );
+			throw new RuntimeException( e.getCause() );
+		}
+	}
+	
+	public GrayVolume grayVolume( final Interpolation interpolationMethod )
+	{
+		return volume(
+				Arrays.< Object >asList( GrayVolume.class, interpolationMethod ),
+				new Callable< GrayVolume >()
+				{
+					@Override
+					public GrayVolume call()
+					{
+						return new GrayVolume( imp, interpolationMethod, pool );
+					}
+				} );
+	}
+	
+	public ARGBVolume argbVolume(
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final ARGBStorage storage )
+	{
+		return volume(
+				Arrays.< Object >asList( ARGBVolume.class, interpolationMethod, composite2ARGBDouble, storage ),
+				new Callable< ARGBVolume >()
+				{
+					@Override
+					public ARGBVolume call()
+					{
+						return new ARGBVolume( imp, interpolationMethod, composite2ARGBDouble, storage, maxBytes, pool );
+					}
+				} );
+	}
+	
+	/**
+	 * Drop all prepared volumes and recycled canvases.  Renders that are
+	 * running keep their volumes.
+	 */
+	public void clear()
+	{
+		volumes.clear();
+		buffers.clear();
+	}
+	
+	/**
+	 * A recycled or new float[] of size n, not initialized.
+	 */
+	protected float[] floats( final int n )
+	{
+		final ConcurrentLinkedQueue< float[] > queue = buffers.get( n );
+		final float[] buffer = queue == null ? null : queue.poll();
+		return buffer == null ? new float[ n ] : buffer;
+	}
+	
+	protected void recycle( final float[] buffer )
+	{
+		if ( buffer == null )
+			return;
+		final Integer n = buffer.length;
+		ConcurrentLinkedQueue< float[] > queue = buffers.get( n );
+		if ( queue == null )
+		{
+			buffers.putIfAbsent( n, new ConcurrentLinkedQueue< float[] >() );
+			queue = buffers.get( n );
+		}
+		/* the size check races, so the bound is approximate */
+		if ( queue != null && queue.size() < maxBuffers )
+			queue.offer( buffer );
+	}
+	
+	/**
+	 * Gray rendering, see {@link Renderer#runGray}.
+	 */
+	public ImagePlus renderGray(
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final double bg,
+			final Interpolation interpolationMethod,
+			final double min,
+			final double max,
+			final double alphaScale,
+			final double alphaOffset, 
+			final boolean antiArtifactRendering,
+			final double minTransmittance,
+			final Jitter jitter )
+	{
+		final GrayVolume volume = grayVolume( interpolationMethod );
+		
+		final float[] floatPixels = floats( width * height );
+		final float[] scratch = antiArtifactRendering && jitter == null ? floats( width * height ) : null;
+		try
+		{
+			Renderer.renderGray(
+					volume,
+					floatPixels,
+					scratch,
+					width,
+					height,
+					orientation,
+					distance,
+					f,
+					offset,
+					stepSize,
+					bg,
+					alphaScale,
+					alphaOffset,
+					antiArtifactRendering,
+					minTransmittance,
+					jitter,
+					pool );
+			
+			final FloatProcessor fp = new FloatProcessor( width, height, floatPixels );
+			fp.setMinAndMax( min, max );
+			final ByteProcessor bp = ( ByteProcessor )fp.convertToByte( true );
+			
+			return new ImagePlus( imp.getTitle(), bp );
+		}
+		finally
+		{
+			recycle( floatPixels );
+			recycle( scratch );
+		}
+	}
+	
+	/**
+	 * ARGB rendering into argbCanvas, see {@link Renderer#runARGB}.
+	 */
+	public < T extends AbstractARGBDoubleType< T > > void renderARGB(
+			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ARGBStorage storage )
+	{
+		Renderer.renderARGB(
+				argbVolume( interpolationMethod, composite2ARGBDouble, storage ),
+				argbCanvas,
+				orientation,
+				distance,
+				f,
+				offset,
+				stepSize,
+				bg,
+				minTransmittance,
+				jitter,
+				pool );
+	}
+	
+	/**
+	 * ARGB rendering, see {@link Renderer#runARGB}.
+	 */
+	public < T extends AbstractARGBDoubleType< T > > ImagePlus renderARGB(
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ARGBStorage storage )
+	{
+		final int[] argbPixels = new int[ width * height ];
+		renderARGB(
+				ArrayImgs.argbs( argbPixels, width, height ),
+				orientation,
+				distance,
+				f,
+				offset,
+				stepSize,
+				bg,
+				interpolationMethod,
+				composite2ARGBDouble,
+				minTransmittance,
+				jitter,
+				storage );
+		return new ImagePlus( imp.getTitle(), new ColorProcessor( width, height, argbPixels ) );
+	}
+}
@@ -0,0 +1,220 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.imglib2.RandomAccessible;
+
+/**
+ * Opt-in instrumentation of renders: wall time per {@link Phase}, rays
+ * cast, samples read and skipped, and bytes allocated for copies of the
+ * volume.  Statistics are recorded for everything that the current thread
+ * renders between {@link #begin()} and {@link #end()}, e.g.
+ * 
+ * <pre>
+ * final RenderStats stats = new RenderStats( listener );
+ * stats.begin();
+ * try { Renderer.runARGB( ... ); }
+ * finally { stats.end(); }
+ * </pre>
+ * 
+ * Without an active RenderStats the renderer only looks up
+ * {@link #current()} once per phase, samples are not counted.
+ */
+public class RenderStats
+{
+	public enum Phase
+	{
+		/* copying the stack to float */
+		COPY,
+		/* building the brick index for empty space skipping */
+		INDEX,
+		/* converting composites to ARGB */
+		CONVERT,
+		/* computing or loading coarser pyramid levels */
+		PYRAMID,
+		/* transformations, rays, clipping and sources */
+		SETUP,
+		/* sampling and compositing */
+		RAY_MARCHING,
+		/* mixing stereo pairs into anaglyphs */
+		MIX
+	};
+	
+	final static protected ThreadLocal< RenderStats > current = new ThreadLocal< RenderStats >();
+	
+	final protected RenderListener listener;
+	
+	final protected AtomicLongArray phaseNanos = new AtomicLongArray( Phase.values().length );
+	final protected AtomicLong raysCast = new AtomicLong();
+	final protected AtomicLong samplesOnRays = new AtomicLong();
+	final protected AtomicLong bytesAllocated = new AtomicLong();
+	
+	/* counters of all counting accesses, guarded by this */
+	final protected ArrayList< long[] > sampleCounts = new ArrayList< long[] >();
+	
+	/* the thread's previous stats while this is active */
+	protected RenderStats previous;
+	
+	/**
+	 * @param listener null for none
+	 */
+	public RenderStats( final RenderListener listener )
+	{
+		this.listener = listener;
+	}
+	
+	public RenderStats()
+	{
+		this( null );
+	}
+	
+	/**
+	 * The RenderStats active in the calling thread, null for none.
+	 */
+	final static public RenderStats current()
+	{
+		return current.get();
+	}
+	
+	/**
+	 * Record renders of the calling thread until {@link #end()}.
+	 */
+	public void begin()
+	{
+		previous = current.get();
+		current.set( this );
+	}
+	
+	/**
+	 * Stop recording in the calling thread and report to the listener.
+	 */
+	public void end()
+	{
+		current.set( previous );
+		previous = null;
+		if ( listener != null )
+			listener.renderFinished( this );
+	}
+	
+	/**
+	 * Record renders of the calling thread, e.g. a worker rendering for the
+	 * thread that began this, until {@link #unbind(RenderStats)} without
+	 * reporting to the listener.
+	 * 
+	 * @return the stats to restore with {@link #unbind(RenderStats)}
+	 */
+	public RenderStats bind()
+	{
+		final RenderStats previous = current.get();
+		current.set( this );
+		return previous;
+	}
+	
+	final static public void unbind( final RenderStats previous )
+	{
+		current.set( previous );
+	}
+	
+	public void phase( final Phase phase, final long nanos )
+	{
+		phaseNanos.addAndGet( phase.ordinal(), nanos );
+		if ( listener != null )
+			listener.phaseFinished( phase, nanos );
+	}
+	
+	/**
+	 * Count numRays rays of numSamples samples each, before clipping and
+	 * skipping.
+	 */
+	public void rays( final long numRays, final long numSamples )
+	{
+		raysCast.addAndGet( numRays );
+		samplesOnRays.addAndGet( numRays * numSamples );
+	}
+	
+	public void allocated( final long bytes )
+	{
+		bytesAllocated.addAndGet( bytes );
+	}
+	
+	/**
+	 * Count the samples read from source.
+	 */
+	public < T > RandomAccessible< T > count( final RandomAccessible< T > source )
+	{
+		return new CountingRandomAccessible< T >( source, this );
+	}
+	
+	synchronized protected void register( final long[] count )
+	{
+		sampleCounts.add( count );
+	}
+	
+	public long phaseNanos( final Phase phase )
+	{
+		return phaseNanos.get( phase.ordinal() );
+	}
+	
+	public long raysCast()
+	{
+		return raysCast.get();
+	}
+	
+	/**
+	 * Samples read, valid after the renders have finished.
+	 */
+	synchronized public long samplesTaken()
+	{
+		long sum = 0;
+		for ( final long[] count : sampleCounts )
+			sum += count[ 0 ];
+		return sum;
+	}
+	
+	/**
+	 * Samples on the rays that were not read because they were clipped,
+	 * in empty space or behind the termination of the ray.
+	 */
+	public long samplesSkipped()
+	{
+		return Math.max( 0, samplesOnRays.get() - samplesTaken() );
+	}
+	
+	public long bytesAllocated()
+	{
+		return bytesAllocated.get();
+	}
+	
+	@Override
+	public String toString()
+	{
+		final StringBuilder s = new StringBuilder();
+		for ( final Phase phase : Phase.values() )
+			s.append( String.format( "%s %.1fms, ", phase, phaseNanos( phase ) / 1e6 ) );
+		s.append( String.format(
+				"%d rays, %d samples taken, %d samples skipped, %d bytes allocated",
+				raysCast(),
+				samplesTaken(),
+				samplesSkipped(),
+				bytesAllocated() ) );
+		return s.toString();
+	}
+}
@@ -18,10 +18,20 @@ package net.imglib2.render.volume;
 
 import ij.ImageJ;
 import ij.ImagePlus;
+import ij.ImageStack;
 import ij.process.ByteProcessor;
 import ij.process.ColorProcessor;
 import ij.process.FloatProcessor;
 import ij.process.ImageProcessor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
 import net.imglib2.Cursor;
 import net.imglib2.FinalInterval;
 import net.imglib2.FinalRealInterval;
@@ -39,6 +49,7 @@ import net.imglib2.img.array.ArrayImgs;
 import net.imglib2.img.basictypeaccess.array.FloatArray;
 import net.imglib2.img.basictypeaccess.array.IntArray;
 import net.imglib2.img.cell.CellImgFactory;
+import net.imglib2.img.planar.PlanarImg;
 import net.imglib2.interpolation.randomaccess.LanczosInterpolatorFactory;
 import net.imglib2.interpolation.randomaccess.NLinearInterpolatorFactory;
 import net.imglib2.interpolation.randomaccess.NearestNeighborInterpolatorFactory;
@@ -57,9 +68,9 @@ import net.imglib2.type.numeric.NativeARGBDoubleType;
 import net.imglib2.type.numeric.NumericType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Fraction;
 import net.imglib2.view.ExtendedRandomAccessibleInterval;
 import net.imglib2.view.Views;
-import net.imglib2.view.composite.CompositeView;
 import net.imglib2.view.composite.RealComposite;
 
 /**
@@ -72,6 +83,65 @@ public class Renderer
 	public enum Interpolation { NN, NL, LC };
 	public enum Anaglyph { RedCyan, RedGreen, GreenMagenta };
 	
+	/**
+	 * Storage of the ARGB copy of composite volumes: {@link NativeARGBDoubleType}
+	 * (32 B/voxel), premultiplied float RGBA (16 B/voxel), packed 8-bit
+	 * premultiplied RGBA (4 B/voxel), or premultiplied float RGBA bricks
+	 * converted on first touch and cached within a memory budget
+	 * ({@link LazyARGBSampler}) that the run methods, {@link ARGBVolume} and
+	 * {@link RenderSession} take as maxBytes.  LAZY saves only the ARGB copy,
+	 * the float copy of the stack and the {@link BrickIndex} are still built
+	 * in full before the first ray is cast, so time to first frame and peak
+	 * memory scale with the stack.
+	 */
+	public enum ARGBStorage { DOUBLE, FLOAT, BYTE, LAZY };
+	
+	/* edge length of the square canvas tiles rendered in parallel */
+	final static protected int tileSize = 64;
+	
+	/* edge length of the finest bricks for empty space skipping */
+	final static protected int brickSize = 8;
+	
+	/* neighboring rays composited together by a BatchAccumulator */
+	final static protected int packetSize = 16;
+	
+	static private ForkJoinPool sharedPool = null;
+	
+	/**
+	 * A fork-join pool shared by all parallel renderings, created on first
+	 * request with one worker per available processor.
+	 * 
+	 * @return
+	 */
+	final static synchronized public ForkJoinPool getSharedPool()
+	{
+		if ( sharedPool == null )
+			sharedPool = new ForkJoinPool();
+		return sharedPool;
+	}
+	
+	/**
+	 * Split the 2d canvas into tiles of at most tileSize x tileSize pixels.
+	 * 
+	 * @param target
+	 * @param tileSize
+	 * @return
+	 */
+	final static protected ArrayList< Interval > tiles( final Interval target, final int tileSize )
+	{
+		final ArrayList< Interval > tiles = new ArrayList< Interval >();
+		for ( long y = target.min( 1 ); y <= target.max( 1 ); y += tileSize )
+		{
+			final long maxY = Math.min( target.max( 1 ), y + tileSize - 1 );
+			for ( long x = target.min( 0 ); x <= target.max( 0 ); x += tileSize )
+			{
+				final long maxX = Math.min( target.max( 0 ), x + tileSize - 1 );
+				tiles.add( new FinalInterval( new long[]{ x, y }, new long[]{ maxX, maxY } ) );
+			}
+		}
+		return tiles;
+	}
+	
 	static protected < T extends NumericType< ? > > void render(
 			final RandomAccessible< T > source,
 			final RandomAccessibleInterval< T > target,
@@ -80,12 +150,33 @@ public class Renderer
 			final long stepSize,
 			final double bg,
 			final RowAccumulator< T > accumulator )
+	{
+		render( source, target, minZ, maxZ, stepSize, bg, accumulator, null );
+	}
+	
+	
+	/**
+	 * Render with each ray clipped to the samples that read data from the
+	 * source volume.  Rays that miss the volume leave their pixel
+	 * untouched.  A null clipping renders all samples from maxZ to minZ.
+	 */
+	static protected < T extends NumericType< ? > > void render(
+			final RandomAccessible< T > source,
+			final RandomAccessibleInterval< T > target,
+			final long minZ,
+			final long maxZ,
+			final long stepSize,
+			final double bg,
+			final RowAccumulator< T > accumulator,
+			final RayClipping clipping )
 	{
 		final RandomAccess< T > pixel = target.randomAccess( target );
 		final RandomAccess< T > poxel = source.randomAccess();
+		final double[] zRange = new double[ 2 ];
+		final long[] range = new long[]{ minZ, maxZ };
 		
 		pixel.setPosition( target.min( 0 ), 0 );
-		pixel.setPosition( target.min( 1 ), 0 );
+		pixel.setPosition( target.min( 1 ), 1 );
 
 		poxel.setPosition( pixel.getLongPosition( 0 ), 0 );
 		poxel.setPosition( pixel.getLongPosition( 1 ), 1 );
@@ -97,8 +188,11 @@ public class Renderer
 			poxel.setPosition( pixel.getLongPosition( 0 ), 0 );
 			while ( pixel.getLongPosition( 0 ) <= target.max( 0 ) )
 			{
-				poxel.setPosition( maxZ, 2 );
-				accumulator.accumulateRow( pixel.get(), poxel, minZ, maxZ, stepSize, 2 );
+				if ( clipping == null || clipping.clip( pixel.getLongPosition( 0 ), pixel.getLongPosition( 1 ), minZ, maxZ, stepSize, zRange, range ) )
+				{
+					poxel.setPosition( range[ 1 ], 2 );
+					accumulator.accumulateRow( pixel.get(), poxel, range[ 0 ], range[ 1 ], stepSize, 2 );
+				}
 				
 				pixel.fwd( 0 );
 				poxel.fwd( 0 );
@@ -118,13 +212,37 @@ public class Renderer
 			final long stepSize,
 			final T bg,
 			final RowAccumulator< T > accumulator )
+	{
+		renderARGBDouble( source, target, minZ, maxZ, stepSize, bg, accumulator, null );
+	}
+	
+	
+	/**
+	 * Render with each ray clipped to the samples that read data from the
+	 * source volume.  Rays that miss the volume are set to the background
+	 * color.  A null clipping renders all samples from maxZ to minZ.
+	 */
+	static protected < T extends AbstractARGBDoubleType< T > > void renderARGBDouble(
+			final RandomAccessible< T > source,
+			final RandomAccessibleInterval< ARGBType > target,
+			final long minZ,
+			final long maxZ,
+			final long stepSize,
+			final T bg,
+			final RowAccumulator< T > accumulator,
+			final RayClipping clipping )
 	{
 		final RandomAccess< ARGBType > pixel = target.randomAccess( target );
 		final RandomAccess< T > poxel = source.randomAccess();
 		final T accumulate = source.randomAccess().get().createVariable();
+		final double[] zRange = new double[ 2 ];
+		final long[] range = new long[]{ minZ, maxZ };
+		
+		accumulate.set( bg.getA(), bg.getR(), bg.getG(), bg.getB() );
+		final int bgARGB = accumulate.toARGBInt();
 		
 		pixel.setPosition( target.min( 0 ), 0 );
-		pixel.setPosition( target.min( 1 ), 0 );
+		pixel.setPosition( target.min( 1 ), 1 );
 
 		poxel.setPosition( pixel.getLongPosition( 0 ), 0 );
 		poxel.setPosition( pixel.getLongPosition( 1 ), 1 );
@@ -136,10 +254,15 @@ public class Renderer
 			poxel.setPosition( pixel.getLongPosition( 0 ), 0 );
 			while ( pixel.getLongPosition( 0 ) <= target.max( 0 ) )
 			{
-				poxel.setPosition( maxZ, 2 );
-				accumulate.set( bg.getA(), bg.getR(), bg.getG(), bg.getB() );
-				accumulator.accumulateRow( accumulate, poxel, minZ, maxZ, stepSize, 2 );
-				pixel.get().set( accumulate.toARGBInt() );
+				if ( clipping == null || clipping.clip( pixel.getLongPosition( 0 ), pixel.getLongPosition( 1 ), minZ, maxZ, stepSize, zRange, range ) )
+				{
+					poxel.setPosition( range[ 1 ], 2 );
+					accumulate.set( bg.getA(), bg.getR(), bg.getG(), bg.getB() );
+					accumulator.accumulateRow( accumulate, poxel, range[ 0 ], range[ 1 ], stepSize, 2 );
+					pixel.get().set( accumulate.toARGBInt() );
+				}
+				else
+					pixel.get().set( bgARGB );
 				
 				pixel.fwd( 0 );
 				poxel.fwd( 0 );
@@ -151,186 +274,889 @@ public class Renderer
 	}
 	
 	
-	final static public double accelerate( final double x )
+	/**
+	 * Render the target canvas tile by tile on a fork-join pool.  Each tile
+	 * is rendered by {@link #render(RandomAccessible, RandomAccessibleInterval, long, long, long, double, RowAccumulator, RayClipping)}
+	 * with its own source and target accesses, so the result is identical to
+	 * the serial rendering.  A null pool renders serially in the calling
+	 * thread.
+	 */
+	static protected < T extends NumericType< ? > > void render(
+			final RandomAccessible< T > source,
+			final RandomAccessibleInterval< T > target,
+			final long minZ,
+			final long maxZ,
+			final long stepSize,
+			final double bg,
+			final RowAccumulator< T > accumulator,
+			final RayClipping clipping,
+			final ForkJoinPool pool )
 	{
-		return 0.5 - 0.5 * Math.cos( Math.PI * x );
+		if ( pool == null )
+		{
+			render( source, target, minZ, maxZ, stepSize, bg, accumulator, clipping );
+			return;
+		}
+		
+		final ArrayList< RecursiveAction > tasks = new ArrayList< RecursiveAction >();
+		for ( final Interval tile : tiles( target, tileSize ) )
+			tasks.add(
+					new RecursiveAction()
+					{
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						final protected void compute()
+						{
+							render( source, Views.interval( target, tile ), minZ, maxZ, stepSize, bg, accumulator, clipping );
+						}
+					} );
+		invokeAll( pool, tasks );
 	}
 	
-	final static public double accelerate2( final double x )
+	
+	/**
+	 * Render the target canvas tile by tile on a fork-join pool.  Each tile
+	 * is rendered by {@link #renderARGBDouble(RandomAccessible, RandomAccessibleInterval, long, long, long, AbstractARGBDoubleType, RowAccumulator, RayClipping)}
+	 * with its own source and target accesses and accumulator variable, so
+	 * the result is identical to the serial rendering.  A null pool renders
+	 * serially in the calling thread.
+	 */
+	static protected < T extends AbstractARGBDoubleType< T > > void renderARGBDouble(
+			final RandomAccessible< T > source,
+			final RandomAccessibleInterval< ARGBType > target,
+			final long minZ,
+			final long maxZ,
+			final long stepSize,
+			final T bg,
+			final RowAccumulator< T > accumulator,
+			final RayClipping clipping,
+			final ForkJoinPool pool )
 	{
-		return Math.sin( 2 * Math.PI * accelerate( x ) );
+		if ( pool == null )
+		{
+			renderARGBDouble( source, target, minZ, maxZ, stepSize, bg, accumulator, clipping );
+			return;
+		}
+		
+		final ArrayList< RecursiveAction > tasks = new ArrayList< RecursiveAction >();
+		for ( final Interval tile : tiles( target, tileSize ) )
+			tasks.add(
+					new RecursiveAction()
+					{
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						final protected void compute()
+						{
+							renderARGBDouble( source, Views.interval( target, tile ), minZ, maxZ, stepSize, bg, accumulator, clipping );
+						}
+					} );
+		invokeAll( pool, tasks );
 	}
 	
+	
 	/**
-	 * 
-	 * @param affine
-	 * @param animation a value between 0 and 1 that specifies the camera position along a predefined path
+	 * Render the average of several renderings in one pass over the canvas,
+	 * e.g. of differently jittered rays.  Each pixel averages its rays in all
+	 * sources, each clipped by the corresponding clipping, null renders all
+	 * samples from maxZ to minZ.
 	 */
-	final static public void appendCamera1(
-			final AffineTransform3D affine,
-			final double animation )
+	static protected < T extends NumericType< T > > void render(
+			final List< ? extends RandomAccessible< T > > sources,
+			final RandomAccessibleInterval< T > target,
+			final long minZ,
+			final long maxZ,
+			final long stepSize,
+			final double bg,
+			final RowAccumulator< T > accumulator,
+			final List< RayClipping > clippings )
 	{
-		final AffineTransform3D rotation = new AffineTransform3D();
-		rotation.rotate( 0, animation * Math.PI * 2 );
+		final int n = sources.size();
+		final RandomAccess< T > pixel = target.randomAccess( target );
+		final ArrayList< RandomAccess< T > > poxels = new ArrayList< RandomAccess< T > >();
+		for ( final RandomAccessible< T > source : sources )
+			poxels.add( source.randomAccess() );
+		final T initial = pixel.get().createVariable();
+		final T sum = pixel.get().createVariable();
+		final T sample = pixel.get().createVariable();
+		final double[] zRange = new double[ 2 ];
+		final long[] range = new long[ 2 ];
 		
-		affine.preConcatenate( rotation );
+		for ( long y = target.min( 1 ); y <= target.max( 1 ); ++y )
+		{
+			pixel.setPosition( y, 1 );
+			for ( long x = target.min( 0 ); x <= target.max( 0 ); ++x )
+			{
+				pixel.setPosition( x, 0 );
+				initial.set( pixel.get() );
+				sum.setZero();
+				for ( int i = 0; i < n; ++i )
+				{
+					sample.set( initial );
+					final RayClipping clipping = clippings.get( i );
+					range[ 0 ] = minZ;
+					range[ 1 ] = maxZ;
+					if ( clipping == null || clipping.clip( x, y, minZ, maxZ, stepSize, zRange, range ) )
+					{
+						final RandomAccess< T > poxel = poxels.get( i );
+						poxel.setPosition( x, 0 );
+						poxel.setPosition( y, 1 );
+						poxel.setPosition( range[ 1 ], 2 );
+						accumulator.accumulateRow( sample, poxel, range[ 0 ], range[ 1 ], stepSize, 2 );
+					}
+					sum.add( sample );
+				}
+				sum.mul( 1.0 / n );
+				pixel.get().set( sum );
+			}
+		}
 	}
 	
 	
 	/**
-	 * 
-	 * @param affine
-	 * @param animation a value between 0 and 1 that specifies the camera position along a predefined path
+	 * ARGB variant of {@link #render(List, RandomAccessibleInterval, long, long, long, double, RowAccumulator, List)},
+	 * rays that miss the volume contribute the background color.
 	 */
-	final static public void appendCamera2(
-			final AffineTransform3D affine,
-			final double animation )
+	static protected < T extends AbstractARGBDoubleType< T > > void renderARGBDouble(
+			final List< ? extends RandomAccessible< T > > sources,
+			final RandomAccessibleInterval< ARGBType > target,
+			final long minZ,
+			final long maxZ,
+			final long stepSize,
+			final T bg,
+			final RowAccumulator< T > accumulator,
+			final List< RayClipping > clippings )
 	{
-		final AffineTransform3D rotation = new AffineTransform3D();
-		rotation.rotate( 1, animation * Math.PI * 2 );
+		final int n = sources.size();
+		final RandomAccess< ARGBType > pixel = target.randomAccess( target );
+		final ArrayList< RandomAccess< T > > poxels = new ArrayList< RandomAccess< T > >();
+		for ( final RandomAccessible< T > source : sources )
+			poxels.add( source.randomAccess() );
+		final T accumulate = bg.createVariable();
+		final double[] zRange = new double[ 2 ];
+		final long[] range = new long[ 2 ];
 		
-		affine.preConcatenate( rotation );
+		for ( long y = target.min( 1 ); y <= target.max( 1 ); ++y )
+		{
+			pixel.setPosition( y, 1 );
+			for ( long x = target.min( 0 ); x <= target.max( 0 ); ++x )
+			{
+				pixel.setPosition( x, 0 );
+				double a = 0, r = 0, g = 0, b = 0;
+				for ( int i = 0; i < n; ++i )
+				{
+					accumulate.set( bg.getA(), bg.getR(), bg.getG(), bg.getB() );
+					final RayClipping clipping = clippings.get( i );
+					range[ 0 ] = minZ;
+					range[ 1 ] = maxZ;
+					if ( clipping == null || clipping.clip( x, y, minZ, maxZ, stepSize, zRange, range ) )
+					{
+						final RandomAccess< T > poxel = poxels.get( i );
+						poxel.setPosition( x, 0 );
+						poxel.setPosition( y, 1 );
+						poxel.setPosition( range[ 1 ], 2 );
+						accumulator.accumulateRow( accumulate, poxel, range[ 0 ], range[ 1 ], stepSize, 2 );
+					}
+					a += accumulate.getA();
+					r += accumulate.getR();
+					g += accumulate.getG();
+					b += accumulate.getB();
+				}
+				accumulate.set( a / n, r / n, g / n, b / n );
+				pixel.get().set( accumulate.toARGBInt() );
+			}
+		}
 	}
 	
 	
 	/**
-	 * 
-	 * @param affine
-	 * @param animation a value between 0 and 1 that specifies the camera position along a predefined path
+	 * Render the average of several renderings tile by tile on a fork-join
+	 * pool, a null pool renders serially in the calling thread.
 	 */
-	final static public void appendCamera3(
-			final AffineTransform3D affine,
-			final double animation )
+	static protected < T extends NumericType< T > > void render(
+			final List< ? extends RandomAccessible< T > > sources,
+			final RandomAccessibleInterval< T > target,
+			final long minZ,
+			final long maxZ,
+			final long stepSize,
+			final double bg,
+			final RowAccumulator< T > accumulator,
+			final List< RayClipping > clippings,
+			final ForkJoinPool pool )
 	{
-		final AffineTransform3D rotation = new AffineTransform3D();
-		rotation.rotate( 2, animation * Math.PI * 2 );
+		if ( pool == null )
+		{
+			render( sources, target, minZ, maxZ, stepSize, bg, accumulator, clippings );
+			return;
+		}
 		
-		affine.preConcatenate( rotation );
+		final ArrayList< RecursiveAction > tasks = new ArrayList< RecursiveAction >();
+		for ( final Interval tile : tiles( target, tileSize ) )
+			tasks.add(
+					new RecursiveAction()
+					{
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						final protected void compute()
+						{
+							render( sources, Views.interval( target, tile ), minZ, maxZ, stepSize, bg, accumulator, clippings );
+						}
+					} );
+		invokeAll( pool, tasks );
 	}
 	
 	
 	/**
-	 * 
-	 * @param affine
-	 * @param animation a value between 0 and 1 that specifies the camera position along a predefined path
+	 * Render the average of several ARGB renderings tile by tile on a
+	 * fork-join pool, a null pool renders serially in the calling thread.
 	 */
-	final static public void appendCamera4(
-			final AffineTransform3D affine,
-			final double animation )
+	static protected < T extends AbstractARGBDoubleType< T > > void renderARGBDouble(
+			final List< ? extends RandomAccessible< T > > sources,
+			final RandomAccessibleInterval< ARGBType > target,
+			final long minZ,
+			final long maxZ,
+			final long stepSize,
+			final T bg,
+			final RowAccumulator< T > accumulator,
+			final List< RayClipping > clippings,
+			final ForkJoinPool pool )
 	{
-		final double l = accelerate( animation );
-		
-		final AffineTransform3D rotation = new AffineTransform3D();
-		rotation.rotate( 0, -l * Math.PI * 2 * 2 );
-		rotation.rotate( 1, animation * Math.PI * 2 );
+		if ( pool == null )
+		{
+			renderARGBDouble( sources, target, minZ, maxZ, stepSize, bg, accumulator, clippings );
+			return;
+		}
 		
-		affine.preConcatenate( rotation );
+		final ArrayList< RecursiveAction > tasks = new ArrayList< RecursiveAction >();
+		for ( final Interval tile : tiles( target, tileSize ) )
+			tasks.add(
+					new RecursiveAction()
+					{
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						final protected void compute()
+						{
+							renderARGBDouble( sources, Views.interval( target, tile ), minZ, maxZ, stepSize, bg, accumulator, clippings );
+						}
+					} );
+		invokeAll( pool, tasks );
 	}
 	
+	
 	/**
+	 * Clip the rays of a packet of numRays pixels starting at (x, y).  Rays
+	 * that miss the volume get an empty range.  packetRange receives the
+	 * union of all ranges, the samples of the packet are at
+	 * packetRange[ 1 ] - s * stepSize.
 	 * 
-	 * @param affine
-	 * @param animation a value between 0 and 1 that specifies the camera position along a predefined path
+	 * @return the number of samples of the packet, 0 if all rays miss
 	 */
-	final static public void appendCamera5(
-			final AffineTransform3D affine,
-			final double animation )
+	final static protected int clipPacket(
+			final long x,
+			final long y,
+			final int numRays,
+			final long minZ,
+			final long maxZ,
+			final long stepSize,
+			final RayClipping clipping,
+			final long[] first,
+			final long[] last,
+			final long[] packetRange )
 	{
-		final double l1 = accelerate( animation );
-		final double l2 = accelerate2( animation );
-		
-		final AffineTransform3D rotation = new AffineTransform3D();
-		rotation.rotate( 0, -l1 * Math.PI * 2 * 2 );
-		rotation.rotate( 1, l2 * Math.PI / 4 );
+		final double[] zRange = new double[ 2 ];
+		final long[] range = new long[ 2 ];
+		long lo = Long.MAX_VALUE;
+		long hi = Long.MIN_VALUE;
+		for ( int r = 0; r < numRays; ++r )
+		{
+			if ( clipping == null )
+			{
+				first[ r ] = minZ;
+				last[ r ] = maxZ;
+			}
+			else if ( clipping.clip( x + r, y, minZ, maxZ, stepSize, zRange, range ) )
+			{
+				first[ r ] = range[ 0 ];
+				last[ r ] = range[ 1 ];
+			}
+			else
+			{
+				first[ r ] = Long.MAX_VALUE;
+				last[ r ] = Long.MIN_VALUE;
+				continue;
+			}
+			lo = Math.min( lo, first[ r ] );
+			hi = Math.max( hi, last[ r ] );
+		}
+		if ( hi < lo )
+			return 0;
 		
-		affine.preConcatenate( rotation );
+		packetRange[ 0 ] = lo;
+		packetRange[ 1 ] = hi;
+		return ( int )( ( hi - lo ) / stepSize ) + 1;
 	}
 	
 	
-	final static protected Img< FloatType > floatCopyImagePlus( final ImagePlus imp )
+	/**
+	 * Render with a {@link BatchAccumulator}.  The samples of packets of
+	 * packetSize neighboring rays are read into primitive arrays, ray by
+	 * ray, and then composited in one batch.  Sample s of a packet is read
+	 * at packetRange[ 1 ] - s * stepSize, samples that are not read, i.e.
+	 * outside of the clipped range of a ray or jumped over by an
+	 * {@link EmptySpaceSkippingRandomAccessible}, are 0.  If 0 is
+	 * transparent for the accumulator and the accumulator composites
+	 * samples independently, the result is that of
+	 * {@link #render(RandomAccessible, RandomAccessibleInterval, long, long, long, double, RowAccumulator, RayClipping)}
+	 * up to float rounding of the samples.  Otherwise, render clipped or
+	 * skipping sources with render.
+	 */
+	static protected < T extends RealType< T > > void renderBatched(
+			final RandomAccessible< T > source,
+			final RandomAccessibleInterval< T > target,
+			final long minZ,
+			final long maxZ,
+			final long stepSize,
+			final BatchAccumulator accumulator,
+			final RayClipping clipping )
 	{
-		final Img< FloatType > img;
-		final int nPixels = imp.getWidth() * imp.getHeight();
-		final long nVoxels =
-				( long )nPixels *
-				( long )imp.getStack().getSize(); 
-		if ( nVoxels > Integer.MAX_VALUE )
-			img = new CellImgFactory< FloatType >( 256 ).create(
-					new long[]{
-							imp.getWidth(),
-							imp.getHeight(),
-							imp.getNSlices() },
-					new FloatType() );
-		else
-			img = new ArrayImgFactory< FloatType >().create(
-					new long[]{
-							imp.getWidth(),
-							imp.getHeight(),
-							imp.getNSlices() },
-					new FloatType() );
-		
-		for ( int z = 0; z < imp.getNSlices(); ++z )
+		final RandomAccess< T > pixel = target.randomAccess( target );
+		final RandomAccess< T > poxel = source.randomAccess();
+		final int maxSamples = ( int )( ( maxZ - minZ ) / stepSize ) + 1;
+		final float[][] samples = new float[ 1 ][ packetSize * maxSamples ];
+		final double[][] accumulators = new double[ 1 ][ packetSize ];
+		final long[] first = new long[ packetSize ];
+		final long[] last = new long[ packetSize ];
+		final long[] packetRange = new long[ 2 ];
+		
+		for ( long y = target.min( 1 ); y <= target.max( 1 ); ++y )
 		{
-			final ImageProcessor ip = imp.getStack().getProcessor( z + 1 );
-			final RandomAccessibleInterval< FloatType > slice = Views.hyperSlice( img, 2, z );
-			
-			final Cursor< FloatType > cursor = Views.flatIterable( slice ).cursor(); 
-			for ( int i = 0; i < nPixels; ++i )
-				cursor.next().set( ip.getf( i ) );
+			pixel.setPosition( y, 1 );
+			poxel.setPosition( y, 1 );
+			for ( long x = target.min( 0 ); x <= target.max( 0 ); x += packetSize )
+			{
+				final int numRays = ( int )Math.min( packetSize, target.max( 0 ) - x + 1 );
+				final int numSamples = clipPacket( x, y, numRays, minZ, maxZ, stepSize, clipping, first, last, packetRange );
+				if ( numSamples == 0 )
+					continue;
+				
+				/* gather */
+				final float[] intensities = samples[ 0 ];
+				final long hi = packetRange[ 1 ];
+				for ( int r = 0; r < numRays; ++r )
+				{
+					pixel.setPosition( x + r, 0 );
+					accumulators[ 0 ][ r ] = pixel.get().getRealDouble();
+					
+					int s = 0;
+					for ( ; s < numSamples && hi - s * stepSize > last[ r ]; ++s )
+						intensities[ s * numRays + r ] = 0;
+					poxel.setPosition( x + r, 0 );
+					poxel.setPosition( hi - s * stepSize, 2 );
+					while ( s < numSamples && poxel.getLongPosition( 2 ) >= first[ r ] )
+					{
+						intensities[ s * numRays + r ] = poxel.get().getRealFloat();
+						poxel.move( -stepSize, 2 );
+						
+						/* empty space skipping sources jump over several steps */
+						final long next = ( hi - poxel.getLongPosition( 2 ) ) / stepSize;
+						for ( ++s; s < next && s < numSamples; ++s )
+							intensities[ s * numRays + r ] = 0;
+					}
+					for ( ; s < numSamples; ++s )
+						intensities[ s * numRays + r ] = 0;
+				}
+				
+				/* composite */
+				accumulator.accumulateBatch( accumulators, samples, numRays, numSamples );
+				
+				for ( int r = 0; r < numRays; ++r )
+				{
+					pixel.setPosition( x + r, 0 );
+					pixel.get().setReal( accumulators[ 0 ][ r ] );
+				}
+			}
 		}
-		return img;
 	}
 	
 	
-	final static protected Img< FloatType > floatCopyCompositeImage( final ImagePlus imp )
+	/**
+	 * ARGB variant of {@link #renderBatched(RandomAccessible, RandomAccessibleInterval, long, long, long, BatchAccumulator, RayClipping)},
+	 * rays that miss the volume are set to the background color.
+	 */
+	static protected < T extends AbstractARGBDoubleType< T > > void renderARGBDoubleBatched(
+			final RandomAccessible< T > source,
+			final RandomAccessibleInterval< ARGBType > target,
+			final long minZ,
+			final long maxZ,
+			final long stepSize,
+			final T bg,
+			final BatchAccumulator accumulator,
+			final RayClipping clipping )
 	{
-		final Img< FloatType > img;
-		final int nPixels = imp.getWidth() * imp.getHeight();
-		final long nVoxels =
-				( long )nPixels *
-				( long )imp.getStack().getSize(); 
-		if ( nVoxels > Integer.MAX_VALUE )
-			img = new CellImgFactory< FloatType >( 256 ).create(
-					new long[]{
-							imp.getWidth(),
-							imp.getHeight(),
-							imp.getNChannels(),
-							imp.getNSlices() },
-					new FloatType() );
-		else
-			img = new ArrayImgFactory< FloatType >().create(
-					new long[]{
-							imp.getWidth(),
-							imp.getHeight(),
-							imp.getNChannels(),
-							imp.getNSlices() },
-					new FloatType() );
-		
-		for ( int c = 0; c < imp.getNChannels(); ++c )
+		final RandomAccess< ARGBType > pixel = target.randomAccess( target );
+		final RandomAccess< T > poxel = source.randomAccess();
+		final T accumulate = bg.createVariable();
+		final int maxSamples = ( int )( ( maxZ - minZ ) / stepSize ) + 1;
+		final float[][] samples = new float[ 4 ][ packetSize * maxSamples ];
+		final double[][] accumulators = new double[ 4 ][ packetSize ];
+		final long[] first = new long[ packetSize ];
+		final long[] last = new long[ packetSize ];
+		final long[] packetRange = new long[ 2 ];
+		
+		accumulate.set( bg.getA(), bg.getR(), bg.getG(), bg.getB() );
+		final int bgARGB = accumulate.toARGBInt();
+		final float[] as = samples[ 0 ], rs = samples[ 1 ], gs = samples[ 2 ], bs = samples[ 3 ];
+		
+		for ( long y = target.min( 1 ); y <= target.max( 1 ); ++y )
 		{
-			final RandomAccessibleInterval< FloatType > channel = Views.hyperSlice( img, 2, c );
-			for ( int z = 0; z < imp.getNSlices(); ++z )
+			pixel.setPosition( y, 1 );
+			poxel.setPosition( y, 1 );
+			for ( long x = target.min( 0 ); x <= target.max( 0 ); x += packetSize )
 			{
-				final ImageProcessor ip = imp.getStack().getProcessor( imp.getStackIndex( c + 1, z + 1, 1 ) );
-				final RandomAccessibleInterval< FloatType > slice = Views.hyperSlice( channel, 2, z );
+				final int numRays = ( int )Math.min( packetSize, target.max( 0 ) - x + 1 );
+				final int numSamples = clipPacket( x, y, numRays, minZ, maxZ, stepSize, clipping, first, last, packetRange );
+				if ( numSamples == 0 )
+				{
+					for ( int r = 0; r < numRays; ++r )
+					{
+						pixel.setPosition( x + r, 0 );
+						pixel.get().set( bgARGB );
+					}
+					continue;
+				}
+				
+				/* gather */
+				final long hi = packetRange[ 1 ];
+				for ( int r = 0; r < numRays; ++r )
+				{
+					accumulators[ 0 ][ r ] = bg.getA();
+					accumulators[ 1 ][ r ] = bg.getR();
+					accumulators[ 2 ][ r ] = bg.getG();
+					accumulators[ 3 ][ r ] = bg.getB();
+					
+					int s = 0;
+					for ( ; s < numSamples && hi - s * stepSize > last[ r ]; ++s )
+					{
+						final int i = s * numRays + r;
+						as[ i ] = rs[ i ] = gs[ i ] = bs[ i ] = 0;
+					}
+					poxel.setPosition( x + r, 0 );
+					poxel.setPosition( hi - s * stepSize, 2 );
+					while ( s < numSamples && poxel.getLongPosition( 2 ) >= first[ r ] )
+					{
+						final int i = s * numRays + r;
+						final T argb = poxel.get();
+						as[ i ] = ( float )argb.getA();
+						rs[ i ] = ( float )argb.getR();
+						gs[ i ] = ( float )argb.getG();
+						bs[ i ] = ( float )argb.getB();
+						poxel.move( -stepSize, 2 );
+						
+						/* empty space skipping sources jump over several steps */
+						final long next = ( hi - poxel.getLongPosition( 2 ) ) / stepSize;
+						for ( ++s; s < next && s < numSamples; ++s )
+						{
+							final int j = s * numRays + r;
+							as[ j ] = rs[ j ] = gs[ j ] = bs[ j ] = 0;
+						}
+					}
+					for ( ; s < numSamples; ++s )
+					{
+						final int i = s * numRays + r;
+						as[ i ] = rs[ i ] = gs[ i ] = bs[ i ] = 0;
+					}
+				}
 				
-				final Cursor< FloatType > cursor = Views.flatIterable( slice ).cursor(); 
-				for ( int i = 0; i < nPixels; ++i )
-					cursor.next().set( ip.getf( i ) );
+				/* composite */
+				accumulator.accumulateBatch( accumulators, samples, numRays, numSamples );
+				
+				for ( int r = 0; r < numRays; ++r )
+				{
+					accumulate.set( accumulators[ 0 ][ r ], accumulators[ 1 ][ r ], accumulators[ 2 ][ r ], accumulators[ 3 ][ r ] );
+					pixel.setPosition( x + r, 0 );
+					pixel.get().set( accumulate.toARGBInt() );
+				}
 			}
 		}
-		return img;
 	}
 	
 	
-	final static Img< NativeARGBDoubleType > convert(
-			final RandomAccessible< RealComposite< FloatType > > composite,
-			final Interval box,
-			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble )
+	/**
+	 * Batched rendering tile by tile on a fork-join pool, a null pool
+	 * renders serially in the calling thread.
+	 */
+	static protected < T extends RealType< T > > void renderBatched(
+			final RandomAccessible< T > source,
+			final RandomAccessibleInterval< T > target,
+			final long minZ,
+			final long maxZ,
+			final long stepSize,
+			final BatchAccumulator accumulator,
+			final RayClipping clipping,
+			final ForkJoinPool pool )
 	{
-		final RandomAccessible< ARGBDoubleType > argbComposite = Converters.convert(
-				composite,
-				composite2ARGBDouble,
+		if ( pool == null )
+		{
+			renderBatched( source, target, minZ, maxZ, stepSize, accumulator, clipping );
+			return;
+		}
+		
+		final ArrayList< RecursiveAction > tasks = new ArrayList< RecursiveAction >();
+		for ( final Interval tile : tiles( target, tileSize ) )
+			tasks.add(
+					new RecursiveAction()
+					{
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						final protected void compute()
+						{
+							renderBatched( source, Views.interval( target, tile ), minZ, maxZ, stepSize, accumulator, clipping );
+						}
+					} );
+		invokeAll( pool, tasks );
+	}
+	
+	
+	/**
+	 * Batched ARGB rendering tile by tile on a fork-join pool, a null pool
+	 * renders serially in the calling thread.
+	 */
+	static protected < T extends AbstractARGBDoubleType< T > > void renderARGBDoubleBatched(
+			final RandomAccessible< T > source,
+			final RandomAccessibleInterval< ARGBType > target,
+			final long minZ,
+			final long maxZ,
+			final long stepSize,
+			final T bg,
+			final BatchAccumulator accumulator,
+			final RayClipping clipping,
+			final ForkJoinPool pool )
+	{
+		if ( pool == null )
+		{
+			renderARGBDoubleBatched( source, target, minZ, maxZ, stepSize, bg, accumulator, clipping );
+			return;
+		}
+		
+		final ArrayList< RecursiveAction > tasks = new ArrayList< RecursiveAction >();
+		for ( final Interval tile : tiles( target, tileSize ) )
+			tasks.add(
+					new RecursiveAction()
+					{
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						final protected void compute()
+						{
+							renderARGBDoubleBatched( source, Views.interval( target, tile ), minZ, maxZ, stepSize, bg, accumulator, clipping );
+						}
+					} );
+		invokeAll( pool, tasks );
+	}
+	
+	
+	/**
+	 * Coarsest level of a resolution pyramid with numLevels levels whose
+	 * voxels are not larger than the footprint of a canvas pixel at the
+	 * center depth of the volume.
+	 */
+	final static protected int level( final ProjectiveRays rays, final long minZ, final long maxZ, final int numLevels )
+	{
+		final double footprint = rays.footprint( 0.5 * ( minZ + maxZ ) );
+		int l = 0;
+		while ( l + 1 < numLevels && ( 2 << l ) <= footprint )
+			++l;
+		return l;
+	}
+	
+	
+	/**
+	 * Run all tasks on the pool and wait until they are done.  Called from
+	 * a task of the same pool, the tasks are forked into it and the calling
+	 * worker helps running them, so nested renderings share the pool.
+	 * 
+	 * @param pool null for running them on the calling thread
+	 * @param tasks
+	 */
+	final static protected void invokeAll( final ForkJoinPool pool, final ArrayList< RecursiveAction > tasks )
+	{
+		if ( pool == null )
+		{
+			for ( final RecursiveAction task : tasks )
+				task.invoke();
+			return;
+		}
+		
+		if ( ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool )
+		{
+			ForkJoinTask.invokeAll( tasks );
+			return;
+		}
+		
+		pool.invoke(
+				new RecursiveAction()
+				{
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					final protected void compute()
+					{
+						invokeAll( tasks );
+					}
+				} );
+	}
+	
+	
+	final static public double accelerate( final double x )
+	{
+		return 0.5 - 0.5 * Math.cos( Math.PI * x );
+	}
+	
+	final static public double accelerate2( final double x )
+	{
+		return Math.sin( 2 * Math.PI * accelerate( x ) );
+	}
+	
+	/**
+	 * 
+	 * @param affine
+	 * @param animation a value between 0 and 1 that specifies the camera position along a predefined path
+	 */
+	final static public void appendCamera1(
+			final AffineTransform3D affine,
+			final double animation )
+	{
+		final AffineTransform3D rotation = new AffineTransform3D();
+		rotation.rotate( 0, animation * Math.PI * 2 );
+		
+		affine.preConcatenate( rotation );
+	}
+	
+	
+	/**
+	 * 
+	 * @param affine
+	 * @param animation a value between 0 and 1 that specifies the camera position along a predefined path
+	 */
+	final static public void appendCamera2(
+			final AffineTransform3D affine,
+			final double animation )
+	{
+		final AffineTransform3D rotation = new AffineTransform3D();
+		rotation.rotate( 1, animation * Math.PI * 2 );
+		
+		affine.preConcatenate( rotation );
+	}
+	
+	
+	/**
+	 * 
+	 * @param affine
+	 * @param animation a value between 0 and 1 that specifies the camera position along a predefined path
+	 */
+	final static public void appendCamera3(
+			final AffineTransform3D affine,
+			final double animation )
+	{
+		final AffineTransform3D rotation = new AffineTransform3D();
+		rotation.rotate( 2, animation * Math.PI * 2 );
+		
+		affine.preConcatenate( rotation );
+	}
+	
+	
+	/**
+	 * 
+	 * @param affine
+	 * @param animation a value between 0 and 1 that specifies the camera position along a predefined path
+	 */
+	final static public void appendCamera4(
+			final AffineTransform3D affine,
+			final double animation )
+	{
+		final double l = accelerate( animation );
+		
+		final AffineTransform3D rotation = new AffineTransform3D();
+		rotation.rotate( 0, -l * Math.PI * 2 * 2 );
+		rotation.rotate( 1, animation * Math.PI * 2 );
+		
+		affine.preConcatenate( rotation );
+	}
+	
+	/**
+	 * 
+	 * @param affine
+	 * @param animation a value between 0 and 1 that specifies the camera position along a predefined path
+	 */
+	final static public void appendCamera5(
+			final AffineTransform3D affine,
+			final double animation )
+	{
+		final double l1 = accelerate( animation );
+		final double l2 = accelerate2( animation );
+		
+		final AffineTransform3D rotation = new AffineTransform3D();
+		rotation.rotate( 0, -l1 * Math.PI * 2 * 2 );
+		rotation.rotate( 1, l2 * Math.PI / 4 );
+		
+		affine.preConcatenate( rotation );
+	}
+	
+	
+	/**
+	 * Float slices of the given stack indices of imp as a {@link PlanarImg}.
+	 * 32-bit stacks in memory are wrapped without copying, all others are
+	 * copied slice by slice on the pool.
+	 * 
+	 * @param imp
+	 * @param stackIndices 1-based stack index of each slice
+	 * @param dimensions
+	 * @param pool null for copying on the calling thread
+	 */
+	final static protected PlanarImg< FloatType, FloatArray > floatPlanarImg(
+			final ImagePlus imp,
+			final int[] stackIndices,
+			final long[] dimensions,
+			final ForkJoinPool pool )
+	{
+		final RenderStats stats = RenderStats.current();
+		final long t0 = System.nanoTime();
+		
+		final ImageStack stack = imp.getStack();
+		final float[][] pixels = new float[ stackIndices.length ][];
+		if ( imp.getType() == ImagePlus.GRAY32 && !stack.isVirtual() )
+		{
+			for ( int i = 0; i < stackIndices.length; ++i )
+				pixels[ i ] = ( float[] )stack.getPixels( stackIndices[ i ] );
+		}
+		else
+		{
+			final int nPixels = imp.getWidth() * imp.getHeight();
+			final ArrayList< RecursiveAction > tasks = new ArrayList< RecursiveAction >();
+			for ( int i = 0; i < stackIndices.length; ++i )
+			{
+				final int slice = i;
+				tasks.add(
+						new RecursiveAction()
+						{
+							private static final long serialVersionUID = 1L;
+
+							@Override
+							final protected void compute()
+							{
+								final ImageProcessor ip = stack.getProcessor( stackIndices[ slice ] );
+								final float[] floats = new float[ nPixels ];
+								for ( int j = 0; j < nPixels; ++j )
+									floats[ j ] = ip.getf( j );
+								pixels[ slice ] = floats;
+							}
+						} );
+			}
+			invokeAll( pool, tasks );
+			
+			if ( stats != null )
+				stats.allocated( 4L * imp.getWidth() * imp.getHeight() * stackIndices.length );
+		}
+		
+		if ( stats != null )
+			stats.phase( RenderStats.Phase.COPY, System.nanoTime() - t0 );
+		
+		final ArrayList< FloatArray > slices = new ArrayList< FloatArray >( pixels.length );
+		for ( final float[] floats : pixels )
+			slices.add( new FloatArray( floats ) );
+		
+		final PlanarImg< FloatType, FloatArray > img = new PlanarImg< FloatType, FloatArray >( slices, dimensions, new Fraction() );
+		img.setLinkedType( new FloatType( img ) );
+		return img;
+	}
+	
+	/**
+	 * 3d float volume of imp, see {@link #floatPlanarImg}.
+	 */
+	final static protected PlanarImg< FloatType, FloatArray > floatImagePlus( final ImagePlus imp, final ForkJoinPool pool )
+	{
+		final int[] stackIndices = new int[ imp.getNSlices() ];
+		for ( int z = 0; z < stackIndices.length; ++z )
+			stackIndices[ z ] = z + 1;
+		
+		return floatPlanarImg(
+				imp,
+				stackIndices,
+				new long[]{
+						imp.getWidth(),
+						imp.getHeight(),
+						imp.getNSlices() },
+				pool );
+	}
+	
+	/**
+	 * 3d float volume of the first channel of frame t of imp, see
+	 * {@link #floatPlanarImg}.
+	 * 
+	 * @param t 0-based frame
+	 */
+	final static protected PlanarImg< FloatType, FloatArray > floatImagePlus( final ImagePlus imp, final int t, final ForkJoinPool pool )
+	{
+		final int[] stackIndices = new int[ imp.getNSlices() ];
+		for ( int z = 0; z < stackIndices.length; ++z )
+			stackIndices[ z ] = imp.getStackIndex( 1, z + 1, t + 1 );
+		
+		return floatPlanarImg(
+				imp,
+				stackIndices,
+				new long[]{
+						imp.getWidth(),
+						imp.getHeight(),
+						imp.getNSlices() },
+				pool );
+	}
+	
+	/**
+	 * 4d float volume of the first frame of composite imp, in the order x, y,
+	 * channel, z, see {@link #floatPlanarImg}.
+	 */
+	final static protected PlanarImg< FloatType, FloatArray > floatCompositeImage( final ImagePlus imp, final ForkJoinPool pool )
+	{
+		return floatCompositeImage( imp, 0, pool );
+	}
+	
+	/**
+	 * 4d float volume of frame t of composite imp, in the order x, y,
+	 * channel, z, see {@link #floatPlanarImg}.
+	 * 
+	 * @param t 0-based frame
+	 */
+	final static protected PlanarImg< FloatType, FloatArray > floatCompositeImage( final ImagePlus imp, final int t, final ForkJoinPool pool )
+	{
+		final int[] stackIndices = new int[ imp.getNChannels() * imp.getNSlices() ];
+		for ( int z = 0, i = 0; z < imp.getNSlices(); ++z )
+			for ( int c = 0; c < imp.getNChannels(); ++c, ++i )
+				stackIndices[ i ] = imp.getStackIndex( c + 1, z + 1, t + 1 );
+		
+		return floatPlanarImg(
+				imp,
+				stackIndices,
+				new long[]{
+						imp.getWidth(),
+						imp.getHeight(),
+						imp.getNChannels(),
+						imp.getNSlices() },
+				pool );
+	}
+	
+	
+	final static Img< NativeARGBDoubleType > convert(
+			final RandomAccessible< RealComposite< FloatType > > composite,
+			final Interval box,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble )
+	{
+		final RandomAccessible< ARGBDoubleType > argbComposite = Converters.convert(
+				composite,
+				composite2ARGBDouble,
 				new ARGBDoubleType() );
 		
 		/* copy it as on-the-fly conversion isn't the quickest thing in the world */
@@ -393,10 +1219,36 @@ public class Renderer
 		transformSequence.add( centerUnshiftXY );
 	}
 	
+	/**
+	 * Rays of the camera built by {@link #buildAffineTransform} and
+	 * {@link #appendCamera}, cached for repeated frames of the same camera and
+	 * canvas.
+	 * 
+	 * @param zOffset additional canvas z-translation appended to transformSequence
+	 */
+	final static protected ProjectiveRays projectiveRays(
+			final AffineTransform3D affine,
+			final long width,
+			final long height,
+			final double f,
+			final Translation3D offset,
+			final double zOffset,
+			final InvertibleRealTransform transformSequence )
+	{
+		final double[] camera = new double[ 18 ];
+		System.arraycopy( affine.getRowPackedCopy(), 0, camera, 0, 12 );
+		camera[ 12 ] = width;
+		camera[ 13 ] = height;
+		camera[ 14 ] = f;
+		camera[ 15 ] = offset.getTranslation( 0 );
+		camera[ 16 ] = offset.getTranslation( 1 );
+		camera[ 17 ] = offset.getTranslation( 2 ) + zOffset;
+		return ProjectiveRays.get( camera, transformSequence );
+	}
+	
 	@SuppressWarnings({ "unchecked", "rawtypes" })
-	final static protected < T extends NumericType< T > > RandomAccessible< T > buildTransformedSource(
+	final static protected < T extends NumericType< T > > RealRandomAccessible< T > buildInterpolant(
 			final RandomAccessible< T > source,
-			final InvertibleRealTransform transform,
 			final Interpolation interpolationMethod )
 	{
 		final RealRandomAccessible< T > interpolant;
@@ -416,9 +1268,30 @@ public class Renderer
 			default:
 				interpolant = Views.interpolate( source, new NearestNeighborInterpolatorFactory< T >() );
 		}
+		return interpolant;
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	final static protected < T extends NumericType< T > > RealRandomAccessible< T > buildInterpolant(
+			final RandomAccessibleInterval< T > source,
+			final Interpolation interpolationMethod )
+	{
+		/* read float arrays directly where possible */
+		final FloatSampler sampler = FloatSampler.create( source, interpolationMethod );
+		if ( sampler != null )
+			return ( RealRandomAccessible )sampler;
 		
+		final ExtendedRandomAccessibleInterval< T, RandomAccessibleInterval< T > > extendedImg = Views.extendValue( source, source.randomAccess().get().createVariable() );
+		return buildInterpolant( extendedImg, interpolationMethod );
+	}
+	
+	final static protected < T extends NumericType< T > > RandomAccessible< T > buildTransformedSource(
+			final RandomAccessible< T > source,
+			final InvertibleRealTransform transform,
+			final Interpolation interpolationMethod )
+	{
 //		ImageJFunctions.show( Views.interval( Views.raster( RealViews.transform( interpolant, transform ) ), new long[]{ 0, 0, 390 / 2 }, new long[]{ 928, 390, 390 + 390 / 2} ) );
-		return RealViews.transform( interpolant, transform );
+		return RealViews.transform( buildInterpolant( source, interpolationMethod ), transform );
 	}
 	
 	final static protected < T extends NumericType< T > > RandomAccessible< T > buildTransformedSource(
@@ -426,8 +1299,18 @@ public class Renderer
 			final InvertibleRealTransform transform,
 			final Interpolation interpolationMethod )
 	{
-		final ExtendedRandomAccessibleInterval< T, RandomAccessibleInterval< T > > extendedImg = Views.extendValue( source, source.randomAccess().get().createVariable() );
-		return buildTransformedSource( extendedImg, transform, interpolationMethod );
+		return RealViews.transform( buildInterpolant( source, interpolationMethod ), transform );
+	}
+	
+	/**
+	 * Marches the rays incrementally instead of transforming each sample.
+	 */
+	final static protected < T extends NumericType< T > > RandomAccessible< T > buildTransformedSource(
+			final RandomAccessibleInterval< T > source,
+			final ProjectiveRays rays,
+			final Interpolation interpolationMethod )
+	{
+		return new ProjectiveRayRandomAccessible< T >( buildInterpolant( source, interpolationMethod ), rays );
 	}
 	
 	
@@ -536,8 +1419,8 @@ public class Renderer
 	
 	
 	/**
-	 * Create an AlphaIntensity rendering of a 3D stack.  No composites or
-	 * time series supported.
+	 * Create an AlphaIntensity rendering of a 3D stack.  No composites
+	 * supported, time series are rendered by {@link #runGrayTimeSeries}.
 	 *  
 	 * @param impSource 3d image, will be converted to singel channle float even if it is ARGB-color
 	 * @param width width of the target canvas
@@ -574,197 +1457,1731 @@ public class Renderer
 			final double alphaOffset, 
 			final boolean antiArtifactRendering )
 	{
-		/* copy contents into most appropriate container */
-		final Img< FloatType > img = floatCopyImagePlus( impSource );
-		//final ImagePlusImg< FloatType, ? > img = ImagePlusImgs.from( impSource );
-		
-//		final int width = ( int )byteCanvas.dimension( 0 );
-//		final int height = ( int )byteCanvas.dimension( 1 );
-		
-		System.out.println(
-				img.dimension( 0 ) + " " + 
-				img.dimension( 1 ) + " " +
-				img.dimension( 2 ) );
-		
-		final double[] offsets;
-		
-		if ( antiArtifactRendering )
-			offsets = new double[]{ -0.25, +0.25 };
-		else
-			offsets = new double[]{ 0.0 };
-		
-		/* build target */
-		final float[][] floatPixels = new float[ offsets.length ][ width * height ];
-
-		for ( int o = 0; o < offsets.length; ++o )
-		{		
-			/* build transformation */
-			final AffineTransform3D affine = buildAffineTransform(
-					orientation,
-					img.dimension( 0 ),
-					img.dimension( 1 ),
-					img.dimension( 2 ),
-					f );
-			
+		return runGray(
+				impSource,
+				width,
+				height,
+				orientation,
+				distance,
+				f,
+				offset,
+				stepSize,
+				bg,
+				interpolationMethod,
+				min,
+				max,
+				alphaScale,
+				alphaOffset,
+				antiArtifactRendering,
+				0,
+				null,
+				null );
+	}
+	
+	
+	/**
+	 * Create an AlphaIntensity rendering of a 3D stack.  No composites
+	 * supported, time series are rendered by {@link #runGrayTimeSeries}.
+	 *  
+	 * @param impSource 3d image, will be converted to singel channle float even if it is ARGB-color
+	 * @param width width of the target canvas
+	 * @param height height of the target canvas
+	 * @param min minimum intensity
+	 * @param max maximum intensity
+	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center (useful to distance-normalize stereo-projections)
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background intensity
+	 * @param interpolationMethod 0 NN, 1 NL
+	 * @param alphaScale scale factor for linear intensity to alpha transfer 
+	 * @param alphaOffset offset for linear intensity to alpha transfer
+	 * @param antiArtifactRendering Render two images with a slight z-offset to reduce artifacts on flat surfaces
+	 * @param pool render tiles of the canvas in parallel on this pool, null renders in the calling thread
+	 * 
+	 * @return
+	 */
+	final static public ImagePlus runGray(
+			final ImagePlus impSource,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final double bg,
+			final Interpolation interpolationMethod,
+			final double min,
+			final double max,
+			final double alphaScale,
+			final double alphaOffset, 
+			final boolean antiArtifactRendering,
+			final ForkJoinPool pool )
+	{
+		return runGray(
+				impSource,
+				width,
+				height,
+				orientation,
+				distance,
+				f,
+				offset,
+				stepSize,
+				bg,
+				interpolationMethod,
+				min,
+				max,
+				alphaScale,
+				alphaOffset,
+				antiArtifactRendering,
+				0,
+				null,
+				pool );
+	}
+	
+	
+	/**
+	 * Create an AlphaIntensity rendering of a 3D stack.  No composites
+	 * supported, time series are rendered by {@link #runGrayTimeSeries}.
+	 *  
+	 * @param impSource 3d image, will be converted to singel channle float even if it is ARGB-color
+	 * @param width width of the target canvas
+	 * @param height height of the target canvas
+	 * @param min minimum intensity
+	 * @param max maximum intensity
+	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center (useful to distance-normalize stereo-projections)
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background intensity
+	 * @param interpolationMethod 0 NN, 1 NL
+	 * @param alphaScale scale factor for linear intensity to alpha transfer 
+	 * @param alphaOffset offset for linear intensity to alpha transfer
+	 * @param antiArtifactRendering Render two images with a slight z-offset to reduce artifacts on flat surfaces
+	 * @param minTransmittance composite front-to-back and terminate rays once their transmittance drops below this value, 0 composites back-to-front
+	 * @param jitter offset the start of each ray by a hashed fraction of stepSize and average numSamples stratified rays per pixel in one pass, replaces antiArtifactRendering, null for none
+	 * @param pool render tiles of the canvas in parallel on this pool, null renders in the calling thread
+	 * 
+	 * @return
+	 */
+	final static public ImagePlus runGray(
+			final ImagePlus impSource,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final double bg,
+			final Interpolation interpolationMethod,
+			final double min,
+			final double max,
+			final double alphaScale,
+			final double alphaOffset, 
+			final boolean antiArtifactRendering,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ForkJoinPool pool )
+	{
+		/* build target */
+		final float[] floatPixels = new float[ width * height ];
+		
+		renderGray(
+				new GrayVolume( impSource, interpolationMethod, pool ),
+				floatPixels,
+				null,
+				width,
+				height,
+				orientation,
+				distance,
+				f,
+				offset,
+				stepSize,
+				bg,
+				alphaScale,
+				alphaOffset,
+				antiArtifactRendering,
+				minTransmittance,
+				jitter,
+				pool );
+		
+		final FloatProcessor fp = new FloatProcessor( width, height, floatPixels );
+//		new ImagePlus( impSource.getTitle(), fp ).show();
+		fp.setMinAndMax( min, max );
+		final ByteProcessor bp = ( ByteProcessor )fp.convertToByte( true );
+		
+		return new ImagePlus( impSource.getTitle(), bp );
+	}
+	
+	
+	/**
+	 * Create an AlphaIntensity rendering of a 3D stack while it is loading.
+	 * The stack is read in slabs of slabSize slices by a background thread
+	 * and rendered again from all slabs loaded so far whenever new slabs
+	 * have arrived.  The rendering is not shown, listener receives it after
+	 * each pass and can show it or stop.  Open large stacks as virtual
+	 * stacks such that slices are read on demand.  No empty space skipping,
+	 * see {@link StreamingGrayVolume}.
+	 * 
+	 * @param impSource 3d image, will be converted to float
+	 * @param slabSize number of slices that are published to the renderer at once
+	 * @param interpolationMethod NN or NL
+	 * @param listener notified after each pass, null for none
+	 * @see #runGray
+	 * 
+	 * @return the rendering, complete unless listener stopped it
+	 */
+	final static public ImagePlus runGrayStreaming(
+			final ImagePlus impSource,
+			final int slabSize,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final double bg,
+			final Interpolation interpolationMethod,
+			final double min,
+			final double max,
+			final double alphaScale,
+			final double alphaOffset, 
+			final double minTransmittance,
+			final Jitter jitter,
+			final ForkJoinPool pool,
+			final StreamingListener listener ) throws InterruptedException
+	{
+		final StreamingGrayVolume volume = new StreamingGrayVolume( impSource, interpolationMethod, slabSize );
+		final float[] floatPixels = new float[ width * height ];
+		final ImagePlus imp = new ImagePlus( impSource.getTitle(), new ByteProcessor( width, height ) );
+		
+		/* render whatever has arrived, renders that are outpaced by loading skip the slabs in between */
+		try
+		{
+			for ( int numLoaded = 0; numLoaded < impSource.getNSlices(); )
+			{
+				numLoaded = volume.awaitMoreThan( numLoaded );
+				
+				renderGray(
+						volume,
+						floatPixels,
+						null,
+						width,
+						height,
+						orientation,
+						distance,
+						f,
+						offset,
+						stepSize,
+						bg,
+						alphaScale,
+						alphaOffset,
+						false,
+						minTransmittance,
+						jitter,
+						pool );
+				
+				final FloatProcessor fp = new FloatProcessor( width, height, floatPixels );
+				fp.setMinAndMax( min, max );
+				System.arraycopy( fp.convertToByte( true ).getPixels(), 0, imp.getProcessor().getPixels(), 0, width * height );
+				
+				if ( listener != null && !listener.slicesRendered( imp, numLoaded, impSource.getNSlices() ) )
+					break;
+			}
+		}
+		finally
+		{
+			/* stop loading if the listener stopped or the thread was interrupted */
+			volume.stop();
+		}
+		
+		return imp;
+	}
+	
+	
+	/**
+	 * Create AlphaIntensity renderings of all frames of a 3D time series and
+	 * pass them to writer.  The next numPrefetched frames are loaded and
+	 * prepared on background threads while a frame is rendered.
+	 *  
+	 * @param impSource 3d time series, frames will be converted to float
+	 * @param path camera path, frame t is rendered at animation t / numFrames, null for a fixed camera
+	 * @param numPrefetched number of frames prepared ahead, at most numPrefetched + 1 frames are in memory
+	 * @param writer receives the rendered frames in order
+	 * @see #runGray
+	 * 
+	 * @return throughput in frames per second
+	 */
+	final static public double runGrayTimeSeries(
+			final ImagePlus impSource,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final CameraPath path,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final double bg,
+			final Interpolation interpolationMethod,
+			final double min,
+			final double max,
+			final double alphaScale,
+			final double alphaOffset, 
+			final double minTransmittance,
+			final Jitter jitter,
+			final int numPrefetched,
+			final FrameWriter writer,
+			final ForkJoinPool pool ) throws InterruptedException, IOException
+	{
+		final long t0 = System.currentTimeMillis();
+		final int numFrames = impSource.getNFrames();
+		final TimeSeries< GrayVolume > series = new TimeSeries< GrayVolume >( numFrames, numPrefetched, numPrefetched )
+		{
+			@Override
+			protected GrayVolume prepare( final int t )
+			{
+				return new GrayVolume( impSource, t, interpolationMethod, pool );
+			}
+		};
+		
+		final float[] floatPixels = new float[ width * height ];
+		try
+		{
+			for ( int t = 0; t < numFrames; ++t )
+			{
+				final AffineTransform3D camera = orientation.copy();
+				if ( path != null )
+					path.append( camera, ( double )t / numFrames );
+				
+				renderGray(
+						series.get( t ),
+						floatPixels,
+						null,
+						width,
+						height,
+						camera,
+						distance,
+						f,
+						offset,
+						stepSize,
+						bg,
+						alphaScale,
+						alphaOffset,
+						false,
+						minTransmittance,
+						jitter,
+						pool );
+				
+				final FloatProcessor fp = new FloatProcessor( width, height, floatPixels.clone() );
+				fp.setMinAndMax( min, max );
+				writer.write( t, new ImagePlus( String.format( "frame %05d", t ), fp.convertToByte( true ) ) );
+			}
+		}
+		finally
+		{
+			series.shutdown();
+		}
+		
+		final double seconds = ( System.currentTimeMillis() - t0 ) / 1000.0;
+		final double fps = numFrames / seconds;
+		System.out.println( String.format( "Rendered %d timepoints in %.1fs, %.2f fps", numFrames, seconds, fps ) );
+		
+		return fps;
+	}
+	
+	
+	/**
+	 * Render a gray image of a prepared volume into floatPixels.  Any number
+	 * of cameras can be rendered from the same volume, also concurrently.
+	 * 
+	 * @param volume
+	 * @param floatPixels target canvas, width * height
+	 * @param scratch second canvas for antiArtifactRendering, width * height, null allocates it if needed, unused with jitter
+	 * @param width width of the target canvas
+	 * @param height height of the target canvas
+	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center (useful to distance-normalize stereo-projections)
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background intensity
+	 * @param alphaScale scale factor for linear intensity to alpha transfer 
+	 * @param alphaOffset offset for linear intensity to alpha transfer
+	 * @param antiArtifactRendering Render two images with a slight z-offset to reduce artifacts on flat surfaces
+	 * @param minTransmittance composite front-to-back and terminate rays once their transmittance drops below this value, 0 composites back-to-front
+	 * @param jitter offset the start of each ray by a hashed fraction of stepSize and average numSamples stratified rays per pixel in one pass, replaces antiArtifactRendering, null for none
+	 * @param pool render tiles of the canvas in parallel on this pool, null renders in the calling thread
+	 */
+	final static public void renderGray(
+			final GrayVolume volume,
+			final float[] floatPixels,
+			final float[] scratch,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final double bg,
+			final double alphaScale,
+			final double alphaOffset, 
+			final boolean antiArtifactRendering,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ForkJoinPool pool )
+	{
+		/* accumulator */
+		final AlphaIntensityLayers< FloatType > accumulator;
+		if ( minTransmittance > 0 )
+			accumulator = new FrontToBackAlphaIntensityLayers< FloatType >( alphaScale, alphaOffset, minTransmittance );
+		else
+			accumulator = new AlphaIntensityLayers< FloatType >( alphaScale, alphaOffset );
+		
+		renderGray(
+				volume,
+				floatPixels,
+				scratch,
+				width,
+				height,
+				orientation,
+				distance,
+				f,
+				offset,
+				stepSize,
+				bg,
+				accumulator,
+				antiArtifactRendering,
+				jitter,
+				pool );
+	}
+	
+	
+	/**
+	 * Render a gray image of a prepared volume into floatPixels with an
+	 * arbitrary intensity to alpha transfer, e.g. the table driven
+	 * {@link CorrectedAlphaIntensityLayers} or
+	 * {@link PreIntegratedAlphaIntensityLayers} built for the same stepSize.
+	 * {@link FrontToBackAlphaIntensityLayers} terminate rays early, all
+	 * others are composited back-to-front in packets.
+	 * {@link AdaptiveAlphaIntensityLayers} march with adaptive step size
+	 * through the smooth bricks of the volume's index, rays march uniformly
+	 * through volumes without index.
+	 * 
+	 * @param volume
+	 * @param floatPixels target canvas, width * height
+	 * @param scratch second canvas for antiArtifactRendering, width * height, null allocates it if needed, unused with jitter
+	 * @param width width of the target canvas
+	 * @param height height of the target canvas
+	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center (useful to distance-normalize stereo-projections)
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background intensity
+	 * @param accumulator intensity to alpha transfer and compositing, tables must be built for stepSize
+	 * @param antiArtifactRendering Render two images with a slight z-offset to reduce artifacts on flat surfaces
+	 * @param jitter offset the start of each ray by a hashed fraction of stepSize and average numSamples stratified rays per pixel in one pass, replaces antiArtifactRendering, null for none
+	 * @param pool render tiles of the canvas in parallel on this pool, null renders in the calling thread
+	 */
+	final static public void renderGray(
+			final GrayVolume volume,
+			final float[] floatPixels,
+			final float[] scratch,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final double bg,
+			final AlphaIntensityLayers< FloatType > accumulator,
+			final boolean antiArtifactRendering,
+			final Jitter jitter,
+			final ForkJoinPool pool )
+	{
+		/* opacity correction of tables holds only for the step length they were built for */
+		final TransferFunctionTable table;
+		if ( accumulator instanceof CorrectedAlphaIntensityLayers )
+			table = ( ( CorrectedAlphaIntensityLayers< FloatType > )accumulator ).table();
+		else if ( accumulator instanceof PreIntegratedAlphaIntensityLayers )
+			table = ( ( PreIntegratedAlphaIntensityLayers< FloatType > )accumulator ).table();
+		else
+			table = null;
+		if ( table != null && table.stepLength() != stepSize )
+			throw new IllegalArgumentException( "Transfer function table built for step length " + table.stepLength() + " but rendering with step size " + stepSize + "." );
+		
+		final FinalInterval box = volume.box;
+		final RenderStats stats = RenderStats.current();
+		
+		final double[] offsets;
+		final float[][] targets;
+		
+		if ( antiArtifactRendering && jitter == null )
+		{
+			offsets = new double[]{ -0.25, +0.25 };
+			targets = new float[][]{ floatPixels, scratch == null ? new float[ width * height ] : scratch };
+		}
+		else
+		{
+			offsets = new double[]{ 0.0 };
+			targets = new float[][]{ floatPixels };
+		}
+		
+		/* transfer function evaluated on the index of the current level */
+		BrickIndex evaluatedIndex = null;
+		boolean[][] transparent = null, smooth = null;
+		
+		for ( int o = 0; o < offsets.length; ++o )
+		{		
+			final long t0 = System.nanoTime();
+			
+			/* build transformation */
+			final AffineTransform3D affine = buildAffineTransform(
+					orientation,
+					box.dimension( 0 ),
+					box.dimension( 1 ),
+					box.dimension( 2 ),
+					f );
+			
 			final InvertibleRealTransformSequence transformSequence = new InvertibleRealTransformSequence();
 			
-			transformSequence.add( affine );
+			transformSequence.add( affine );
+			
+			appendCamera(
+					transformSequence,
+					width,
+					height,
+					box.dimension( 2 ),
+					f,
+					offset );
+			
+			if ( offsets[ o ] != 0.0 )
+				transformSequence.add( new Translation3D( 0, 0, offsets[ o ] ) );
+			
+			/* calculate boundaries */
+			final FinalRealInterval bounds = affine.estimateBounds( box );
+			final long minZ	= ( long )Math.floor( bounds.realMin( 2 ) );
+			final long maxZ	= ( long )Math.ceil( bounds.realMax( 2 ) );
+			
+			/* pyramid level */
+			final ProjectiveRays cameraRays = projectiveRays( affine, width, height, f, offset, offsets[ o ], transformSequence );
+			final int l = level( cameraRays, minZ, maxZ, volume.numLevels() );
+			final GrayVolume level = volume.level( l );
+			final ProjectiveRays rays = cameraRays.level( l );
+			
+			/* evaluate the transfer function on the index once for all samples and offsets of this level */
+			final double[] zero = new double[ 1 ];
+			if ( level.index != evaluatedIndex )
+			{
+				evaluatedIndex = level.index;
+				if ( level.index == null )
+					transparent = smooth = null;
+				else if ( accumulator instanceof AdaptiveAlphaIntensityLayers )
+				{
+					transparent = null;
+					smooth = level.index.smoothBricks( ( AdaptiveAlphaIntensityLayers< FloatType > )accumulator );
+				}
+				else
+				{
+					transparent = level.index.transparentBricks( accumulator );
+					smooth = null;
+				}
+			}
+			
+			/* build sources, one per jittered sample */
+			final int numSamples = jitter == null ? 1 : jitter.numSamples();
+			final ArrayList< RandomAccessible< FloatType > > sources = new ArrayList< RandomAccessible< FloatType > >();
+			final ArrayList< RayClipping > clippings = new ArrayList< RayClipping >();
+			for ( int i = 0; i < numSamples; ++i )
+			{
+				final ProjectiveRays sampleRays = jitter == null ? rays : rays.jitter( jitter, i, stepSize );
+				final RandomAccessible< FloatType > rayTransformed = new ProjectiveRayRandomAccessible< FloatType >( level.interpolant, sampleRays );
+				final RandomAccessible< FloatType > transformed = stats == null ? rayTransformed : stats.count( rayTransformed );
+				if ( level.index == null )
+					sources.add( transformed );
+				else if ( accumulator instanceof AdaptiveAlphaIntensityLayers )
+				{
+					final AdaptiveAlphaIntensityLayers< FloatType > adaptive = ( AdaptiveAlphaIntensityLayers< FloatType > )accumulator;
+					sources.add(
+							new AdaptiveStepRandomAccessible< FloatType >(
+									transformed,
+									sampleRays,
+									level.index,
+									smooth,
+									adaptive.maxSteps() ) );
+				}
+				else
+					sources.add(
+							new EmptySpaceSkippingRandomAccessible< FloatType >(
+									transformed,
+									sampleRays,
+									level.index,
+									transparent,
+									accumulator.isTransparent( zero, zero ) ) );
+				
+				/* clip rays to the volume if the background is transparent */
+				if ( accumulator.isTransparent( zero, zero ) )
+					clippings.add( new RayClipping( sampleRays, level.box, level.interpolationMethod ) );
+				else
+					clippings.add( null );
+			}
+			
+			/* rays accumulate onto the canvas */
+			Arrays.fill( targets[ o ], 0 );
+			final ArrayImg< FloatType, FloatArray > floatCanvas = ArrayImgs.floats( targets[ o ], width, height );
+			
+			final long t1 = System.nanoTime();
+			
+			/* render, in packets unless rays terminate early front-to-back or
+			 * march adaptively, or packets would fill skipped samples with 0
+			 * that is not transparent or paired into pre-integrated segments */
+			if (
+					numSamples == 1 &&
+					!( accumulator instanceof FrontToBackAlphaIntensityLayers ) &&
+					!( accumulator instanceof AdaptiveAlphaIntensityLayers ) &&
+					( level.index == null || (
+							accumulator.isTransparent( zero, zero ) &&
+							!( accumulator instanceof PreIntegratedAlphaIntensityLayers ) ) ) )
+				renderBatched( sources.get( 0 ), floatCanvas, minZ, maxZ, stepSize, accumulator, clippings.get( 0 ), pool );
+			else if ( numSamples == 1 )
+				render( sources.get( 0 ), floatCanvas, minZ, maxZ, stepSize, bg, accumulator, clippings.get( 0 ), pool );
+			else
+				render( sources, floatCanvas, minZ, maxZ, stepSize, bg, accumulator, clippings, pool );
+			
+			if ( stats != null )
+			{
+				stats.phase( RenderStats.Phase.SETUP, t1 - t0 );
+				stats.phase( RenderStats.Phase.RAY_MARCHING, System.nanoTime() - t1 );
+				stats.rays( ( long )width * height * numSamples, ( maxZ - minZ ) / stepSize + 1 );
+			}
+		}
+		
+		
+		if ( offsets.length > 1 )
+		{
+			for ( int o = 1; o < offsets.length; ++o )
+				for ( int i = 0; i < floatPixels.length; ++i )
+					floatPixels[ i ] += targets[ o ][ i ];
+			
+			for ( int i = 0; i < floatPixels.length; ++i )
+				floatPixels[ i ] /= (float)offsets.length;
+		}
+	}
+	
+	
+	/**
+	 * Create an ARGB rendering of a 3D composite stack.  Time series are
+	 * rendered by {@link #runARGBTimeSeries}.
+	 *  
+	 * @param impSource 3d image, will be converted to multi-channel float
+	 * @param width width of the target canvas
+	 * @param height height of the target canvas
+	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center (useful to distance-normalize stereo-projections)
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background color
+	 * @param interpolationMethod 0 NN, 1 NL
+	 * @param alphaScale scale factor for linear intensity to alpha transfer 
+	 * @param alphaOffset offset for linear intensity to alpha transfer
+	 * 
+	 * @return
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > void runARGB(
+			final ImagePlus impSource,
+			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble )
+	{
+		runARGB( impSource, argbCanvas, orientation, distance, f, offset, stepSize, bg, interpolationMethod, composite2ARGBDouble, 0, null, ARGBStorage.DOUBLE, null );
+	}
+	
+	
+	/**
+	 * Create an ARGB rendering of a 3D composite stack.  Time series are
+	 * rendered by {@link #runARGBTimeSeries}.
+	 *  
+	 * @param impSource 3d image, will be converted to multi-channel float
+	 * @param argbCanvas target canvas
+	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center (useful to distance-normalize stereo-projections)
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background color
+	 * @param interpolationMethod 0 NN, 1 NL
+	 * @param composite2ARGBDouble channel to ARGB conversion
+	 * @param pool render tiles of the canvas in parallel on this pool, null renders in the calling thread
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > void runARGB(
+			final ImagePlus impSource,
+			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final ForkJoinPool pool )
+	{
+		runARGB( impSource, argbCanvas, orientation, distance, f, offset, stepSize, bg, interpolationMethod, composite2ARGBDouble, 0, null, ARGBStorage.DOUBLE, pool );
+	}
+	
+	
+	/**
+	 * See the overload with maxBytes, {@link ARGBStorage#LAZY} converts
+	 * bricks within {@link LazyARGBSampler#defaultMaxBytes()}.
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > void runARGB(
+			final ImagePlus impSource,
+			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ARGBStorage storage,
+			final ForkJoinPool pool )
+	{
+		runARGB(
+				impSource,
+				argbCanvas,
+				orientation,
+				distance,
+				f,
+				offset,
+				stepSize,
+				bg,
+				interpolationMethod,
+				composite2ARGBDouble,
+				minTransmittance,
+				jitter,
+				storage,
+				LazyARGBSampler.defaultMaxBytes(),
+				pool );
+	}
+	
+	
+	/**
+	 * Create an ARGB rendering of a 3D composite stack.  Time series are
+	 * rendered by {@link #runARGBTimeSeries}.
+	 *  
+	 * @param impSource 3d image, will be converted to multi-channel float
+	 * @param argbCanvas target canvas
+	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center (useful to distance-normalize stereo-projections)
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background color
+	 * @param interpolationMethod 0 NN, 1 NL
+	 * @param composite2ARGBDouble channel to ARGB conversion
+	 * @param minTransmittance composite front-to-back and terminate rays once their transmittance drops below this value, 0 composites back-to-front
+	 * @param jitter offset the start of each ray by a hashed fraction of stepSize and average numSamples stratified rays per pixel in one pass, null for none
+	 * @param storage of the ARGB copy of the volume, compact storage is premultiplied, Lanczos interpolation always uses {@link ARGBStorage#DOUBLE}
+	 * @param maxBytes memory budget for the bricks converted by {@link ARGBStorage#LAZY}, coarser pyramid levels get an eighth of the next finer level
+	 * @param pool render tiles of the canvas in parallel on this pool, null renders in the calling thread
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > void runARGB(
+			final ImagePlus impSource,
+			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ARGBStorage storage,
+			final long maxBytes,
+			final ForkJoinPool pool )
+	{
+		renderARGB(
+				new ARGBVolume( impSource, interpolationMethod, composite2ARGBDouble, storage, maxBytes, pool ),
+				argbCanvas,
+				orientation,
+				distance,
+				f,
+				offset,
+				stepSize,
+				bg,
+				minTransmittance,
+				jitter,
+				pool );
+	}
+	
+	
+	/**
+	 * See the overload with maxBytes, {@link ARGBStorage#LAZY} converts
+	 * bricks within {@link LazyARGBSampler#defaultMaxBytes()}.
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > double runARGBTimeSeries(
+			final ImagePlus impSource,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final CameraPath path,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ARGBStorage storage,
+			final int numPrefetched,
+			final FrameWriter writer,
+			final ForkJoinPool pool ) throws InterruptedException, IOException
+	{
+		return runARGBTimeSeries(
+				impSource,
+				width,
+				height,
+				orientation,
+				path,
+				distance,
+				f,
+				offset,
+				stepSize,
+				bg,
+				interpolationMethod,
+				composite2ARGBDouble,
+				minTransmittance,
+				jitter,
+				storage,
+				LazyARGBSampler.defaultMaxBytes(),
+				numPrefetched,
+				writer,
+				pool );
+	}
+	
+	
+	/**
+	 * Create ARGB renderings of all frames of a 3D composite time series and
+	 * pass them to writer.  The next numPrefetched frames are loaded and
+	 * converted on background threads while a frame is rendered.
+	 *  
+	 * @param impSource 3d composite time series, frames will be converted to multi-channel float
+	 * @param width width of the frames
+	 * @param height height of the frames
+	 * @param path camera path, frame t is rendered at animation t / numFrames, null for a fixed camera
+	 * @param numPrefetched number of frames prepared ahead, at most numPrefetched + 1 frames are in memory
+	 * @param writer receives the rendered frames in order
+	 * @param maxBytes memory budget for the bricks converted by {@link ARGBStorage#LAZY}, coarser pyramid levels get an eighth of the next finer level
+	 * @see #runARGB
+	 * 
+	 * @return throughput in frames per second
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > double runARGBTimeSeries(
+			final ImagePlus impSource,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final CameraPath path,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ARGBStorage storage,
+			final long maxBytes,
+			final int numPrefetched,
+			final FrameWriter writer,
+			final ForkJoinPool pool ) throws InterruptedException, IOException
+	{
+		final long t0 = System.currentTimeMillis();
+		final int numFrames = impSource.getNFrames();
+		final TimeSeries< ARGBVolume > series = new TimeSeries< ARGBVolume >( numFrames, numPrefetched, numPrefetched )
+		{
+			@Override
+			protected ARGBVolume prepare( final int t )
+			{
+				return new ARGBVolume( impSource, t, interpolationMethod, composite2ARGBDouble, storage, maxBytes, pool );
+			}
+		};
+		
+		try
+		{
+			for ( int t = 0; t < numFrames; ++t )
+			{
+				final AffineTransform3D camera = orientation.copy();
+				if ( path != null )
+					path.append( camera, ( double )t / numFrames );
+				
+				final int[] argbPixels = new int[ width * height ];
+				renderARGB(
+						series.get( t ),
+						ArrayImgs.argbs( argbPixels, width, height ),
+						camera,
+						distance,
+						f,
+						offset,
+						stepSize,
+						bg,
+						minTransmittance,
+						jitter,
+						pool );
+				writer.write( t, new ImagePlus( String.format( "frame %05d", t ), new ColorProcessor( width, height, argbPixels ) ) );
+			}
+		}
+		finally
+		{
+			series.shutdown();
+		}
+		
+		final double seconds = ( System.currentTimeMillis() - t0 ) / 1000.0;
+		final double fps = numFrames / seconds;
+		System.out.println( String.format( "Rendered %d timepoints in %.1fs, %.2f fps", numFrames, seconds, fps ) );
+		
+		return fps;
+	}
+	
+	
+	/**
+	 * Render an ARGB image of a prepared composite volume.  Any number of
+	 * cameras can be rendered from the same volume, also concurrently.
+	 *  
+	 * @param volume
+	 * @param argbCanvas target canvas
+	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center (useful to distance-normalize stereo-projections)
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background color
+	 * @param minTransmittance composite front-to-back and terminate rays once their transmittance drops below this value, 0 composites back-to-front
+	 * @param jitter offset the start of each ray by a hashed fraction of stepSize and average numSamples stratified rays per pixel in one pass, null for none
+	 * @param pool render tiles of the canvas in parallel on this pool, null renders in the calling thread
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > void renderARGB(
+			final ARGBVolume volume,
+			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ForkJoinPool pool )
+	{
+		renderARGB(
+				volume,
+				argbCanvas,
+				( int )argbCanvas.dimension( 0 ),
+				( int )argbCanvas.dimension( 1 ),
+				1,
+				0,
+				0,
+				orientation,
+				distance,
+				f,
+				offset,
+				stepSize,
+				bg,
+				minTransmittance,
+				jitter,
+				null,
+				pool );
+	}
+	
+	
+	/**
+	 * Render every subsampling-th pixel, starting at (x0, y0), of a width x
+	 * height camera into argbCanvas.  Pixel (x, y) of argbCanvas receives
+	 * camera pixel (x0 + subsampling * x, y0 + subsampling * y).
+	 * 
+	 * @param transparentLevels per pyramid level, the evaluated
+	 * 		{@link BrickIndex#transparentBricks(TransparencyTest)} of earlier
+	 * 		calls with the same volume and converter, missing levels are
+	 * 		evaluated and stored, null evaluates for this call only
+	 */
+	final static protected < T extends AbstractARGBDoubleType< T > > void renderARGB(
+			final ARGBVolume volume,
+			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final int width,
+			final int height,
+			final int subsampling,
+			final long x0,
+			final long y0,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final double minTransmittance,
+			final Jitter jitter,
+			final boolean[][][] transparentLevels,
+			final ForkJoinPool pool )
+	{
+		renderARGB( volume, argbCanvas, width, height, subsampling, x0, y0, null, null, orientation, distance, f, offset, stepSize, bg, minTransmittance, jitter, transparentLevels, pool );
+	}
+	
+	
+	/**
+	 * Render a list of pixels of a width x height camera into a
+	 * numPixels x 1 argbCanvas.  Pixel (k, 0) of argbCanvas receives camera
+	 * pixel (xs[k], ys[k]).
+	 * 
+	 * @param transparentLevels see {@link #renderARGB(ARGBVolume, ArrayImg, int, int, int, long, long, AffineTransform3D, double, double, Translation3D, long, AbstractARGBDoubleType, double, Jitter, boolean[][][], ForkJoinPool)}
+	 */
+	final static protected < T extends AbstractARGBDoubleType< T > > void renderARGB(
+			final ARGBVolume volume,
+			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final int width,
+			final int height,
+			final long[] xs,
+			final long[] ys,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final double minTransmittance,
+			final Jitter jitter,
+			final boolean[][][] transparentLevels,
+			final ForkJoinPool pool )
+	{
+		renderARGB( volume, argbCanvas, width, height, 1, 0, 0, xs, ys, orientation, distance, f, offset, stepSize, bg, minTransmittance, jitter, transparentLevels, pool );
+	}
+	
+	
+	/**
+	 * Render either the subsampled grid or, if xs is not null, the listed
+	 * pixels of a width x height camera into argbCanvas.
+	 */
+	final static protected < T extends AbstractARGBDoubleType< T > > void renderARGB(
+			final ARGBVolume volume,
+			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final int width,
+			final int height,
+			final int subsampling,
+			final long x0,
+			final long y0,
+			final long[] xs,
+			final long[] ys,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final double minTransmittance,
+			final Jitter jitter,
+			final boolean[][][] transparentLevels,
+			final ForkJoinPool pool )
+	{
+		final FinalInterval box = volume.box;
+		final RenderStats stats = RenderStats.current();
+		final long t0 = System.nanoTime();
+		
+		/* build transformation */
+		final AffineTransform3D affine = buildAffineTransform(
+				orientation,
+				box.dimension( 0 ),
+				box.dimension( 1 ),
+				box.dimension( 2 ),
+				distance );
+		
+		final InvertibleRealTransformSequence transformSequence = new InvertibleRealTransformSequence();
+		
+		transformSequence.add( affine );
+		
+		appendCamera(
+				transformSequence,
+				width,
+				height,
+				box.dimension( 2 ),
+				f,
+				offset );
+		
+		final ProjectiveRays cameraRays = projectiveRays( affine, width, height, f, offset, 0, transformSequence );
+		final ProjectiveRays canvasRays;
+		if ( xs != null || ( subsampling == 1 && x0 == 0 && y0 == 0 ) )
+			canvasRays = cameraRays;
+		else
+			canvasRays = cameraRays.subsample( subsampling, x0, y0 );
+		
+		/* calculate boundaries */
+		final FinalRealInterval bounds = affine.estimateBounds( box );
+		final long minZ	= ( long )Math.floor( bounds.realMin( 2 ) );
+		final long maxZ	= ( long )Math.ceil( bounds.realMax( 2 ) );
+		
+		/* pyramid level */
+		final int l = level( canvasRays, minZ, maxZ, volume.numLevels() );
+		final ARGBVolume level = volume.level( l );
+		final ProjectiveRays rays = canvasRays.level( l );
+		
+		/* clip rays to the volume, the zero background is transparent */
+		final int numSamples = jitter == null ? 1 : jitter.numSamples();
+		final long t1;
+		final ArrayList< ProjectiveRays > sampleRays = new ArrayList< ProjectiveRays >();
+		final ArrayList< RayClipping > clippings = new ArrayList< RayClipping >();
+		for ( int i = 0; i < numSamples; ++i )
+		{
+			sampleRays.add( jitter == null ? rays : rays.jitter( jitter, i, stepSize ) );
+			if ( xs == null )
+				clippings.add( new RayClipping( sampleRays.get( i ), level.box, level.interpolationMethod ) );
+			else
+				clippings.add( new ScatteredRayClipping( sampleRays.get( i ), level.box, level.interpolationMethod, xs, ys ) );
+		}
+		
+		/* evaluate the transfer function on the index once for all samples */
+		final boolean[][] transparent;
+		final boolean transparentBackground;
+		if ( level.index == null )
+		{
+			transparent = null;
+			transparentBackground = true;
+		}
+		else
+		{
+			if ( transparentLevels == null )
+				transparent = level.index.transparentBricks( level.composite2ARGBDouble );
+			else
+			{
+				if ( transparentLevels[ l ] == null )
+					transparentLevels[ l ] = level.index.transparentBricks( level.composite2ARGBDouble );
+				transparent = transparentLevels[ l ];
+			}
+			transparentBackground = EmptySpaceSkippingRandomAccessible.isTransparentBackground( level.index, level.composite2ARGBDouble );
+		}
+		
+		if ( level.argbCopy != null )
+		{
+			/* build sources */
+			final ArrayList< RandomAccessible< NativeARGBDoubleType > > sources = new ArrayList< RandomAccessible< NativeARGBDoubleType > >();
+			for ( final ProjectiveRays r : sampleRays )
+			{
+				final RandomAccessible< NativeARGBDoubleType > rayTransformed = buildTransformedSource( level.argbCopy, r, level.interpolationMethod );
+				final RandomAccessible< NativeARGBDoubleType > transformed = stats == null ? rayTransformed : stats.count( rayTransformed );
+				final RandomAccessible< NativeARGBDoubleType > skipping;
+				if ( level.index == null )
+					skipping = transformed;
+				else
+					skipping = new EmptySpaceSkippingRandomAccessible< NativeARGBDoubleType >(
+							transformed,
+							r,
+							level.index,
+							transparent,
+							transparentBackground );
+				sources.add( xs == null ? skipping : new ScatteredRandomAccessible< NativeARGBDoubleType >( skipping, xs, ys ) );
+			}
+			
+			/* accumulator */
+			final ARGBDoubleLayers< NativeARGBDoubleType > accumulator;
+			if ( minTransmittance > 0 )
+				accumulator = new FrontToBackARGBDoubleLayers< NativeARGBDoubleType >( minTransmittance );
+			else
+				accumulator = new ARGBDoubleLayers< NativeARGBDoubleType >();
 			
-			appendCamera(
-					transformSequence,
-					width,
-					height,
-					img.dimension( 2 ),
-					f,
-					offset );
+			final NativeARGBDoubleType nativeBg = new NativeARGBDoubleType();
+			nativeBg.set( bg.getA(), bg.getR(), bg.getG(), bg.getB() );
 			
-			if ( offsets[ o ] != 0.0 )
-				transformSequence.add( new Translation3D( 0, 0, offsets[ o ] ) );
+			t1 = System.nanoTime();
 			
-			/* build source */
-			final RandomAccessible< FloatType > rotated = buildTransformedSource( img, transformSequence, interpolationMethod );
+			/* render, in packets unless rays terminate early front-to-back */
+			if ( numSamples == 1 && minTransmittance <= 0 )
+				renderARGBDoubleBatched( sources.get( 0 ), argbCanvas, minZ, maxZ, stepSize, nativeBg, accumulator, clippings.get( 0 ), pool );
+			else if ( numSamples == 1 )
+				renderARGBDouble( sources.get( 0 ), argbCanvas, minZ, maxZ, stepSize, nativeBg, accumulator, clippings.get( 0 ), pool );
+			else
+				renderARGBDouble( sources, argbCanvas, minZ, maxZ, stepSize, nativeBg, accumulator, clippings, pool );
+		}
+		else
+		{
+			/* build sources */
+			final ArrayList< RandomAccessible< ARGBDoubleType > > sources = new ArrayList< RandomAccessible< ARGBDoubleType > >();
+			for ( final ProjectiveRays r : sampleRays )
+			{
+				final RandomAccessible< ARGBDoubleType > transformed = new ProjectiveRayRandomAccessible< ARGBDoubleType >( level.sampler.interpolant( level.interpolationMethod == Interpolation.NL ), r );
+				final RandomAccessible< ARGBDoubleType > skipping =
+						new EmptySpaceSkippingRandomAccessible< ARGBDoubleType >(
+								stats == null ? transformed : stats.count( transformed ),
+								r,
+								level.index,
+								transparent,
+								transparentBackground );
+				sources.add( xs == null ? skipping : new ScatteredRandomAccessible< ARGBDoubleType >( skipping, xs, ys ) );
+			}
 			
 			/* accumulator */
-			final AlphaIntensityLayers< FloatType > accumulator = new AlphaIntensityLayers< FloatType >( alphaScale, alphaOffset );
+			final PremultipliedARGBDoubleLayers< ARGBDoubleType > accumulator;
+			if ( minTransmittance > 0 )
+				accumulator = new FrontToBackPremultipliedARGBDoubleLayers< ARGBDoubleType >( minTransmittance );
+			else
+				accumulator = new PremultipliedARGBDoubleLayers< ARGBDoubleType >();
 			
-			/* calculate boundaries */
-			final FinalRealInterval bounds = affine.estimateBounds( img );
-			final long minZ	= ( long )Math.floor( bounds.realMin( 2 ) );
-			final long maxZ	= ( long )Math.ceil( bounds.realMax( 2 ) );
+			final ARGBDoubleType argbBg = new ARGBDoubleType( bg.getA(), bg.getR(), bg.getG(), bg.getB() );
 			
-			final ArrayImg< FloatType, FloatArray > floatCanvas = ArrayImgs.floats( floatPixels[ o ], width, height );
+			t1 = System.nanoTime();
 			
-			/* render */
-			render( rotated, floatCanvas, minZ, maxZ, stepSize, bg, accumulator );
+			/* render, in packets unless rays terminate early front-to-back */
+			if ( numSamples == 1 && minTransmittance <= 0 )
+				renderARGBDoubleBatched( sources.get( 0 ), argbCanvas, minZ, maxZ, stepSize, argbBg, accumulator, clippings.get( 0 ), pool );
+			else if ( numSamples == 1 )
+				renderARGBDouble( sources.get( 0 ), argbCanvas, minZ, maxZ, stepSize, argbBg, accumulator, clippings.get( 0 ), pool );
+			else
+				renderARGBDouble( sources, argbCanvas, minZ, maxZ, stepSize, argbBg, accumulator, clippings, pool );
 		}
 		
-		
-		if ( offsets.length > 1 )
+		if ( stats != null )
 		{
-			for ( int o = 1; o < offsets.length; ++o )
-				for ( int i = 0; i < floatPixels[ 0 ].length; ++i )
-					floatPixels[ 0 ][ i ] += floatPixels[ o ][ i ];
-			
-			for ( int i = 0; i < floatPixels[ 0 ].length; ++i )
-				floatPixels[ 0 ][ i ] /= (float)offsets.length;
+			stats.phase( RenderStats.Phase.SETUP, t1 - t0 );
+			stats.phase( RenderStats.Phase.RAY_MARCHING, System.nanoTime() - t1 );
+			stats.rays( argbCanvas.dimension( 0 ) * argbCanvas.dimension( 1 ) * numSamples, ( maxZ - minZ ) / stepSize + 1 );
 		}
+	}
+	
+	
+	/**
+	 * Create an ARGB rendering of a 3D composite stack.  Time series are
+	 * rendered by {@link #runARGBTimeSeries}.
+	 *  
+	 * @param impSource 3d image, will be converted to multi-channel float
+	 * @param width width of the target canvas
+	 * @param height height of the target canvas
+	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background color
+	 * @param interpolationMethod 0 NN, 1 NL
+	 * @param alphaScale scale factor for linear intensity to alpha transfer 
+	 * @param alphaOffset offset for linear intensity to alpha transfer
+	 * 
+	 * @return
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > ImagePlus runARGB(
+			final ImagePlus impSource,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble )
+	{
+		return runARGB( impSource, width, height, orientation, distance, f, offset, stepSize, bg, interpolationMethod, composite2ARGBDouble, 0, null, ARGBStorage.DOUBLE, null );
+	}
+	
+	
+	/**
+	 * Create an ARGB rendering of a 3D composite stack.  Time series are
+	 * rendered by {@link #runARGBTimeSeries}.
+	 *  
+	 * @param impSource 3d image, will be converted to multi-channel float
+	 * @param width width of the target canvas
+	 * @param height height of the target canvas
+	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center (useful to distance-normalize stereo-projections)
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background color
+	 * @param interpolationMethod 0 NN, 1 NL
+	 * @param composite2ARGBDouble channel to ARGB conversion
+	 * @param pool render tiles of the canvas in parallel on this pool, null renders in the calling thread
+	 * 
+	 * @return
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > ImagePlus runARGB(
+			final ImagePlus impSource,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final ForkJoinPool pool )
+	{
+		return runARGB( impSource, width, height, orientation, distance, f, offset, stepSize, bg, interpolationMethod, composite2ARGBDouble, 0, null, ARGBStorage.DOUBLE, pool );
+	}
+	
+	
+	/**
+	 * See the overload with maxBytes, {@link ARGBStorage#LAZY} converts
+	 * bricks within {@link LazyARGBSampler#defaultMaxBytes()}.
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > ImagePlus runARGB(
+			final ImagePlus impSource,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ARGBStorage storage,
+			final ForkJoinPool pool )
+	{
+		return runARGB(
+				impSource,
+				width,
+				height,
+				orientation,
+				distance,
+				f,
+				offset,
+				stepSize,
+				bg,
+				interpolationMethod,
+				composite2ARGBDouble,
+				minTransmittance,
+				jitter,
+				storage,
+				LazyARGBSampler.defaultMaxBytes(),
+				pool );
+	}
+	
+	
+	/**
+	 * Create an ARGB rendering of a 3D composite stack.  Time series are
+	 * rendered by {@link #runARGBTimeSeries}.
+	 *  
+	 * @param impSource 3d image, will be converted to multi-channel float
+	 * @param width width of the target canvas
+	 * @param height height of the target canvas
+	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center (useful to distance-normalize stereo-projections)
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background color
+	 * @param interpolationMethod 0 NN, 1 NL
+	 * @param composite2ARGBDouble channel to ARGB conversion
+	 * @param minTransmittance composite front-to-back and terminate rays once their transmittance drops below this value, 0 composites back-to-front
+	 * @param jitter offset the start of each ray by a hashed fraction of stepSize and average numSamples stratified rays per pixel in one pass, null for none
+	 * @param storage of the ARGB copy of the volume, compact storage is premultiplied, Lanczos interpolation always uses {@link ARGBStorage#DOUBLE}
+	 * @param maxBytes memory budget for the bricks converted by {@link ARGBStorage#LAZY}, coarser pyramid levels get an eighth of the next finer level
+	 * @param pool render tiles of the canvas in parallel on this pool, null renders in the calling thread
+	 * 
+	 * @return
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > ImagePlus runARGB(
+			final ImagePlus impSource,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ARGBStorage storage,
+			final long maxBytes,
+			final ForkJoinPool pool )
+	{
+		/* build target */
+		final int[] argbPixels = new int[ width * height ];
+		final ArrayImg< ARGBType, IntArray > argbCanvas = ArrayImgs.argbs( argbPixels, width, height );
 		
-		final FloatProcessor fp = new FloatProcessor( width, height, floatPixels[ 0 ] );
-//		new ImagePlus( impSource.getTitle(), fp ).show();
-		fp.setMinAndMax( min, max );
-		final ByteProcessor bp = ( ByteProcessor )fp.convertToByte( true );
+		/* render */
+		runARGB( impSource, argbCanvas, orientation, distance, f, offset, stepSize, bg, interpolationMethod, composite2ARGBDouble, minTransmittance, jitter, storage, maxBytes, pool );
 		
-		return new ImagePlus( impSource.getTitle(), bp );
+		/* wrap as ImagePlus */
+		final ColorProcessor cp = new ColorProcessor( width, height, argbPixels );
+		return new ImagePlus( impSource.getTitle(), cp );
+	}
+	
+	
+	/**
+	 * Create a stereo ARGB rendering of a 3D composite stack.  No time series
+	 * supported.
+	 *  
+	 * @param impSource 3d image, will be converted to singel channle float even if it is ARGB-color
+	 * @param width width of the target canvas
+	 * @param height height of the target canvas
+	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param stereoBase 1/2 distance of the stereo cameras
+	 * @param offset from camera center
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background color
+	 * @param interpolationMethod 0 NN, 1 NL
+	 * @param alphaScale scale factor for linear intensity to alpha transfer 
+	 * @param alphaOffset offset for linear intensity to alpha transfer
+	 * 
+	 * @return
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > void runARGBStereo(
+			final ImagePlus impSource,
+			final ArrayImg< ARGBType, IntArray > argbCanvasLeft,
+			final ArrayImg< ARGBType, IntArray > argbCanvasRight,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final double stereoBase,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double intensityScale,
+			final Anaglyph anaglyph ) throws InterruptedException
+	{
+		runARGBStereo(
+				impSource,
+				argbCanvasLeft,
+				argbCanvasRight,
+				orientation,
+				distance,
+				f,
+				stereoBase,
+				offset,
+				stepSize,
+				bg,
+				interpolationMethod,
+				composite2ARGBDouble,
+				intensityScale,
+				anaglyph,
+				0,
+				null,
+				ARGBStorage.DOUBLE,
+				getSharedPool() );
+	}
+	
+	
+	/**
+	 * Create a stereo ARGB rendering of a 3D composite stack.  No time series
+	 * supported.
+	 *  
+	 * @param impSource 3d image, will be converted to singel channle float even if it is ARGB-color
+	 * @param argbCanvasLeft target canvas for the left eye, receives the anaglyph
+	 * @param argbCanvasRight target canvas for the right eye
+	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param stereoBase 1/2 distance of the stereo cameras
+	 * @param offset from camera center
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background color
+	 * @param interpolationMethod 0 NN, 1 NL
+	 * @param composite2ARGBDouble channel to ARGB conversion
+	 * @param intensityScale
+	 * @param anaglyph
+	 * @param pool render tiles of the canvases in parallel on this pool, null renders each eye in one thread
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > void runARGBStereo(
+			final ImagePlus impSource,
+			final ArrayImg< ARGBType, IntArray > argbCanvasLeft,
+			final ArrayImg< ARGBType, IntArray > argbCanvasRight,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final double stereoBase,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double intensityScale,
+			final Anaglyph anaglyph,
+			final ForkJoinPool pool ) throws InterruptedException
+	{
+		runARGBStereo(
+				impSource,
+				argbCanvasLeft,
+				argbCanvasRight,
+				orientation,
+				distance,
+				f,
+				stereoBase,
+				offset,
+				stepSize,
+				bg,
+				interpolationMethod,
+				composite2ARGBDouble,
+				intensityScale,
+				anaglyph,
+				0,
+				null,
+				ARGBStorage.DOUBLE,
+				pool );
+	}
+	
+	
+	/**
+	 * See the overload with maxBytes, {@link ARGBStorage#LAZY} converts
+	 * bricks within {@link LazyARGBSampler#defaultMaxBytes()}.
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > void runARGBStereo(
+			final ImagePlus impSource,
+			final ArrayImg< ARGBType, IntArray > argbCanvasLeft,
+			final ArrayImg< ARGBType, IntArray > argbCanvasRight,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final double stereoBase,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double intensityScale,
+			final Anaglyph anaglyph,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ARGBStorage storage,
+			final ForkJoinPool pool ) throws InterruptedException
+	{
+		runARGBStereo(
+				impSource,
+				argbCanvasLeft,
+				argbCanvasRight,
+				orientation,
+				distance,
+				f,
+				stereoBase,
+				offset,
+				stepSize,
+				bg,
+				interpolationMethod,
+				composite2ARGBDouble,
+				intensityScale,
+				anaglyph,
+				minTransmittance,
+				jitter,
+				storage,
+				LazyARGBSampler.defaultMaxBytes(),
+				pool );
 	}
 	
 	
 	/**
-	 * Create an ARGB rendering of a 3D composite stack.  No time series
+	 * Create a stereo ARGB rendering of a 3D composite stack.  No time series
 	 * supported.
 	 *  
-	 * @param impSource 3d image, will be converted to multi-channel float
-	 * @param width width of the target canvas
-	 * @param height height of the target canvas
+	 * @param impSource 3d image, will be converted to singel channle float even if it is ARGB-color
+	 * @param argbCanvasLeft target canvas for the left eye, receives the anaglyph
+	 * @param argbCanvasRight target canvas for the right eye
 	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
 	 * @param distance between camera and origin in multiples of width
 	 * @param f focal length in multiples of width
-	 * @param offset from camera center (useful to distance-normalize stereo-projections)
+	 * @param stereoBase 1/2 distance of the stereo cameras
+	 * @param offset from camera center
 	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
 	 * @param bg background color
 	 * @param interpolationMethod 0 NN, 1 NL
-	 * @param alphaScale scale factor for linear intensity to alpha transfer 
-	 * @param alphaOffset offset for linear intensity to alpha transfer
-	 * 
-	 * @return
+	 * @param composite2ARGBDouble channel to ARGB conversion
+	 * @param intensityScale
+	 * @param anaglyph
+	 * @param minTransmittance composite front-to-back and terminate rays once their transmittance drops below this value, 0 composites back-to-front
+	 * @param jitter offset the start of each ray by a hashed fraction of stepSize and average numSamples stratified rays per pixel in one pass, null for none
+	 * @param storage of the ARGB copy of the volume, compact storage is premultiplied, Lanczos interpolation always uses {@link ARGBStorage#DOUBLE}
+	 * @param maxBytes memory budget for the bricks converted by {@link ARGBStorage#LAZY}, coarser pyramid levels get an eighth of the next finer level
+	 * @param pool render tiles of both canvases in parallel on this pool, null renders in the calling thread
 	 */
-	final static public < T extends AbstractARGBDoubleType< T > > void runARGB(
+	final static public < T extends AbstractARGBDoubleType< T > > void runARGBStereo(
 			final ImagePlus impSource,
-			final ArrayImg< ARGBType, IntArray > argbCanvas,
+			final ArrayImg< ARGBType, IntArray > argbCanvasLeft,
+			final ArrayImg< ARGBType, IntArray > argbCanvasRight,
 			final AffineTransform3D orientation,
 			final double distance,
 			final double f,
+			final double stereoBase,
 			final Translation3D offset,
 			final long stepSize,
 			final T bg,
 			final Interpolation interpolationMethod,
-			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble )
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double intensityScale,
+			final Anaglyph anaglyph,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ARGBStorage storage,
+			final long maxBytes,
+			final ForkJoinPool pool ) throws InterruptedException
 	{
-		/* copy contents into most appropriate container */
-		final Img< FloatType > img = floatCopyCompositeImage( impSource );
-		
-		final int width = ( int )argbCanvas.dimension( 0 );
-		final int height = ( int )argbCanvas.dimension( 1 );
-		
-		/* collapse composite dimension */
-		final RandomAccessibleInterval< FloatType > xyzc = Views.permute( img, 2, 3 );
-		final CompositeView< FloatType, RealComposite< FloatType > > composite =
-				Views.collapseReal( Views.extendZero( xyzc ), ( int )xyzc.dimension( 3 ) );
-		
-		final FinalInterval box = new FinalInterval(
-				xyzc.dimension( 0 ),
-				xyzc.dimension( 1 ),
-				xyzc.dimension( 2 ) );
-		
-		System.out.println(
-				box.dimension( 0 ) + " " + 
-				box.dimension( 1 ) + " " +
-				box.dimension( 2 ) );
-		
-		/* convert */
-		final Img< NativeARGBDoubleType > argbCopy = convert(
-				composite,
-				box,
-				composite2ARGBDouble );
-		
-		/* build transformation */
-		final AffineTransform3D affine = buildAffineTransform(
-				orientation,
-				xyzc.dimension( 0 ),
-				xyzc.dimension( 1 ),
-				xyzc.dimension( 2 ),
-				distance );
-		
-		final InvertibleRealTransformSequence transformSequence = new InvertibleRealTransformSequence();
+		final AffineTransform3D affineLeft = new AffineTransform3D();
+		affineLeft.set(
+				1, 0, 0, stereoBase,
+				0, 1, 0, 0,
+				0, 0, 1, 0 );
+		affineLeft.concatenate( orientation );
 		
-		transformSequence.add( affine );
+		final AffineTransform3D affineRight = orientation.copy();
+		affineRight.set(
+				1, 0, 0, -stereoBase,
+				0, 1, 0, 0,
+				0, 0, 1, 0 );
+		affineRight.concatenate( orientation );
 		
-		appendCamera(
-				transformSequence,
-				width,
-				height,
-				xyzc.dimension( 2 ),
+		renderARGBStereo(
+				new ARGBVolume( impSource, interpolationMethod, composite2ARGBDouble, storage, maxBytes, pool ),
+				argbCanvasLeft,
+				argbCanvasRight,
+				affineLeft,
+				affineRight,
+				distance,
 				f,
-				offset );
-		
-		/* build source */
-		final RandomAccessible< NativeARGBDoubleType > rotated = buildTransformedSource( argbCopy, transformSequence, interpolationMethod );
-		
-		/* calculate boundaries */
-		final FinalRealInterval bounds = affine.estimateBounds( box );
-		final long minZ	= ( long )Math.floor( bounds.realMin( 2 ) );
-		final long maxZ	= ( long )Math.ceil( bounds.realMax( 2 ) );
+				offset,
+				stepSize,
+				bg,
+				minTransmittance,
+				jitter,
+				pool );
 		
-		/* accumulator */
-		final ARGBDoubleLayers< NativeARGBDoubleType > accumulator = new ARGBDoubleLayers< NativeARGBDoubleType >();
+		final long t0 = System.nanoTime();
+		switch ( anaglyph )
+		{
+		case RedGreen:
+			mixRedGreenAnaglyph( argbCanvasLeft, argbCanvasRight, intensityScale );
+			break;
+		case RedCyan:
+			mixRedCyanAnaglyph( argbCanvasLeft, argbCanvasRight, intensityScale );
+			break;
+		case GreenMagenta:
+			mixGreenMagentaAnaglyph( argbCanvasLeft, argbCanvasRight, intensityScale );
+		}
 		
-		final NativeARGBDoubleType nativeBg = new NativeARGBDoubleType();
-		nativeBg.set( bg.getA(), bg.getR(), bg.getG(), bg.getB() );
+		final RenderStats stats = RenderStats.current();
+		if ( stats != null )
+			stats.phase( RenderStats.Phase.MIX, System.nanoTime() - t0 );
+	}
+	
+	/**
+	 * Render both eyes of a stereo pair from one prepared composite volume.
+	 * The tiles of both canvases are rendered on the same pool.
+	 *  
+	 * @param volume
+	 * @param argbCanvasLeft target canvas for the left eye
+	 * @param argbCanvasRight target canvas for the right eye
+	 * @param affineLeft orientation of the left eye
+	 * @param affineRight orientation of the right eye
+	 * @param distance between camera and origin in multiples of width
+	 * @param f focal length in multiples of width
+	 * @param offset from camera center, the left eye uses its inverse
+	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
+	 * @param bg background color
+	 * @param minTransmittance composite front-to-back and terminate rays once their transmittance drops below this value, 0 composites back-to-front
+	 * @param jitter offset the start of each ray by a hashed fraction of stepSize and average numSamples stratified rays per pixel in one pass, null for none
+	 * @param pool render tiles of the canvases in parallel on this pool, null renders in the calling thread
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > void renderARGBStereo(
+			final ARGBVolume volume,
+			final ArrayImg< ARGBType, IntArray > argbCanvasLeft,
+			final ArrayImg< ARGBType, IntArray > argbCanvasRight,
+			final AffineTransform3D affineLeft,
+			final AffineTransform3D affineRight,
+			final double distance,
+			final double f,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ForkJoinPool pool )
+	{
+		/* the eyes may render on workers of the pool */
+		final RenderStats stats = RenderStats.current();
 		
-		/* render */
-		renderARGBDouble( rotated, argbCanvas, minZ, maxZ, stepSize, nativeBg, accumulator );
+		final ArrayList< RecursiveAction > eyes = new ArrayList< RecursiveAction >();
+		eyes.add(
+				new RecursiveAction()
+				{
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					final protected void compute()
+					{
+						final RenderStats previous = stats == null ? null : stats.bind();
+						try
+						{
+							renderARGB( volume, argbCanvasLeft, affineLeft, distance, f, offset.inverse(), stepSize, bg, minTransmittance, jitter, pool );
+						}
+						finally
+						{
+							if ( stats != null )
+								RenderStats.unbind( previous );
+						}
+					}
+				} );
+		eyes.add(
+				new RecursiveAction()
+				{
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					final protected void compute()
+					{
+						final RenderStats previous = stats == null ? null : stats.bind();
+						try
+						{
+							renderARGB( volume, argbCanvasRight, affineRight, distance, f, offset, stepSize, bg, minTransmittance, jitter, pool );
+						}
+						finally
+						{
+							if ( stats != null )
+								RenderStats.unbind( previous );
+						}
+					}
+				} );
+		invokeAll( pool, eyes );
 	}
 	
 	
 	/**
-	 * Create an ARGB rendering of a 3D composite stack.  No time series
+	 * Create a stereo ARGB rendering of a 3D composite stack.  No time series
 	 * supported.
 	 *  
-	 * @param impSource 3d image, will be converted to multi-channel float
+	 * @param impSource 3d image, will be converted to singel channle float even if it is ARGB-color
 	 * @param width width of the target canvas
 	 * @param height height of the target canvas
 	 * @param orientation initial transformation assuming that the 3d volume is centered (e.g. export of Interactive Stack Rotation)
 	 * @param distance between camera and origin in multiples of width
 	 * @param f focal length in multiples of width
+	 * @param stereoBase 1/2 distance of the stereo cameras
+	 * @param offset from camera center (useful to distance-normalize stereo-projections)
 	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
 	 * @param bg background color
 	 * @param interpolationMethod 0 NN, 1 NL
@@ -773,29 +3190,41 @@ public class Renderer
 	 * 
 	 * @return
 	 */
-	final static public < T extends AbstractARGBDoubleType< T > > ImagePlus runARGB(
+	final static public < T extends AbstractARGBDoubleType< T > > ImagePlus runARGBStereo(
 			final ImagePlus impSource,
 			final int width,
 			final int height,
 			final AffineTransform3D orientation,
 			final double distance,
 			final double f,
+			final double stereoBase,
 			final Translation3D offset,
 			final long stepSize,
 			final T bg,
 			final Interpolation interpolationMethod,
-			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble )
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double intensityScale,
+			final Anaglyph anaglyph ) throws InterruptedException
 	{
-		/* build target */
-		final int[] argbPixels = new int[ width * height ];
-		final ArrayImg< ARGBType, IntArray > argbCanvas = ArrayImgs.argbs( argbPixels, width, height );
-		
-		/* render */
-		runARGB( impSource, argbCanvas, orientation, distance, f, offset, stepSize, bg, interpolationMethod, composite2ARGBDouble );
-		
-		/* wrap as ImagePlus */
-		final ColorProcessor cp = new ColorProcessor( width, height, argbPixels );
-		return new ImagePlus( impSource.getTitle(), cp );
+		return runARGBStereo(
+				impSource,
+				width,
+				height,
+				orientation,
+				distance,
+				f,
+				stereoBase,
+				offset,
+				stepSize,
+				bg,
+				interpolationMethod,
+				composite2ARGBDouble,
+				intensityScale,
+				anaglyph,
+				0,
+				null,
+				ARGBStorage.DOUBLE,
+				getSharedPool() );
 	}
 	
 	
@@ -810,19 +3239,21 @@ public class Renderer
 	 * @param distance between camera and origin in multiples of width
 	 * @param f focal length in multiples of width
 	 * @param stereoBase 1/2 distance of the stereo cameras
-	 * @param offset from camera center
+	 * @param offset from camera center (useful to distance-normalize stereo-projections)
 	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
 	 * @param bg background color
 	 * @param interpolationMethod 0 NN, 1 NL
-	 * @param alphaScale scale factor for linear intensity to alpha transfer 
-	 * @param alphaOffset offset for linear intensity to alpha transfer
+	 * @param composite2ARGBDouble channel to ARGB conversion
+	 * @param intensityScale
+	 * @param anaglyph
+	 * @param pool render tiles of the canvases in parallel on this pool, null renders each eye in one thread
 	 * 
 	 * @return
 	 */
-	final static public < T extends AbstractARGBDoubleType< T > > void runARGBStereo(
+	final static public < T extends AbstractARGBDoubleType< T > > ImagePlus runARGBStereo(
 			final ImagePlus impSource,
-			final ArrayImg< ARGBType, IntArray > argbCanvasLeft,
-			final ArrayImg< ARGBType, IntArray > argbCanvasRight,
+			final int width,
+			final int height,
 			final AffineTransform3D orientation,
 			final double distance,
 			final double f,
@@ -833,77 +3264,78 @@ public class Renderer
 			final Interpolation interpolationMethod,
 			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
 			final double intensityScale,
-			final Anaglyph anaglyph ) throws InterruptedException
+			final Anaglyph anaglyph,
+			final ForkJoinPool pool ) throws InterruptedException
 	{
-		final AffineTransform3D affineLeft = new AffineTransform3D();
-		affineLeft.set(
-				1, 0, 0, stereoBase,
-				0, 1, 0, 0,
-				0, 0, 1, 0 );
-		affineLeft.concatenate( orientation );
-		
-		final AffineTransform3D affineRight = orientation.copy();
-		affineRight.set(
-				1, 0, 0, -stereoBase,
-				0, 1, 0, 0,
-				0, 0, 1, 0 );
-		affineRight.concatenate( orientation );
-		
-		final Thread tLeft = new Thread(
-				new Runnable(){
-					@Override
-					final public void run()
-					{
-						runARGB(
-								impSource,
-								argbCanvasLeft,
-								affineLeft,
-								distance,
-								f,
-								offset.inverse(),
-								stepSize,
-								bg,
-								interpolationMethod,
-								composite2ARGBDouble );
-					}
-				} );
-		
-		final Thread tRight = new Thread(
-				new Runnable(){
-					@Override
-					final public void run()
-					{
-						runARGB(
-								impSource,
-								argbCanvasRight,
-								affineRight,
-								distance,
-								f,
-								offset,
-								stepSize,
-								bg,
-								interpolationMethod,
-								composite2ARGBDouble );
-					}
-				} );
-		tLeft.start();
-		tRight.start();
-		tLeft.join();
-		tRight.join();
-		
-		switch ( anaglyph )
-		{
-		case RedGreen:
-			mixRedGreenAnaglyph( argbCanvasLeft, argbCanvasRight, intensityScale );
-			break;
-		case RedCyan:
-			mixRedCyanAnaglyph( argbCanvasLeft, argbCanvasRight, intensityScale );
-			break;
-		case GreenMagenta:
-			mixGreenMagentaAnaglyph( argbCanvasLeft, argbCanvasRight, intensityScale );
-		}
+		return runARGBStereo(
+				impSource,
+				width,
+				height,
+				orientation,
+				distance,
+				f,
+				stereoBase,
+				offset,
+				stepSize,
+				bg,
+				interpolationMethod,
+				composite2ARGBDouble,
+				intensityScale,
+				anaglyph,
+				0,
+				null,
+				ARGBStorage.DOUBLE,
+				pool );
+	}
+	
+	
+	/**
+	 * See the overload with maxBytes, {@link ARGBStorage#LAZY} converts
+	 * bricks within {@link LazyARGBSampler#defaultMaxBytes()}.
+	 */
+	final static public < T extends AbstractARGBDoubleType< T > > ImagePlus runARGBStereo(
+			final ImagePlus impSource,
+			final int width,
+			final int height,
+			final AffineTransform3D orientation,
+			final double distance,
+			final double f,
+			final double stereoBase,
+			final Translation3D offset,
+			final long stepSize,
+			final T bg,
+			final Interpolation interpolationMethod,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final double intensityScale,
+			final Anaglyph anaglyph,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ARGBStorage storage,
+			final ForkJoinPool pool ) throws InterruptedException
+	{
+		return runARGBStereo(
+				impSource,
+				width,
+				height,
+				orientation,
+				distance,
+				f,
+				stereoBase,
+				offset,
+				stepSize,
+				bg,
+				interpolationMethod,
+				composite2ARGBDouble,
+				intensityScale,
+				anaglyph,
+				minTransmittance,
+				jitter,
+				storage,
+				LazyARGBSampler.defaultMaxBytes(),
+				pool );
 	}
 	
+	
 	/**
 	 * Create a stereo ARGB rendering of a 3D composite stack.  No time series
 	 * supported.
@@ -919,8 +3351,14 @@ public class Renderer
 	 * @param stepSize z-stepping for the volume renderer higher is faster but less beautiful
 	 * @param bg background color
 	 * @param interpolationMethod 0 NN, 1 NL
-	 * @param alphaScale scale factor for linear intensity to alpha transfer 
-	 * @param alphaOffset offset for linear intensity to alpha transfer
+	 * @param composite2ARGBDouble channel to ARGB conversion
+	 * @param intensityScale
+	 * @param anaglyph
+	 * @param minTransmittance composite front-to-back and terminate rays once their transmittance drops below this value, 0 composites back-to-front
+	 * @param jitter offset the start of each ray by a hashed fraction of stepSize and average numSamples stratified rays per pixel in one pass, null for none
+	 * @param storage of the ARGB copy of the volume, compact storage is premultiplied, Lanczos interpolation always uses {@link ARGBStorage#DOUBLE}
+	 * @param maxBytes memory budget for the bricks converted by {@link ARGBStorage#LAZY}, coarser pyramid levels get an eighth of the next finer level
+	 * @param pool render tiles of both canvases in parallel on this pool, null renders in the calling thread
 	 * 
 	 * @return
 	 */
@@ -938,7 +3376,12 @@ public class Renderer
 			final Interpolation interpolationMethod,
 			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
 			final double intensityScale,
-			final Anaglyph anaglyph ) throws InterruptedException
+			final Anaglyph anaglyph,
+			final double minTransmittance,
+			final Jitter jitter,
+			final ARGBStorage storage,
+			final long maxBytes,
+			final ForkJoinPool pool ) throws InterruptedException
 	{
 		/* build targets */
 		final int[] argbPixelsLeft = new int[ width * height ];
@@ -965,7 +3408,12 @@ public class Renderer
 				interpolationMethod,
 				composite2ARGBDouble,
 				intensityScale,
-				anaglyph );
+				anaglyph,
+				minTransmittance,
+				jitter,
+				storage,
+				maxBytes,
+				pool );
 		
 		return omp;
 	}
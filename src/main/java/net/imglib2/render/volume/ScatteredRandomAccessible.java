@@ -0,0 +1,127 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.Interval;
+import net.imglib2.Point;
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+
+/**
+ * Wraps a transformed source in canvas coordinates such that canvas pixel
+ * (k, 0) reads the ray of canvas pixel (xs[k], ys[k]).  This renders an
+ * arbitrary list of pixels into a numPixels x 1 canvas.  Moves along the
+ * ray dimension (2) are passed on to the source, so wrapped accesses that
+ * jump along the ray keep doing so.
+ */
+public class ScatteredRandomAccessible< T > implements RandomAccessible< T >
+{
+	final protected RandomAccessible< T > source;
+	final protected long[] xs, ys;
+	
+	/**
+	 * @param source transformed source in canvas coordinates
+	 * @param xs x-coordinates of the listed pixels
+	 * @param ys y-coordinates of the listed pixels
+	 */
+	public ScatteredRandomAccessible(
+			final RandomAccessible< T > source,
+			final long[] xs,
+			final long[] ys )
+	{
+		this.source = source;
+		this.xs = xs;
+		this.ys = ys;
+	}
+	
+	@Override
+	public int numDimensions()
+	{
+		return source.numDimensions();
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess()
+	{
+		return new ScatteredRandomAccess();
+	}
+
+	@Override
+	public RandomAccess< T > randomAccess( final Interval interval )
+	{
+		return randomAccess();
+	}
+	
+	public class ScatteredRandomAccess extends Point implements RandomAccess< T >
+	{
+		final protected RandomAccess< T > sourceAccess;
+		
+		public ScatteredRandomAccess()
+		{
+			super( source.numDimensions() );
+			sourceAccess = source.randomAccess();
+		}
+		
+		protected void updateSource()
+		{
+			final int k = ( int )position[ 0 ];
+			sourceAccess.setPosition( xs[ k ], 0 );
+			sourceAccess.setPosition( ys[ k ], 1 );
+			sourceAccess.setPosition( position[ 2 ], 2 );
+		}
+		
+		@Override
+		public void move( final long distance, final int d )
+		{
+			if ( d == 2 && distance != 0 )
+			{
+				updateSource();
+				sourceAccess.move( distance, d );
+				position[ d ] = sourceAccess.getLongPosition( d );
+			}
+			else
+				position[ d ] += distance;
+		}
+		
+		@Override
+		public void move( final int distance, final int d )
+		{
+			move( ( long )distance, d );
+		}
+		
+		@Override
+		public T get()
+		{
+			updateSource();
+			return sourceAccess.get();
+		}
+
+		@Override
+		public ScatteredRandomAccess copy()
+		{
+			final ScatteredRandomAccess copy = new ScatteredRandomAccess();
+			copy.setPosition( this );
+			return copy;
+		}
+
+		@Override
+		public ScatteredRandomAccess copyRandomAccess()
+		{
+			return copy();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import net.imglib2.Interval;
+import net.imglib2.render.volume.Renderer.Interpolation;
+
+/**
+ * {@link RayClipping} for a numPixels x 1 canvas of listed pixels, see
+ * {@link ScatteredRandomAccessible}.  Canvas pixel (k, 0) is clipped like
+ * canvas pixel (xs[k], ys[k]).
+ */
+public class ScatteredRayClipping extends RayClipping
+{
+	final protected long[] xs, ys;
+	
+	/**
+	 * @param rays the rays of the canvas pixels in source coordinates
+	 * @param box the source volume
+	 * @param interpolationMethod
+	 * @param xs x-coordinates of the listed pixels
+	 * @param ys y-coordinates of the listed pixels
+	 */
+	public ScatteredRayClipping(
+			final ProjectiveRays rays,
+			final Interval box,
+			final Interpolation interpolationMethod,
+			final long[] xs,
+			final long[] ys )
+	{
+		super( rays, box, interpolationMethod );
+		this.xs = xs;
+		this.ys = ys;
+	}
+	
+	@Override
+	public boolean clip(
+			final long k,
+			final long y,
+			final long minZ,
+			final long maxZ,
+			final long step,
+			final double[] zRange,
+			final long[] range )
+	{
+		return super.clip( xs[ ( int )k ], ys[ ( int )k ], minZ, maxZ, step, zRange, range );
+	}
+}
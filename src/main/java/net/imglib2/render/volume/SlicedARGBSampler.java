@@ -0,0 +1,94 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessible;
+import net.imglib2.type.numeric.ARGBDoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.composite.RealComposite;
+
+/**
+ * {@link PremultipliedARGBSampler} that converts the whole volume up front
+ * and stores each z-slice in one array.
+ */
+abstract public class SlicedARGBSampler extends PremultipliedARGBSampler
+{
+	public SlicedARGBSampler( final int width, final int height, final int depth, final boolean linear )
+	{
+		super( width, height, depth, linear );
+	}
+	
+	/**
+	 * Allocate z-slice z.
+	 */
+	abstract protected void createSlice( final int z );
+	
+	/**
+	 * Store premultiplied (a, r, g, b) at index i of z-slice z.
+	 */
+	abstract protected void store( final int z, final int i, final double a, final double r, final double g, final double b );
+	
+	/**
+	 * Convert and store the composite volume in [0, dimension) slice by
+	 * slice on the pool.
+	 * 
+	 * @param pool null for converting on the calling thread
+	 */
+	@Override
+	public void convert(
+			final RandomAccessible< RealComposite< FloatType > > composite,
+			final RealCompositeARGBDoubleConverter< FloatType > composite2ARGBDouble,
+			final ForkJoinPool pool )
+	{
+		final ArrayList< RecursiveAction > tasks = new ArrayList< RecursiveAction >();
+		for ( int z = 0; z < depth; ++z )
+		{
+			final int slice = z;
+			tasks.add(
+					new RecursiveAction()
+					{
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						final protected void compute()
+						{
+							createSlice( slice );
+							final RandomAccess< RealComposite< FloatType > > access = composite.randomAccess();
+							final ARGBDoubleType argb = new ARGBDoubleType();
+							access.setPosition( slice, 2 );
+							for ( int y = 0, i = 0; y < height; ++y )
+							{
+								access.setPosition( y, 1 );
+								for ( int x = 0; x < width; ++x, ++i )
+								{
+									access.setPosition( x, 0 );
+									composite2ARGBDouble.convert( access.get(), argb );
+									final double a = argb.getA();
+									store( slice, i, a, a * argb.getR(), a * argb.getG(), a * argb.getB() );
+								}
+							}
+						}
+					} );
+		}
+		Renderer.invokeAll( pool, tasks );
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link FloatSampler} over slices that arrive one by one while rendering,
+ * see {@link StreamingGrayVolume}.  Slices that have not arrived yet are
+ * zero.
+ */
+public class StreamingFloatSampler extends FloatSampler
+{
+	final protected AtomicReferenceArray< float[] > slices;
+	
+	public StreamingFloatSampler( final int width, final int height, final int depth, final boolean linear )
+	{
+		super( width, height, depth, linear );
+		slices = new AtomicReferenceArray< float[] >( depth );
+	}
+	
+	/**
+	 * Publish slice z to all render threads.
+	 */
+	public void setSlice( final int z, final float[] slice )
+	{
+		slices.set( z, slice );
+	}
+	
+	@Override
+	final protected float voxel( final int x, final int y, final int z )
+	{
+		final float[] s = slices.get( z );
+		return s == null ? 0 : s[ y * width + x ];
+	}
+	
+	@Override
+	final protected double interior( final int x0, final int y0, final int z0, final double fx, final double fy, final double fz )
+	{
+		final float[] s0 = slices.get( z0 );
+		final float[] s1 = slices.get( z0 + 1 );
+		final int i00 = y0 * width + x0;
+		final int i10 = i00 + width;
+		if ( s0 == null || s1 == null )
+		{
+			final double v0 = s0 == null ? 0 : lerp( s0[ i00 ], s0[ i00 + 1 ], s0[ i10 ], s0[ i10 + 1 ], 0, 0, 0, 0, fx, fy, 0 );
+			final double v1 = s1 == null ? 0 : lerp( s1[ i00 ], s1[ i00 + 1 ], s1[ i10 ], s1[ i10 + 1 ], 0, 0, 0, 0, fx, fy, 0 );
+			return v0 + fz * ( v1 - v0 );
+		}
+		return lerp(
+				s0[ i00 ], s0[ i00 + 1 ], s0[ i10 ], s0[ i10 + 1 ],
+				s1[ i00 ], s1[ i00 + 1 ], s1[ i10 ], s1[ i10 + 1 ],
+				fx, fy, fz );
+	}
+}
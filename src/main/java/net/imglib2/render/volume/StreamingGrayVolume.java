@@ -0,0 +1,162 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.process.ImageProcessor;
+import net.imglib2.FinalInterval;
+import net.imglib2.render.volume.Renderer.Interpolation;
+
+/**
+ * {@link GrayVolume} that is filled in z-slabs by a background thread while
+ * it is rendered.  Slices that have not arrived yet are zero, so rendering
+ * before {@link #isComplete()} composites the slabs loaded so far.  Open
+ * large stacks as virtual stacks to read them from disk slab by slab.
+ * Empty space skipping and the resolution pyramid are not available
+ * because they would require the whole volume.
+ */
+public class StreamingGrayVolume extends GrayVolume
+{
+	final protected StreamingFloatSampler sampler;
+	final protected int slabSize;
+	
+	/* number of slices loaded, guarded by this */
+	protected int numLoaded = 0;
+	protected Throwable failure = null;
+	
+	protected volatile boolean stopped = false;
+	
+	/**
+	 * Start loading impSource, will be converted to float.
+	 * 
+	 * @param impSource 3d image, preferably a virtual stack, of hyperstacks the first channel and frame
+	 * @param interpolationMethod nearest neighbor or n-linear
+	 * @param slabSize number of slices published at once
+	 */
+	public StreamingGrayVolume(
+			final ImagePlus impSource,
+			final Interpolation interpolationMethod,
+			final int slabSize )
+	{
+		this(
+				new StreamingFloatSampler(
+						impSource.getWidth(),
+						impSource.getHeight(),
+						impSource.getNSlices(),
+						interpolationMethod == Interpolation.NL ),
+				interpolationMethod,
+				slabSize );
+		
+		final Thread loader = new Thread(
+				new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						load( impSource );
+					}
+				},
+				"Slab loader " + impSource.getTitle() );
+		loader.setDaemon( true );
+		loader.start();
+	}
+	
+	protected StreamingGrayVolume(
+			final StreamingFloatSampler sampler,
+			final Interpolation interpolationMethod,
+			final int slabSize )
+	{
+		super(
+				new FinalInterval( sampler.width, sampler.height, sampler.depth ),
+				interpolationMethod,
+				sampler );
+		this.sampler = sampler;
+		this.slabSize = slabSize;
+	}
+	
+	protected void load( final ImagePlus impSource )
+	{
+		try
+		{
+			final ImageStack stack = impSource.getStack();
+			final int depth = sampler.depth;
+			final int nPixels = sampler.width * sampler.height;
+			for ( int z0 = 0; z0 < depth && !stopped; z0 += slabSize )
+			{
+				final int z1 = Math.min( depth, z0 + slabSize );
+				final float[][] slab = new float[ z1 - z0 ][];
+				for ( int z = z0; z < z1; ++z )
+				{
+					final ImageProcessor ip = stack.getProcessor( impSource.getStackIndex( 1, z + 1, 1 ) );
+					final float[] floats = new float[ nPixels ];
+					for ( int j = 0; j < nPixels; ++j )
+						floats[ j ] = ip.getf( j );
+					slab[ z - z0 ] = floats;
+				}
+				for ( int z = z0; z < z1; ++z )
+					sampler.setSlice( z, slab[ z - z0 ] );
+				synchronized ( this )
+				{
+					numLoaded = z1;
+					notifyAll();
+				}
+			}
+		}
+		catch ( final Throwable t )
+		{
+			synchronized ( this )
+			{
+				failure = t;
+				notifyAll();
+			}
+		}
+	}
+	
+	synchronized public int numLoaded()
+	{
+		return numLoaded;
+	}
+	
+	synchronized public boolean isComplete()
+	{
+		return numLoaded == sampler.depth;
+	}
+	
+	/**
+	 * Wait until more than n slices are loaded or loading is complete.
+	 * 
+	 * @return number of loaded slices
+	 */
+	/**
+	 * Stop loading after the current slab, slices loaded so far stay
+	 * available.
+	 */
+	public void stop()
+	{
+		stopped = true;
+	}
+	
+	synchronized public int awaitMoreThan( final int n ) throws InterruptedException
+	{
+		while ( numLoaded <= n && numLoaded < sampler.depth && failure == null )
+			wait();
+		if ( failure != null )
+			throw new RuntimeException( "Loading the stack failed.", failure );
+		return numLoaded;
+	}
+}
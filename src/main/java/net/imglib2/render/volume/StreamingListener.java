@@ -0,0 +1,35 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import ij.ImagePlus;
+
+/**
+ * Notified by {@link Renderer#runGrayStreaming} whenever the rendering of all
+ * slices loaded so far is complete.  Called from the rendering thread, the
+ * next rendering starts when it returns.
+ */
+public interface StreamingListener
+{
+	/**
+	 * @param imp the rendering, updated in place, not shown
+	 * @param numRendered number of slices in the rendering
+	 * @param numSlices number of slices of the stack
+	 * @return false to stop loading and rendering, imp keeps the last rendering
+	 */
+	public boolean slicesRendered( final ImagePlus imp, final int numRendered, final int numSlices );
+}
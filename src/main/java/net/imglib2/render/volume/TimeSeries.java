@@ -0,0 +1,142 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Timepoints of a time series prepared for rendering, e.g.
+ * {@link GrayVolume}s or {@link ARGBVolume}s.  When timepoint t is
+ * requested, timepoints t + 1 to t + numPrefetched are prepared on
+ * background threads such that loading overlaps with rendering t.  Only the
+ * current and the prefetched timepoints are kept, so at most
+ * numPrefetched + 1 prepared timepoints are in memory when rendering
+ * forward.
+ */
+abstract public class TimeSeries< V >
+{
+	final protected int numTimepoints;
+	final protected int numPrefetched;
+	final protected ExecutorService loaders;
+	
+	/* prepared or preparing timepoints, guarded by this */
+	final protected HashMap< Integer, Future< V > > timepoints = new HashMap< Integer, Future< V > >();
+	
+	/**
+	 * @param numTimepoints
+	 * @param numPrefetched number of timepoints prepared ahead of the requested one
+	 * @param numLoaders number of threads preparing timepoints
+	 */
+	public TimeSeries( final int numTimepoints, final int numPrefetched, final int numLoaders )
+	{
+		this.numTimepoints = numTimepoints;
+		this.numPrefetched = numPrefetched;
+		loaders = Executors.newFixedThreadPool(
+				Math.max( 1, numLoaders ),
+				new ThreadFactory()
+				{
+					@Override
+					public Thread newThread( final Runnable r )
+					{
+						final Thread thread = new Thread( r, "Timepoint loader" );
+						thread.setDaemon( true );
+						return thread;
+					}
+				} );
+	}
+	
+	/**
+	 * Load and prepare timepoint t, called on a loader thread.
+	 */
+	abstract protected V prepare( final int t ) throws Exception;
+	
+	public int numTimepoints()
+	{
+		return numTimepoints;
+	}
+	
+	/**
+	 * Timepoint t, waits until it is prepared.  Drops all timepoints outside
+	 * of [t, t + numPrefetched] and starts preparing those that are missing.
+	 */
+	public V get( final int t ) throws InterruptedException
+	{
+		final Future< V > future;
+		synchronized ( this )
+		{
+			final Iterator< Integer > keys = timepoints.keySet().iterator();
+			while ( keys.hasNext() )
+			{
+				final int key = keys.next();
+				if ( key < t || key > t + numPrefetched )
+				{
+					timepoints.get( key ).cancel( false );
+					keys.remove();
+				}
+			}
+			
+			final int last = Math.min( numTimepoints - 1, t + numPrefetched );
+			for ( int i = t; i <= last; ++i )
+				if ( !timepoints.containsKey( i ) )
+				{
+					final int timepoint = i;
+					timepoints.put(
+							i,
+							loaders.submit(
+									new Callable< V >()
+									{
+										@Override
+										public V call() throws Exception
+										{
+											return prepare( timepoint );
+										}
+									} ) );
+				}
+			
+			future = timepoints.get( t );
+		}
+		
+		try
+		{
+			return future.get();
+		}
+		catch ( final ExecutionException e )
+		{
+			synchronized ( this )
+			{
+				timepoints.remove( t );
+			}
+			throw new RuntimeException( "Preparing timepoint " + t + " failed.", e.getCause() );
+		}
+	}
+	
+	/**
+	 * Stop the loader threads and drop all prepared timepoints.
+	 */
+	synchronized public void shutdown()
+	{
+		loaders.shutdownNow();
+		timepoints.clear();
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+/**
+ * Lookup tables of the transfer function of {@link AlphaIntensityLayers}
+ * for a fixed step length.  Opacities are corrected for the step length
+ * such that a ray composites the same transparency at any step size:
+ * 
+ * <pre>alpha' = 1 - ( 1 - alpha )^stepLength</pre>
+ * 
+ * The optional pre-integrated table holds opacity and premultiplied
+ * intensity of a ray segment between a front and a back sample, assuming
+ * that the value changes linearly in between.  It has size^2 entries and
+ * its diagonal is the 1d table.  Values are looked up at the nearest of
+ * size bins in [min, max] and clamped to that range, so it should cover
+ * the intensities of the volume.
+ */
+public class TransferFunctionTable
+{
+	/* maximum number of sub-samples integrated per segment */
+	final static protected int maxSubSamples = 16;
+	
+	final protected double min, max, binsPerValue;
+	final protected int size;
+	final protected double stepLength;
+	
+	/* opacity corrected 1d table */
+	final protected float[] correctedOpacities, correctedIntensities;
+	
+	/* [ front * size + back ], null if not pre-integrated */
+	final protected float[] opacities, intensities;
+	
+	/**
+	 * @param transferFunction
+	 * @param min smallest value
+	 * @param max largest value
+	 * @param size number of bins
+	 * @param stepLength distance of two samples relative to step size 1 of the renderer
+	 * @param preIntegrated build the size x size pre-integrated table, otherwise only the 1d table
+	 */
+	public TransferFunctionTable(
+			final AlphaIntensityLayers< ? > transferFunction,
+			final double min,
+			final double max,
+			final int size,
+			final double stepLength,
+			final boolean preIntegrated )
+	{
+		this.min = min;
+		this.max = max;
+		this.size = size;
+		this.stepLength = stepLength;
+		binsPerValue = ( size - 1 ) / ( max - min );
+		
+		correctedOpacities = new float[ size ];
+		correctedIntensities = new float[ size ];
+		for ( int i = 0; i < size; ++i )
+		{
+			final double alpha = 1.0 - Math.pow( 1.0 - transferFunction.alpha( value( i ) ), stepLength );
+			correctedOpacities[ i ] = ( float )alpha;
+			correctedIntensities[ i ] = ( float )( value( i ) * alpha );
+		}
+		
+		if ( !preIntegrated )
+		{
+			opacities = intensities = null;
+			return;
+		}
+		
+		/* log transparency per unit length of each bin */
+		final double[] logTransparencies = new double[ size ];
+		for ( int i = 0; i < size; ++i )
+			logTransparencies[ i ] = Math.log( 1.0 - transferFunction.alpha( value( i ) ) );
+		
+		opacities = new float[ size * size ];
+		intensities = new float[ size * size ];
+		for ( int front = 0; front < size; ++front )
+		{
+			for ( int back = 0; back < size; ++back )
+			{
+				/* composite sub-samples front-to-back */
+				final int n = Math.max( 1, Math.min( maxSubSamples, Math.abs( back - front ) ) );
+				final double h = stepLength / n;
+				double transparency = 1.0;
+				double intensity = 0;
+				for ( int k = 0; k < n; ++k )
+				{
+					final double t = ( k + 0.5 ) / n;
+					final int bin = ( int )Math.round( front + t * ( back - front ) );
+					final double alpha = 1.0 - Math.exp( h * logTransparencies[ bin ] );
+					intensity += transparency * value( bin ) * alpha;
+					transparency *= 1.0 - alpha;
+				}
+				final int i = front * size + back;
+				opacities[ i ] = ( float )( 1.0 - transparency );
+				intensities[ i ] = ( float )intensity;
+			}
+		}
+	}
+	
+	public TransferFunctionTable(
+			final AlphaIntensityLayers< ? > transferFunction,
+			final double min,
+			final double max,
+			final int size,
+			final double stepLength )
+	{
+		this( transferFunction, min, max, size, stepLength, true );
+	}
+	
+	final protected double value( final int bin )
+	{
+		return min + bin / binsPerValue;
+	}
+	
+	/**
+	 * Nearest bin of value v, clamped to [0, size).
+	 */
+	final public int bin( final double v )
+	{
+		return Math.max( 0, Math.min( size - 1, ( int )Math.round( ( v - min ) * binsPerValue ) ) );
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	public double stepLength()
+	{
+		return stepLength;
+	}
+	
+	public boolean isPreIntegrated()
+	{
+		return opacities != null;
+	}
+	
+	/**
+	 * Opacity corrected 1d table.
+	 */
+	final public float opacity( final int bin )
+	{
+		return correctedOpacities[ bin ];
+	}
+	
+	/**
+	 * Premultiplied intensity of the opacity corrected 1d table.
+	 */
+	final public float intensity( final int bin )
+	{
+		return correctedIntensities[ bin ];
+	}
+	
+	/**
+	 * Opacity of a segment from front to back bin, front == back is the
+	 * opacity corrected 1d table.  Only if {@link #isPreIntegrated()}.
+	 */
+	final public float opacity( final int front, final int back )
+	{
+		return opacities[ front * size + back ];
+	}
+	
+	/**
+	 * Premultiplied intensity of a segment from front to back bin.  Only if
+	 * {@link #isPreIntegrated()}.
+	 */
+	final public float intensity( final int front, final int back )
+	{
+		return intensities[ front * size + back ];
+	}
+}
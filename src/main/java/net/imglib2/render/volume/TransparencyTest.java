@@ -0,0 +1,32 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+/**
+ * A transfer function that can tell whether all intensities in a range map
+ * to zero alpha, i.e. whether samples from that range contribute nothing to
+ * the rendering.
+ */
+public interface TransparencyTest
+{
+	/**
+	 * @param min per channel minimum intensity
+	 * @param max per channel maximum intensity
+	 * @return true if every intensity in [min, max] is fully transparent
+	 */
+	public boolean isTransparent( final double[] min, final double[] max );
+}
@@ -0,0 +1,256 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import ij.ImagePlus;
+import ij.ImageStack;
+import ij.io.FileInfo;
+import ij.io.FileSaver;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Fraction;
+
+/**
+ * Levels of a resolution pyramid of float volumes as created by
+ * {@link Renderer#floatImagePlus} and {@link Renderer#floatCompositeImage},
+ * i.e. planar images with numChannels channel planes per z-slice.  Voxel i
+ * of a level is the average of voxels 2i and 2i + 1 of the next finer
+ * level in x, y and z, such that source coordinates p of level 0 are
+ * ( p - ( 2^l - 1 ) / 2 ) / 2^l in level l, see {@link ProjectiveRays#level}.
+ */
+public class VolumePyramid
+{
+	private VolumePyramid() {}
+	
+	/**
+	 * Average 2x2x2 blocks of img, blocks at the border that are cut off
+	 * average only their existing voxels.  Output slices are computed in
+	 * parallel.
+	 * 
+	 * @param img x, y, z or x, y, channel, z
+	 * @param pool null for the calling thread
+	 */
+	final static public PlanarImg< FloatType, FloatArray > downsample(
+			final PlanarImg< FloatType, FloatArray > img,
+			final ForkJoinPool pool )
+	{
+		final int n = img.numDimensions();
+		final int width = ( int )img.dimension( 0 );
+		final int height = ( int )img.dimension( 1 );
+		final int numChannels = n > 3 ? ( int )img.dimension( 2 ) : 1;
+		final int depth = ( int )img.dimension( n - 1 );
+		
+		final int levelWidth = ( width + 1 ) / 2;
+		final int levelHeight = ( height + 1 ) / 2;
+		final int levelDepth = ( depth + 1 ) / 2;
+		
+		final float[][] slices = new float[ levelDepth * numChannels ][];
+		final ArrayList< RecursiveAction > tasks = new ArrayList< RecursiveAction >();
+		for ( int i = 0; i < slices.length; ++i )
+		{
+			final int slice = i;
+			tasks.add(
+					new RecursiveAction()
+					{
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						final protected void compute()
+						{
+							final int c = slice % numChannels;
+							final int z = slice / numChannels;
+							final float[] level = new float[ levelWidth * levelHeight ];
+							final float[] counts = new float[ levelWidth * levelHeight ];
+							for ( int zz = 2 * z; zz < Math.min( depth, 2 * z + 2 ); ++zz )
+							{
+								final float[] pixels = img.getPlane( zz * numChannels + c ).getCurrentStorageArray();
+								for ( int y = 0; y < height; ++y )
+								{
+									final int row = y * width;
+									final int levelRow = ( y / 2 ) * levelWidth;
+									for ( int x = 0; x < width; ++x )
+									{
+										level[ levelRow + x / 2 ] += pixels[ row + x ];
+										counts[ levelRow + x / 2 ] += 1;
+									}
+								}
+							}
+							for ( int j = 0; j < level.length; ++j )
+								level[ j ] /= counts[ j ];
+							slices[ slice ] = level;
+						}
+					} );
+		}
+		Renderer.invokeAll( pool, tasks );
+		
+		final long[] dimensions = new long[ n ];
+		img.dimensions( dimensions );
+		dimensions[ 0 ] = levelWidth;
+		dimensions[ 1 ] = levelHeight;
+		dimensions[ n - 1 ] = levelDepth;
+		
+		return wrap( slices, dimensions );
+	}
+	
+	final static protected PlanarImg< FloatType, FloatArray > wrap( final float[][] slices, final long[] dimensions )
+	{
+		final ArrayList< FloatArray > planes = new ArrayList< FloatArray >( slices.length );
+		for ( final float[] floats : slices )
+			planes.add( new FloatArray( floats ) );
+		
+		final PlanarImg< FloatType, FloatArray > img = new PlanarImg< FloatType, FloatArray >( planes, dimensions, new Fraction() );
+		img.setLinkedType( new FloatType( img ) );
+		return img;
+	}
+	
+	/**
+	 * Wrap the planes of img as a GRAY32 ImagePlus without copying.
+	 */
+	final static public ImagePlus wrap( final PlanarImg< FloatType, FloatArray > img, final String title )
+	{
+		final int n = img.numDimensions();
+		final int width = ( int )img.dimension( 0 );
+		final int height = ( int )img.dimension( 1 );
+		final int numChannels = n > 3 ? ( int )img.dimension( 2 ) : 1;
+		final int depth = ( int )img.dimension( n - 1 );
+		
+		final ImageStack stack = new ImageStack( width, height );
+		for ( int i = 0; i < img.numSlices(); ++i )
+			stack.addSlice( null, img.getPlane( i ).getCurrentStorageArray() );
+		
+		final ImagePlus imp = new ImagePlus( title, stack );
+		imp.setDimensions( numChannels, depth, 1 );
+		return imp;
+	}
+	
+	/**
+	 * The next coarser level of img.  If file is not null, the level is
+	 * read from file if it exists and has the expected dimensions, otherwise
+	 * it is computed and saved to file.  file must therefore be specific to
+	 * the source of img, see {@link #directory(String, ImagePlus)}.
+	 * 
+	 * @param img x, y, z or x, y, channel, z
+	 * @param file TIFF cache of the level, null for none
+	 * @param pool null for the calling thread
+	 */
+	final static public PlanarImg< FloatType, FloatArray > coarser(
+			final PlanarImg< FloatType, FloatArray > img,
+			final File file,
+			final ForkJoinPool pool )
+	{
+		final int n = img.numDimensions();
+		final int numChannels = n > 3 ? ( int )img.dimension( 2 ) : 1;
+		
+		if ( file != null && file.exists() )
+		{
+			final ImagePlus imp = new ImagePlus( file.getAbsolutePath() );
+			if (
+					imp.getWidth() == ( img.dimension( 0 ) + 1 ) / 2 &&
+					imp.getHeight() == ( img.dimension( 1 ) + 1 ) / 2 &&
+					imp.getNChannels() == numChannels &&
+					imp.getNSlices() == ( img.dimension( n - 1 ) + 1 ) / 2 )
+				return n > 3 ? Renderer.floatCompositeImage( imp, pool ) : Renderer.floatImagePlus( imp, pool );
+		}
+		
+		final long t0 = System.nanoTime();
+		final PlanarImg< FloatType, FloatArray > level = downsample( img, pool );
+		
+		if ( file != null )
+		{
+			file.getParentFile().mkdirs();
+			final ImagePlus imp = wrap( level, file.getName() );
+			if ( !( imp.getStackSize() > 1 ? new FileSaver( imp ).saveAsTiffStack( file.getAbsolutePath() ) : new FileSaver( imp ).saveAsTiff( file.getAbsolutePath() ) ) )
+				System.out.println( "Could not save pyramid level to " + file.getAbsolutePath() );
+		}
+		
+		final RenderStats stats = RenderStats.current();
+		if ( stats != null )
+		{
+			stats.phase( RenderStats.Phase.PYRAMID, System.nanoTime() - t0 );
+			stats.allocated( 4 * level.size() );
+		}
+		
+		return level;
+	}
+	
+	/**
+	 * Cache directory of the pyramid of impSource in directory, null if
+	 * directory is null.  Levels cached in directory are reused only if they
+	 * were computed from the same source, so the subdirectory is keyed on
+	 * the path and modification time of the file impSource was opened from
+	 * or, for sources that were not opened from a file, on the title and a
+	 * checksum of all pixels.
+	 */
+	final static public String directory( final String directory, final ImagePlus impSource )
+	{
+		if ( directory == null )
+			return null;
+		
+		final String key;
+		final FileInfo fileInfo = impSource.getOriginalFileInfo();
+		final File source = fileInfo == null || fileInfo.directory == null || fileInfo.fileName == null ? null : new File( fileInfo.directory, fileInfo.fileName );
+		if ( source != null && source.exists() )
+			key = source.getAbsolutePath() + ":" + source.lastModified();
+		else
+		{
+			final ImageStack stack = impSource.getStack();
+			long checksum = 0;
+			for ( int i = 1; i <= stack.getSize(); ++i )
+				checksum = 31 * checksum + hashCode( stack.getPixels( i ) );
+			key = impSource.getTitle() + ":" + checksum;
+		}
+		
+		final String name = ( source == null ? "" + impSource.getTitle() : source.getName() ).replaceAll( "[^A-Za-z0-9._-]", "_" );
+		/* 64 bit FNV-1a */
+		long hash = 0xcbf29ce484222325L;
+		for ( int i = 0; i < key.length(); ++i )
+			hash = ( hash ^ key.charAt( i ) ) * 0x100000001b3L;
+		
+		return new File( directory, String.format( "%s-%016x", name, hash ) ).getPath();
+	}
+	
+	final static private int hashCode( final Object pixels )
+	{
+		if ( pixels instanceof byte[] )
+			return Arrays.hashCode( ( byte[] )pixels );
+		else if ( pixels instanceof short[] )
+			return Arrays.hashCode( ( short[] )pixels );
+		else if ( pixels instanceof float[] )
+			return Arrays.hashCode( ( float[] )pixels );
+		else if ( pixels instanceof int[] )
+			return Arrays.hashCode( ( int[] )pixels );
+		else
+			return 0;
+	}
+	
+	/**
+	 * TIFF cache of level l in directory, null if directory is null.  Use
+	 * {@link #directory(String, ImagePlus)} to key directory on the source.
+	 */
+	final static public File file( final String directory, final int l )
+	{
+		return directory == null ? null : new File( directory, String.format( "level%02d.tif", l ) );
+	}
+}
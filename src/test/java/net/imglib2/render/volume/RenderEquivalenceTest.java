@@ -0,0 +1,221 @@
+/**
+ * License: GPL
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License 2
+ * as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package net.imglib2.render.volume;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import net.imglib2.FinalInterval;
+import net.imglib2.FinalRealInterval;
+import net.imglib2.RandomAccessible;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.realtransform.AffineTransform3D;
+import net.imglib2.realtransform.InvertibleRealTransformSequence;
+import net.imglib2.realtransform.Translation3D;
+import net.imglib2.render.volume.Renderer.Interpolation;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.util.Fraction;
+
+import org.junit.Test;
+
+/**
+ * Renders a synthetic volume with the row renderer, the packet renderer and
+ * through {@link EmptySpaceSkippingRandomAccessible}, all of which must
+ * composite the same canvas.
+ */
+public class RenderEquivalenceTest
+{
+	final static protected int size = 64;
+	final static protected int width = 96;
+	final static protected int height = 72;
+	final static protected long stepSize = 2;
+	final static protected double f = 1;
+	
+	/* two spheres on a constant background such that most bricks are transparent, slices in z */
+	final static protected float[][] phantom( final float background )
+	{
+		final float[][] slices = new float[ size ][ size * size ];
+		final double[][] centers = { { 20, 24, 28 }, { 44, 40, 36 } };
+		for ( int z = 0; z < size; ++z )
+		{
+			final float[] slice = slices[ z ];
+			Arrays.fill( slice, background );
+			for ( int y = 0, i = 0; y < size; ++y )
+				for ( int x = 0; x < size; ++x, ++i )
+					for ( final double[] c : centers )
+					{
+						final double dx = x - c[ 0 ], dy = y - c[ 1 ], dz = z - c[ 2 ];
+						final double r = Math.sqrt( dx * dx + dy * dy + dz * dz );
+						if ( r < 12 )
+							slice[ i ] = Math.max( slice[ i ], ( float )( 0.05 + 0.1 * ( 12 - r ) / 12 ) );
+					}
+		}
+		return slices;
+	}
+	
+	final static protected ArrayImg< FloatType, FloatArray > arrayImg( final float[][] slices )
+	{
+		final float[] voxels = new float[ size * size * size ];
+		for ( int z = 0; z < size; ++z )
+			System.arraycopy( slices[ z ], 0, voxels, z * size * size, size * size );
+		return ArrayImgs.floats( voxels, size, size, size );
+	}
+	
+	final static protected PlanarImg< FloatType, FloatArray > planarImg( final float[][] slices )
+	{
+		final ArrayList< FloatArray > planes = new ArrayList< FloatArray >( size );
+		for ( final float[] slice : slices )
+			planes.add( new FloatArray( slice ) );
+		final PlanarImg< FloatType, FloatArray > img = new PlanarImg< FloatType, FloatArray >( planes, new long[]{ size, size, size }, new Fraction() );
+		img.setLinkedType( new FloatType( img ) );
+		return img;
+	}
+	
+	final static protected AffineTransform3D orientation()
+	{
+		final AffineTransform3D orientation = new AffineTransform3D();
+		orientation.rotate( 0, 0.6 );
+		orientation.rotate( 1, 0.3 );
+		return orientation;
+	}
+	
+	final static protected float[] render(
+			final RandomAccessible< FloatType > source,
+			final RayClipping clipping,
+			final long minZ,
+			final long maxZ,
+			final AlphaIntensityLayers< FloatType > accumulator,
+			final boolean batched )
+	{
+		final float[] pixels = new float[ width * height ];
+		final ArrayImg< FloatType, FloatArray > canvas = ArrayImgs.floats( pixels, width, height );
+		if ( batched )
+			Renderer.renderBatched( source, canvas, minZ, maxZ, stepSize, accumulator, clipping, null );
+		else
+			Renderer.render( source, canvas, minZ, maxZ, stepSize, 0, accumulator, clipping, null );
+		return pixels;
+	}
+	
+	final static protected boolean anyTransparent( final BrickIndex index, final TransparencyTest transparency )
+	{
+		for ( final boolean[] level : index.transparentBricks( transparency ) )
+			for ( final boolean transparent : level )
+				if ( transparent )
+					return true;
+		return false;
+	}
+	
+	final static protected void assertVisible( final float[] pixels )
+	{
+		float max = 0;
+		for ( final float value : pixels )
+			max = Math.max( max, value );
+		assertTrue( "The phantom must be visible.", max > 0.01f );
+	}
+	
+	@Test
+	public void testRowBatchedAndEmptySpaceSkipping()
+	{
+		final ArrayImg< FloatType, FloatArray > img = arrayImg( phantom( 0 ) );
+		final AlphaIntensityLayers< FloatType > accumulator = new AlphaIntensityLayers< FloatType >( 4, 0 );
+		
+		final Translation3D offset = new Translation3D();
+		final AffineTransform3D affine = Renderer.buildAffineTransform( orientation(), size, size, size, f );
+		final InvertibleRealTransformSequence transformSequence = new InvertibleRealTransformSequence();
+		transformSequence.add( affine );
+		Renderer.appendCamera( transformSequence, width, height, size, f, offset );
+		
+		final FinalRealInterval bounds = affine.estimateBounds( img );
+		final long minZ = ( long )Math.floor( bounds.realMin( 2 ) );
+		final long maxZ = ( long )Math.ceil( bounds.realMax( 2 ) );
+		
+		final ProjectiveRays rays = Renderer.projectiveRays( affine, width, height, f, offset, 0, transformSequence );
+		final RandomAccessible< FloatType > source = new ProjectiveRayRandomAccessible< FloatType >(
+				Renderer.buildInterpolant( img, Interpolation.NL ),
+				rays );
+		final RayClipping clipping = new RayClipping( rays, img, Interpolation.NL );
+		
+		final BrickIndex index = new BrickIndex( Collections.singletonList( img ), Renderer.brickSize, null );
+		assertTrue( "Some bricks must be transparent.", anyTransparent( index, accumulator ) );
+		final RandomAccessible< FloatType > skipping = new EmptySpaceSkippingRandomAccessible< FloatType >( source, rays, index, accumulator );
+		
+		final float[] row = render( source, clipping, minZ, maxZ, accumulator, false );
+		assertVisible( row );
+		
+		/* packets composite float rounded samples */
+		assertArrayEquals( "render vs renderBatched", row, render( source, clipping, minZ, maxZ, accumulator, true ), 1e-5f );
+		
+		/* skipping transparent bricks leaves the samples untouched */
+		assertArrayEquals( "render without vs with empty space skipping", row, render( skipping, clipping, minZ, maxZ, accumulator, false ), 1e-6f );
+		assertArrayEquals( "renderBatched without vs with empty space skipping", row, render( skipping, clipping, minZ, maxZ, accumulator, true ), 1e-5f );
+	}
+	
+	/**
+	 * A positive alpha offset makes 0 opaque, so rays are not clipped and
+	 * skipped samples cannot be filled with 0.  The negative background
+	 * bricks are still transparent and skipped.
+	 */
+	@Test
+	public void testOpaqueZeroWithTransparentBricks()
+	{
+		final float[][] slices = phantom( -0.5f );
+		final AlphaIntensityLayers< FloatType > accumulator = new AlphaIntensityLayers< FloatType >( 4, 0.1 );
+		final double[] zero = new double[ 1 ];
+		assertTrue( "0 must be opaque.", !accumulator.isTransparent( zero, zero ) );
+		
+		/* same volume with and without index */
+		final GrayVolume indexed = new GrayVolume( planarImg( slices ), Interpolation.NL, 1, 0, null, null );
+		final ArrayImg< FloatType, FloatArray > img = arrayImg( slices );
+		final GrayVolume plain = new GrayVolume( new FinalInterval( img ), Interpolation.NL, Renderer.buildInterpolant( img, Interpolation.NL ) );
+		assertTrue( "Some bricks must be transparent.", anyTransparent( indexed.index, accumulator ) );
+		
+		final Translation3D offset = new Translation3D();
+		final AffineTransform3D affine = Renderer.buildAffineTransform( orientation(), size, size, size, f );
+		final InvertibleRealTransformSequence transformSequence = new InvertibleRealTransformSequence();
+		transformSequence.add( affine );
+		Renderer.appendCamera( transformSequence, width, height, size, f, offset );
+		
+		final FinalRealInterval bounds = affine.estimateBounds( img );
+		final long minZ = ( long )Math.floor( bounds.realMin( 2 ) );
+		final long maxZ = ( long )Math.ceil( bounds.realMax( 2 ) );
+		
+		final ProjectiveRays rays = Renderer.projectiveRays( affine, width, height, f, offset, 0, transformSequence );
+		final RandomAccessible< FloatType > source = new ProjectiveRayRandomAccessible< FloatType >( plain.interpolant, rays );
+		final RandomAccessible< FloatType > skipping = new EmptySpaceSkippingRandomAccessible< FloatType >( source, rays, indexed.index, accumulator );
+		
+		final float[] row = render( source, null, minZ, maxZ, accumulator, false );
+		assertVisible( row );
+		
+		assertArrayEquals( "render vs renderBatched", row, render( source, null, minZ, maxZ, accumulator, true ), 1e-5f );
+		assertArrayEquals( "render without vs with empty space skipping", row, render( skipping, null, minZ, maxZ, accumulator, false ), 1e-6f );
+		
+		/* renderGray must not composite the samples skipped in packets */
+		final float[] withIndex = new float[ width * height ];
+		final float[] withoutIndex = new float[ width * height ];
+		Renderer.renderGray( indexed, withIndex, null, width, height, orientation(), 0, f, offset, stepSize, 0, accumulator, false, null, null );
+		Renderer.renderGray( plain, withoutIndex, null, width, height, orientation(), 0, f, offset, stepSize, 0, accumulator, false, null, null );
+		assertVisible( withoutIndex );
+		assertArrayEquals( "renderGray without vs with empty space skipping", withoutIndex, withIndex, 1e-5f );
+	}
+}